@@ -0,0 +1,85 @@
+package benchmarks;
+
+import org.openjdk.jmh.annotations.*;
+import primitives.Point;
+import primitives.Ray;
+import primitives.Vector;
+import renderer.*;
+import scene.Scene;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmark of the scene accelerators - tracing the primary rays of the teapot scene when they are intersected with
+ * the whole geometries list, with the voxel grid and with the bounding volume hierarchy. The shading is the same for
+ * all of them, so the differences are of the intersections.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class AcceleratorBenchmark {
+    /**
+     * the amount of rays along each edge of the view plane
+     */
+    private static final int SIZE = 64;
+
+    private final Ray[] rays = new Ray[SIZE * SIZE];
+    private RayTracerBase geometries;
+    private RayTracerBase grid;
+    private RayTracerBase bvh;
+
+    /**
+     * Creates the tracers, each with a scene of its own, and the rays through the view plane of the teapot camera
+     */
+    @Setup
+    public void setup() {
+        geometries = new SimpleRayTracer(BenchmarkScenes.teapot());
+        grid = new RayTracerRegular(BenchmarkScenes.teapot().setResolution(10));
+        bvh = new SimpleRayTracer(BenchmarkScenes.teapot().calcBVH());
+
+        Camera camera = Camera.getBuilder()
+                .setLocation(new Point(0, 0, -1000))
+                .setDirection(new Vector(0, 0, 1), new Vector(0, 1, 0))
+                .setVpDistance(1000).setVpSize(200, 200)
+                .setImageWriter(new ImageWriter("benchmark", SIZE, SIZE))
+                .setRayTracer(geometries)
+                .build();
+        for (int i = 0; i < SIZE; i++)
+            for (int j = 0; j < SIZE; j++)
+                rays[i * SIZE + j] = camera.constructRay(SIZE, SIZE, j, i);
+    }
+
+    /**
+     * Traces all the rays
+     *
+     * @param tracer the ray tracer
+     * @return the sum of the colors, so the work isn't optimized away
+     */
+    private double trace(RayTracerBase tracer) {
+        double sum = 0;
+        for (Ray ray : rays)
+            sum += tracer.traceRay(ray).getRgb().getD1();
+        return sum;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(SIZE * SIZE)
+    public double geometries() {
+        return trace(geometries);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(SIZE * SIZE)
+    public double grid() {
+        return trace(grid);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(SIZE * SIZE)
+    public double bvh() {
+        return trace(bvh);
+    }
+}
@@ -0,0 +1,40 @@
+package benchmarks;
+
+import JSON.Json;
+import scene.Scene;
+
+/**
+ * The scenes of the benchmarks - the teapot and the bathroom scenes of the renderer tests, written once to
+ * {@code Files/JSON} by {@link Json#write(Scene, String)}. The benchmarks are run from the project directory, so the
+ * files are found there.
+ */
+final class BenchmarkScenes {
+    /**
+     * Don't let anyone instantiate this class.
+     */
+    private BenchmarkScenes() {}
+
+    /**
+     * Reads a new copy of a scene, so each accelerator is built on a scene of its own
+     *
+     * @param fileName the name of the scene file in {@code Files/JSON}
+     * @return the scene
+     * @throws IllegalStateException if the file isn't found
+     */
+    private static Scene read(String fileName) {
+        Scene scene = Json.read(fileName);
+        if (scene == null)
+            throw new IllegalStateException("The scene file " + fileName + " isn't found, run from the project directory");
+        return scene;
+    }
+
+    /**
+     * @return the teapot scene
+     */
+    static Scene teapot() { return read("Teapot.json"); }
+
+    /**
+     * @return the bathroom scene
+     */
+    static Scene bathroom() { return read("Bathroom.json"); }
+}
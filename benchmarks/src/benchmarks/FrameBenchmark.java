@@ -0,0 +1,67 @@
+package benchmarks;
+
+import org.openjdk.jmh.annotations.*;
+import primitives.Point;
+import primitives.Vector;
+import renderer.*;
+import scene.Scene;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmark of rendering whole frames of the teapot and the bathroom scenes, with the accelerators and the camera
+ * positions of their tests. The frames are rendered by a single thread, and the score is in pixels per second.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 3, time = 5)
+@Fork(1)
+public class FrameBenchmark {
+    /**
+     * the size of the frame edge in pixels
+     */
+    private static final int SIZE = 200;
+
+    @Param({"teapot", "bathroom"})
+    private String scene;
+
+    private Camera camera;
+
+    /**
+     * Creates the scene and its camera
+     */
+    @Setup
+    public void setup() {
+        ImageWriter imageWriter = new ImageWriter("benchmark", SIZE, SIZE);
+        camera = switch (scene) {
+            case "teapot" -> Camera.getBuilder()
+                    .setLocation(new Point(0, 0, -1000))
+                    .setDirection(new Vector(0, 0, 1), new Vector(0, 1, 0))
+                    .setVpDistance(1000).setVpSize(200, 200)
+                    .setImageWriter(imageWriter)
+                    .setRayTracer(new SimpleRayTracer(BenchmarkScenes.teapot().calcBVH()))
+                    .build();
+            case "bathroom" -> {
+                Scene bathroomScene = BenchmarkScenes.bathroom();
+                bathroomScene.setResolution(10);
+                yield Camera.getBuilder()
+                        .setDirection(new Vector(0, 0, -1), new Vector(0, 1, 0))
+                        .setVpSize(2000, 2000)
+                        .moveCamera(new Point(-920, 420, 1100), new Point(0, 200, 0))
+                        .setVpDistance(4000)
+                        .setImageWriter(imageWriter)
+                        .setRayTracer(new RayTracerRegular(bathroomScene))
+                        .build();
+            }
+            default -> throw new IllegalArgumentException("Unknown scene " + scene);
+        };
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(SIZE * SIZE)
+    public Camera frame() {
+        return camera.renderImage();
+    }
+}
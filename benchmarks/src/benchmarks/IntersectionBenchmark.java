@@ -0,0 +1,99 @@
+package benchmarks;
+
+import geometries.*;
+import org.openjdk.jmh.annotations.*;
+import primitives.Point;
+import primitives.Ray;
+import primitives.Vector;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmark of the closest hit query of each kind of geometric entity. The rays start above the entities and point
+ * down to random points around them, so about half of the rays hit.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class IntersectionBenchmark {
+    /**
+     * the amount of rays of each benchmark invocation
+     */
+    private static final int RAYS = 1024;
+
+    private final Ray[] rays = new Ray[RAYS];
+    private final Intersectable.HitRecord hit = new Intersectable.HitRecord();
+
+    private final Sphere sphere = new Sphere(1, Point.ZERO);
+    private final Triangle triangle = new Triangle(new Point(-1.5, -1.5, 0), new Point(1.5, -1.5, 0),
+            new Point(0, 1.5, 0.5));
+    private final Polygon polygon = new Polygon(new Point(-1, -1, 0), new Point(1, -1, 0.2), new Point(1, 1, 0.2),
+            new Point(-1, 1, 0));
+    private final Cylinder cylinder = new Cylinder(new Ray(new Point(0, -1, 0), new Vector(0, 1, 0)), 1, 2);
+    private final Tube tube = new Tube(0.7, new Ray(Point.ZERO, new Vector(0, 1, 0)));
+    private final Plane plane = new Plane(Point.ZERO, new Vector(0.1, 0.1, 1));
+
+    /**
+     * Creates the rays, from the same seed for every run
+     */
+    @Setup
+    public void setup() {
+        Random random = new Random(42);
+        Point head = new Point(0, 0, 10);
+        for (int i = 0; i < RAYS; i++)
+            rays[i] = new Ray(head, new Point(random.nextDouble(-2, 2), random.nextDouble(-2, 2), 0).subtract(head));
+    }
+
+    /**
+     * Finds the closest hit of all the rays with a geometric entity
+     *
+     * @param intersectable the geometric entity
+     * @return the amount of rays which hit it
+     */
+    private int closestHits(Intersectable intersectable) {
+        int hits = 0;
+        for (Ray ray : rays)
+            if (intersectable.findClosestHit(ray, hit.reset(Double.POSITIVE_INFINITY))) hits++;
+        return hits;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(RAYS)
+    public int sphere() {
+        return closestHits(sphere);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(RAYS)
+    public int triangle() {
+        return closestHits(triangle);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(RAYS)
+    public int polygon() {
+        return closestHits(polygon);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(RAYS)
+    public int cylinder() {
+        return closestHits(cylinder);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(RAYS)
+    public int tube() {
+        return closestHits(tube);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(RAYS)
+    public int plane() {
+        return closestHits(plane);
+    }
+}
@@ -0,0 +1,75 @@
+package benchmarks;
+
+import geometries.Intersectable;
+import geometries.Sphere;
+import lighting.AmbientLight;
+import lighting.DirectionalLight;
+import lighting.PointLight;
+import lighting.SpotLight;
+import org.openjdk.jmh.annotations.*;
+import primitives.*;
+import renderer.SimpleRayTracer;
+import scene.Scene;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmark of the local shading. All the rays hit a single sphere, which neither reflects nor is transparent, lit by
+ * three lights, so tracing a ray is finding its hit and calculating the local effects there. The intersection alone
+ * is measured as well, the difference is the shading.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ShadingBenchmark {
+    /**
+     * the amount of rays of each benchmark invocation
+     */
+    private static final int RAYS = 1024;
+
+    private final Ray[] rays = new Ray[RAYS];
+    private final Intersectable.HitRecord hit = new Intersectable.HitRecord();
+    private final Scene scene = new Scene("Shading benchmark");
+    private SimpleRayTracer tracer;
+
+    /**
+     * Creates the scene and the rays, from the same seed for every run
+     */
+    @Setup
+    public void setup() {
+        scene.geometries.add(new Sphere(50, new Point(0, 0, -100)).setEmission(new Color(20, 40, 80))
+                .setMaterial(new Material().setKd(0.5).setKs(0.5).setShininess(30)));
+        scene.setAmbientLight(new AmbientLight(new Color(255, 255, 255), 0.1));
+        scene.lights.add(new PointLight(new Color(500, 300, 300), new Point(-50, 50, 0)).setKl(0.0004).setKq(0.0000006));
+        scene.lights.add(new SpotLight(new Color(300, 500, 300), new Point(50, 50, 0), new Vector(-1, -1, -2))
+                .setKl(0.0004).setKq(0.0000006));
+        scene.lights.add(new DirectionalLight(new Color(200, 200, 300), new Vector(0, -1, -1)));
+        tracer = new SimpleRayTracer(scene);
+
+        Random random = new Random(42);
+        for (int i = 0; i < RAYS; i++)
+            rays[i] = new Ray(Point.ZERO, new Vector(random.nextDouble(-0.3, 0.3), random.nextDouble(-0.3, 0.3), -1));
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(RAYS)
+    public double shading() {
+        double sum = 0;
+        for (Ray ray : rays)
+            sum += tracer.traceRay(ray).getRgb().getD1();
+        return sum;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(RAYS)
+    public int intersection() {
+        int hits = 0;
+        for (Ray ray : rays)
+            if (scene.geometries.findClosestHit(ray, hit.reset(Double.POSITIVE_INFINITY))) hits++;
+        return hits;
+    }
+}
@@ -3,6 +3,10 @@ package JSON;
 import com.google.gson.*;
 import com.google.gson.stream.JsonReader;
 import geometries.*;
+import lighting.DirectionalLight;
+import lighting.LightSource;
+import lighting.PointLight;
+import lighting.SpotLight;
 import scene.Scene;
 
 import java.io.File;
@@ -29,6 +33,7 @@ public class Json {
     public static void write(Scene scene, String fileName) {
         Gson gson = new GsonBuilder()
                 .registerTypeAdapter(Geometries.class, new JSON.Json.GeometriesAdapter())
+                .registerTypeAdapter(LightSource.class, new JSON.Json.LightSourceAdapter())
                 .setPrettyPrinting()
                 .create();
 
@@ -57,6 +62,7 @@ public class Json {
     public static Scene read(String fileName) {
         Gson gson = new GsonBuilder()
                 .registerTypeAdapter(Geometries.class, new JSON.Json.GeometriesAdapter())
+                .registerTypeAdapter(LightSource.class, new JSON.Json.LightSourceAdapter())
                 .create();
 
         // Check if the file exists
@@ -153,20 +159,59 @@ public class Json {
                         break;
                 }
                 if (intersectable != null) {
+                    // the derived attributes (boundary, triangle edges) aren't kept in the file
+                    intersectable.calcDerivedAttributes();
                     geometries.add(intersectable);
                 }
             }
 
-            Geometries geometriesObject = new Geometries();
-            try {
-                // Set the private field "Geometry"
-                Field geometryField = Geometries.class.getDeclaredField("Geometry");
-                geometryField.setAccessible(true);
-                geometryField.set(geometriesObject, geometries);
-            } catch (NoSuchFieldException | IllegalAccessException e) {
-                e.printStackTrace();
-            }
-            return geometriesObject;
+            // the collection boundary is calculated as the geometries are added
+            return new Geometries(geometries.toArray(new Intersectable[0]));
+        }
+    }
+
+    /**
+     * Custom adapter for serializing and deserializing the light sources of the scene, which are kept in a list of
+     * their interface - each light source is written with its type, like the geometries.
+     */
+    private static class LightSourceAdapter implements JsonSerializer<LightSource>, JsonDeserializer<LightSource> {
+
+        /**
+         * Serializes a light source to JSON.
+         *
+         * @param src       the light source to serialize
+         * @param typeOfSrc the type of the source object
+         * @param context   the JSON serialization context
+         * @return the JSON element representing the light source with its type
+         */
+        @Override
+        public JsonElement serialize(LightSource src, Type typeOfSrc, JsonSerializationContext context) {
+            JsonObject jsonObject = new JsonObject();
+            jsonObject.addProperty("type", src.getClass().getSimpleName());
+            jsonObject.add("attributes", context.serialize(src, src.getClass()));
+            return jsonObject;
+        }
+
+        /**
+         * Deserializes a light source from JSON.
+         *
+         * @param json    the JSON element to deserialize from
+         * @param typeOfT the type of the target object
+         * @param context the JSON deserialization context
+         * @return the deserialized light source
+         * @throws JsonParseException if the type of the light source is unknown
+         */
+        @Override
+        public LightSource deserialize(JsonElement json, Type typeOfT, JsonDeserializationContext context) throws JsonParseException {
+            JsonObject jsonObject = json.getAsJsonObject();
+            String type = jsonObject.get("type").getAsString();
+            JsonElement attributes = jsonObject.get("attributes");
+            return switch (type) {
+                case "PointLight" -> context.deserialize(attributes, PointLight.class);
+                case "SpotLight" -> context.deserialize(attributes, SpotLight.class);
+                case "DirectionalLight" -> context.deserialize(attributes, DirectionalLight.class);
+                default -> throw new JsonParseException("Unknown light source type " + type);
+            };
         }
     }
 }
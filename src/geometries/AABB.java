@@ -0,0 +1,176 @@
+package geometries;
+
+import primitives.Point;
+import primitives.Ray;
+import primitives.Vector;
+
+/**
+ * AABB class represents an axis aligned bounding box in 3D Cartesian coordinate system - the box between a minimum
+ * and a maximum corner. It bounds a geometric entity (or a group of entities), so a ray that misses the box can't
+ * intersect the entity.
+ */
+public class AABB {
+    /**
+     * the minimum corner coordinates
+     */
+    public final double minX, minY, minZ;
+    /**
+     * the maximum corner coordinates
+     */
+    public final double maxX, maxY, maxZ;
+
+    /**
+     * AABB constructor
+     *
+     * @param minX the minimum X coordinate
+     * @param minY the minimum Y coordinate
+     * @param minZ the minimum Z coordinate
+     * @param maxX the maximum X coordinate
+     * @param maxY the maximum Y coordinate
+     * @param maxZ the maximum Z coordinate
+     */
+    public AABB(double minX, double minY, double minZ, double maxX, double maxY, double maxZ) {
+        this.minX = minX;
+        this.minY = minY;
+        this.minZ = minZ;
+        this.maxX = maxX;
+        this.maxY = maxY;
+        this.maxZ = maxZ;
+    }
+
+    /**
+     * the minimum coordinate of the box on an axis
+     *
+     * @param axis the axis - 0 for X, 1 for Y and 2 for Z
+     * @return the minimum coordinate
+     */
+    public double min(int axis) {
+        return axis == 0 ? minX : axis == 1 ? minY : minZ;
+    }
+
+    /**
+     * the maximum coordinate of the box on an axis
+     *
+     * @param axis the axis - 0 for X, 1 for Y and 2 for Z
+     * @return the maximum coordinate
+     */
+    public double max(int axis) {
+        return axis == 0 ? maxX : axis == 1 ? maxY : maxZ;
+    }
+
+    /**
+     * the smallest box that contains both this box and another one
+     *
+     * @param other the other box
+     * @return the united box
+     */
+    public AABB union(AABB other) {
+        return new AABB(Math.min(minX, other.minX), Math.min(minY, other.minY), Math.min(minZ, other.minZ),
+                Math.max(maxX, other.maxX), Math.max(maxY, other.maxY), Math.max(maxZ, other.maxZ));
+    }
+
+    /**
+     * the box expanded by a margin on every side
+     *
+     * @param margin the margin
+     * @return the expanded box
+     */
+    public AABB expand(double margin) {
+        return new AABB(minX - margin, minY - margin, minZ - margin, maxX + margin, maxY + margin, maxZ + margin);
+    }
+
+    /**
+     * checks whether the box overlaps with another box (touching boxes overlap)
+     *
+     * @param other the other box
+     * @return true if the boxes overlap
+     */
+    public boolean overlaps(AABB other) {
+        return minX <= other.maxX && maxX >= other.minX && minY <= other.maxY && maxY >= other.minY
+                && minZ <= other.maxZ && maxZ >= other.minZ;
+    }
+
+    /**
+     * checks whether a point is inside the box (or on its surface)
+     *
+     * @param point the point
+     * @return true if the point is inside the box
+     */
+    public boolean contains(Point point) {
+        double x = point.getX(), y = point.getY(), z = point.getZ();
+        return x >= minX && x <= maxX && y >= minY && y <= maxY && z >= minZ && z <= maxZ;
+    }
+
+    /**
+     * finds the distance along a ray to the point where it enters the box, by the slab test - the ray range inside
+     * the box is the intersection of its ranges between the two planes of the box on each axis.<br>
+     * A ray parallel to an axis gets an infinite (or NaN, when its head is on a box plane) range on it, and the
+     * comparisons ignore NaN values, so no special cases are needed.
+     *
+     * @param ray         the ray
+     * @param maxDistance the maximum distance from the ray head
+     * @return the entry distance - 0 if the ray head is inside the box, or -1 if the ray misses the box within the
+     * maximum distance
+     */
+    public double entryDistance(Ray ray, double maxDistance) {
+        Point head = ray.getHead();
+        Vector dir = ray.getDirection();
+        double near = 0;
+        double far = maxDistance;
+
+        double t1 = (minX - head.getX()) / dir.getX();
+        double t2 = (maxX - head.getX()) / dir.getX();
+        if (t1 > t2) { double t = t1; t1 = t2; t2 = t; }
+        if (t1 > near) near = t1;
+        if (t2 < far) far = t2;
+
+        t1 = (minY - head.getY()) / dir.getY();
+        t2 = (maxY - head.getY()) / dir.getY();
+        if (t1 > t2) { double t = t1; t1 = t2; t2 = t; }
+        if (t1 > near) near = t1;
+        if (t2 < far) far = t2;
+
+        t1 = (minZ - head.getZ()) / dir.getZ();
+        t2 = (maxZ - head.getZ()) / dir.getZ();
+        if (t1 > t2) { double t = t1; t1 = t2; t2 = t; }
+        if (t1 > near) near = t1;
+        if (t2 < far) far = t2;
+
+        return near <= far ? near : -1;
+    }
+
+    /**
+     * checks whether a ray intersects the box closer than a maximum distance
+     *
+     * @param ray         the ray
+     * @param maxDistance the maximum distance from the ray head
+     * @return true if the ray intersects the box
+     */
+    public boolean intersects(Ray ray, double maxDistance) {
+        return entryDistance(ray, maxDistance) >= 0;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof AABB box)) return false;
+        return minX == box.minX && minY == box.minY && minZ == box.minZ
+                && maxX == box.maxX && maxY == box.maxY && maxZ == box.maxZ;
+    }
+
+    @Override
+    public int hashCode() {
+        int result = Double.hashCode(minX);
+        result = 31 * result + Double.hashCode(minY);
+        result = 31 * result + Double.hashCode(minZ);
+        result = 31 * result + Double.hashCode(maxX);
+        result = 31 * result + Double.hashCode(maxY);
+        return 31 * result + Double.hashCode(maxZ);
+    }
+
+    @Override
+    public String toString() {
+        return "AABB{" + "min=(" + minX + ", " + minY + ", " + minZ + "), max=(" + maxX + ", " + maxY + ", " + maxZ
+                + ")}";
+    }
+}
@@ -0,0 +1,568 @@
+package geometries;
+
+import primitives.Ray;
+
+import java.io.Serial;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * BVH class represents a bounding volume hierarchy over a collection of geometries in 3D Cartesian coordinate system.
+ * <p>
+ * The hierarchy is built top-down with the binned surface area heuristic (SAH) and flattened into primitive arrays
+ * in depth-first order, so the first child of an inner node is always the node right after it and only the index of
+ * the second child has to be stored. Geometries without a boundary (planes, tubes) can't be placed in the hierarchy,
+ * therefore they are kept aside and tested against every ray.
+ */
+public class BVH extends Intersectable {
+    /**
+     * maximum amount of primitives that a leaf can hold
+     */
+    private static final int MAX_LEAF_SIZE = 4;
+    /**
+     * amount of bins used to evaluate the split candidates on each axis
+     */
+    private static final int BINS = 12;
+    /**
+     * cost of testing a ray against a node box relative to the cost of testing a primitive
+     */
+    private static final double TRAVERSAL_COST = 0.125;
+    /**
+     * maximum amount of primitives of a node whose bins are filled by a single thread
+     */
+    private static final int PARALLEL_BINNING_SIZE = 4096;
+
+    /**
+     * the bounded primitives, ordered so that the primitives of each leaf are contiguous
+     */
+    private final Intersectable[] primitives;
+    /**
+     * the primitives without a boundary, they are tested against every ray
+     */
+    private final Intersectable[] unbounded;
+    /**
+     * node boxes, 6 values per node: minX, minY, minZ, maxX, maxY, maxZ
+     */
+    private final double[] bounds;
+    /**
+     * node data, 2 values per node:<br>
+     * leaf - index of its first primitive and the amount of its primitives<br>
+     * inner node - index of its second child and -(split axis + 1)
+     */
+    private final int[] nodes;
+    /**
+     * the amount of nodes in the hierarchy
+     */
+    private int nodeCount = 0;
+    /**
+     * the depth of the hierarchy, used for sizing the traversal stack
+     */
+    private int depth = 0;
+    /**
+     * the traversal stack of each thread, sized by the depth of the hierarchy, so the traversals don't allocate
+     */
+    private final ThreadLocal<int[]> stacks;
+
+    /**
+     * BVH constructor, builds the hierarchy over all the geometries of the collection (nested collections are
+     * flattened)
+     *
+     * @param geometries the geometries to build the hierarchy over
+     */
+    public BVH(Geometries geometries) {
+        List<Intersectable> bounded = new LinkedList<>();
+        List<Intersectable> infinite = new LinkedList<>();
+        flatten(geometries, bounded, infinite);
+        this.unbounded = infinite.toArray(new Intersectable[0]);
+
+        int size = bounded.size();
+        Intersectable[] source = bounded.toArray(new Intersectable[0]);
+        double[] primBounds = new double[6 * size];
+        double[] centroids = new double[3 * size];
+        int[] order = new int[size];
+        for (int i = 0; i < size; i++) {
+            AABB b = source[i].boundary;
+            for (int axis = 0; axis < 3; axis++) {
+                primBounds[6 * i + axis] = b.min(axis);
+                primBounds[6 * i + axis + 3] = b.max(axis);
+                centroids[3 * i + axis] = (b.min(axis) + b.max(axis)) / 2d;
+            }
+            order[i] = i;
+        }
+
+        int maxNodes = size == 0 ? 0 : 2 * size - 1;
+        this.bounds = new double[6 * maxNodes];
+        this.nodes = new int[2 * maxNodes];
+        if (size > 0)
+            build(primBounds, centroids, order, 0, size, 1);
+
+        this.primitives = new Intersectable[size];
+        for (int i = 0; i < size; i++)
+            this.primitives[i] = source[order[i]];
+        this.boundary = hierarchyBoundary();
+        int stackSize = depth;
+        this.stacks = ThreadLocal.withInitial(() -> new int[stackSize]);
+    }
+
+    /**
+     * the amount of nodes in the hierarchy
+     *
+     * @return the amount of nodes
+     */
+    public int getNodeCount() {
+        return nodeCount;
+    }
+
+    /**
+     * the depth of the hierarchy
+     *
+     * @return the depth
+     */
+    public int getDepth() {
+        return depth;
+    }
+
+    /**
+     * the approximate memory of the hierarchy arrays - 8 bytes per double and per reference, 4 bytes per int
+     *
+     * @return the memory in bytes
+     */
+    public long getMemory() {
+        return 8L * (bounds.length + primitives.length + unbounded.length) + 4L * nodes.length;
+    }
+
+    /**
+     * collects the primitives of a collection of geometries, splitting them by whether they have a boundary
+     *
+     * @param geometries the collection to flatten
+     * @param bounded    the list to collect the primitives with a boundary into
+     * @param infinite   the list to collect the primitives without a boundary into
+     */
+    private static void flatten(Geometries geometries, List<Intersectable> bounded, List<Intersectable> infinite) {
+        for (Intersectable geometry : geometries.getGeometries()) {
+            if (geometry instanceof Geometries inner)
+                flatten(inner, bounded, infinite);
+            else if (geometry.boundary == null)
+                infinite.add(geometry);
+            else
+                bounded.add(geometry);
+        }
+    }
+
+    /**
+     * builds a node over a range of primitives and recursively its children
+     *
+     * @param primBounds the boxes of the primitives
+     * @param centroids  the centers of the boxes of the primitives
+     * @param order      the primitives indexes, reordered in place by the build
+     * @param start      the first index (in order) of the node range
+     * @param end        the index (in order) after the last one of the node range
+     * @param level      the depth of the node in the hierarchy
+     * @return the index of the node
+     */
+    private int build(double[] primBounds, double[] centroids, int[] order, int start, int end, int level) {
+        int node = nodeCount++;
+        if (level > depth) depth = level;
+
+        // node box and the box of the primitives centers
+        double[] centroidBounds = emptyBox();
+        setEmpty(bounds, node);
+        for (int i = start; i < end; i++) {
+            grow(bounds, node, primBounds, order[i]);
+            for (int axis = 0; axis < 3; axis++) {
+                double c = centroids[3 * order[i] + axis];
+                if (c < centroidBounds[axis]) centroidBounds[axis] = c;
+                if (c > centroidBounds[axis + 3]) centroidBounds[axis + 3] = c;
+            }
+        }
+
+        int count = end - start;
+        int bestAxis = -1;
+        int bestSplit = 0;
+        double bestCost = Double.POSITIVE_INFINITY;
+        if (count > 1) {
+            // evaluate the SAH over the bins of every axis, the bins of a large node are filled in parallel
+            Bins bins = new Bins(primBounds, centroids, centroidBounds, order, start, end);
+            bins = count > PARALLEL_BINNING_SIZE ? ForkJoinPool.commonPool().invoke(bins) : bins.compute();
+            double[] rightAreas = new double[BINS];
+            int[] rightCounts = new int[BINS];
+            for (int axis = 0; axis < 3; axis++) {
+                if (centroidBounds[axis + 3] - centroidBounds[axis] <= 0) continue;
+                // sweep from the right to know the area and count right of every split
+                double[] box = emptyBox();
+                int n = 0;
+                for (int b = BINS - 1; b > 0; b--) {
+                    n += bins.counts[axis * BINS + b];
+                    merge(box, bins.bounds, axis * BINS + b);
+                    rightCounts[b] = n;
+                    rightAreas[b] = area(box, 0);
+                }
+                // sweep from the left and evaluate every split
+                box = emptyBox();
+                n = 0;
+                for (int b = 0; b < BINS - 1; b++) {
+                    n += bins.counts[axis * BINS + b];
+                    merge(box, bins.bounds, axis * BINS + b);
+                    if (n == 0 || rightCounts[b + 1] == 0) continue;
+                    double cost = n * area(box, 0) + rightCounts[b + 1] * rightAreas[b + 1];
+                    if (cost < bestCost) {
+                        bestCost = cost;
+                        bestAxis = axis;
+                        bestSplit = b + 1;
+                    }
+                }
+            }
+        }
+
+        double nodeArea = area(bounds, node);
+        double splitCost = nodeArea > 0 ? TRAVERSAL_COST + bestCost / nodeArea : bestCost;
+        // a leaf is made when no split is possible or when a small node is not worth splitting
+        if (bestAxis < 0 || (count <= MAX_LEAF_SIZE && count <= splitCost)) {
+            nodes[2 * node] = start;
+            nodes[2 * node + 1] = count;
+            return node;
+        }
+
+        // partition the range by the chosen split
+        double min = centroidBounds[bestAxis];
+        double extent = centroidBounds[bestAxis + 3] - min;
+        int mid = start;
+        for (int i = start; i < end; i++) {
+            if (bin(centroids[3 * order[i] + bestAxis], min, extent) < bestSplit) {
+                int temp = order[i];
+                order[i] = order[mid];
+                order[mid++] = temp;
+            }
+        }
+
+        build(primBounds, centroids, order, start, mid, level + 1);
+        nodes[2 * node] = build(primBounds, centroids, order, mid, end, level + 1);
+        nodes[2 * node + 1] = -(bestAxis + 1);
+        return node;
+    }
+
+    /**
+     * finds the bin of a value
+     *
+     * @param value  the value
+     * @param min    the minimum of the binned range
+     * @param extent the size of the binned range
+     * @return the bin index
+     */
+    private static int bin(double value, double min, double extent) {
+        int b = (int) (BINS * (value - min) / extent);
+        return b < BINS ? b : BINS - 1;
+    }
+
+    /**
+     * creates a box that contains nothing
+     *
+     * @return the empty box
+     */
+    private static double[] emptyBox() {
+        double[] box = new double[6];
+        setEmpty(box, 0);
+        return box;
+    }
+
+    /**
+     * resets a box in an array of boxes to contain nothing
+     *
+     * @param boxes the array of boxes
+     * @param index the index of the box
+     */
+    private static void setEmpty(double[] boxes, int index) {
+        for (int axis = 0; axis < 3; axis++) {
+            boxes[6 * index + axis] = Double.POSITIVE_INFINITY;
+            boxes[6 * index + axis + 3] = Double.NEGATIVE_INFINITY;
+        }
+    }
+
+    /**
+     * grows a box in an array of boxes to contain another box
+     *
+     * @param boxes  the array of the box to grow
+     * @param index  the index of the box to grow
+     * @param others the array of the contained box
+     * @param other  the index of the contained box
+     */
+    private static void grow(double[] boxes, int index, double[] others, int other) {
+        for (int axis = 0; axis < 3; axis++) {
+            if (others[6 * other + axis] < boxes[6 * index + axis])
+                boxes[6 * index + axis] = others[6 * other + axis];
+            if (others[6 * other + axis + 3] > boxes[6 * index + axis + 3])
+                boxes[6 * index + axis + 3] = others[6 * other + axis + 3];
+        }
+    }
+
+    /**
+     * grows a single box to contain a box of an array
+     *
+     * @param box    the box to grow
+     * @param others the array of the contained box
+     * @param other  the index of the contained box
+     */
+    private static void merge(double[] box, double[] others, int other) {
+        grow(box, 0, others, other);
+    }
+
+    /**
+     * calculates the surface area of a box
+     *
+     * @param boxes the array of boxes
+     * @param index the index of the box
+     * @return the surface area, 0 for an empty box
+     */
+    private static double area(double[] boxes, int index) {
+        double dx = boxes[6 * index + 3] - boxes[6 * index];
+        double dy = boxes[6 * index + 4] - boxes[6 * index + 1];
+        double dz = boxes[6 * index + 5] - boxes[6 * index + 2];
+        if (dx < 0 || dy < 0 || dz < 0) return 0;
+        return 2 * (dx * dy + dy * dz + dz * dx);
+    }
+
+    /**
+     * checks whether a ray hits a node box before a given distance (slab test)
+     *
+     * @param node        the node index
+     * @param ox          the ray head x coordinate
+     * @param oy          the ray head y coordinate
+     * @param oz          the ray head z coordinate
+     * @param ix          the inverse of the ray direction x coordinate
+     * @param iy          the inverse of the ray direction y coordinate
+     * @param iz          the inverse of the ray direction z coordinate
+     * @param maxDistance the maximum distance from the ray head
+     * @return true if the ray hits the box
+     */
+    private boolean hitsBox(int node, double ox, double oy, double oz, double ix, double iy, double iz,
+                            double maxDistance) {
+        int b = 6 * node;
+        double tNear = 0;
+        double tFar = maxDistance;
+        // NaN (ray on a parallel slab plane) fails all the comparisons and doesn't restrict the range
+        double t1 = (bounds[b] - ox) * ix;
+        double t2 = (bounds[b + 3] - ox) * ix;
+        if (t1 > t2) { double temp = t1; t1 = t2; t2 = temp; }
+        if (t1 > tNear) tNear = t1;
+        if (t2 < tFar) tFar = t2;
+        if (tNear > tFar) return false;
+        t1 = (bounds[b + 1] - oy) * iy;
+        t2 = (bounds[b + 4] - oy) * iy;
+        if (t1 > t2) { double temp = t1; t1 = t2; t2 = temp; }
+        if (t1 > tNear) tNear = t1;
+        if (t2 < tFar) tFar = t2;
+        if (tNear > tFar) return false;
+        t1 = (bounds[b + 2] - oz) * iz;
+        t2 = (bounds[b + 5] - oz) * iz;
+        if (t1 > t2) { double temp = t1; t1 = t2; t2 = temp; }
+        if (t1 > tNear) tNear = t1;
+        if (t2 < tFar) tFar = t2;
+        return tNear <= tFar;
+    }
+
+    @Override
+    protected List<GeoPoint> findGeoIntersectionsHelper(Ray ray, double maxDistance) {
+        List<GeoPoint> intersections = null;
+        for (Intersectable geometry : unbounded)
+            intersections = addAll(intersections, geometry.findGeoIntersections(ray, maxDistance));
+        if (nodeCount == 0) return intersections;
+
+        double ox = ray.getHead().getX(), oy = ray.getHead().getY(), oz = ray.getHead().getZ();
+        double ix = 1 / ray.getDirection().getX(), iy = 1 / ray.getDirection().getY(), iz = 1 / ray.getDirection().getZ();
+        int[] stack = stacks.get();
+        int top = 0;
+        int node = 0;
+        while (true) {
+            if (hitsBox(node, ox, oy, oz, ix, iy, iz, maxDistance)) {
+                int count = nodes[2 * node + 1];
+                if (count < 0) { // inner node - visit the first child now and the second one later
+                    stack[top++] = nodes[2 * node];
+                    ++node;
+                    continue;
+                }
+                int first = nodes[2 * node];
+                for (int i = first; i < first + count; i++)
+                    intersections = addAll(intersections, primitives[i].findGeoIntersections(ray, maxDistance));
+            }
+            if (top == 0) return intersections;
+            node = stack[--top];
+        }
+    }
+
+    @Override
+    public boolean findClosestHit(Ray ray, HitRecord hit) {
+        boolean found = false;
+        hit.tests += unbounded.length;
+        for (Intersectable geometry : unbounded)
+            if (geometry.findClosestHit(ray, hit))
+                found = true;
+        if (nodeCount == 0) return found;
+
+        double ox = ray.getHead().getX(), oy = ray.getHead().getY(), oz = ray.getHead().getZ();
+        double ix = 1 / ray.getDirection().getX(), iy = 1 / ray.getDirection().getY(), iz = 1 / ray.getDirection().getZ();
+        int[] stack = stacks.get();
+        int top = 0;
+        int node = 0;
+        while (true) {
+            // the boxes are tested against the closest intersection found so far, so farther subtrees are skipped
+            if (hitsBox(node, ox, oy, oz, ix, iy, iz, hit.t)) {
+                int count = nodes[2 * node + 1];
+                if (count < 0) {
+                    // inner node - visit first the child that is nearer along the split axis
+                    int axis = -count - 1;
+                    double inverse = axis == 0 ? ix : axis == 1 ? iy : iz;
+                    if (inverse < 0) {
+                        stack[top++] = node + 1;
+                        node = nodes[2 * node];
+                    } else {
+                        stack[top++] = nodes[2 * node];
+                        ++node;
+                    }
+                    continue;
+                }
+                int first = nodes[2 * node];
+                hit.tests += count;
+                for (int i = first; i < first + count; i++)
+                    if (primitives[i].findClosestHit(ray, hit))
+                        found = true;
+            }
+            if (top == 0) return found;
+            node = stack[--top];
+        }
+    }
+
+    @Override
+    public boolean findTransparency(Ray ray, double maxDistance, TransparencyRecord transparency) {
+        for (Intersectable geometry : unbounded)
+            if (geometry.findTransparency(ray, maxDistance, transparency))
+                return true;
+        if (nodeCount == 0) return false;
+
+        double ox = ray.getHead().getX(), oy = ray.getHead().getY(), oz = ray.getHead().getZ();
+        double ix = 1 / ray.getDirection().getX(), iy = 1 / ray.getDirection().getY(), iz = 1 / ray.getDirection().getZ();
+        int[] stack = stacks.get();
+        int top = 0;
+        int node = 0;
+        while (true) {
+            if (hitsBox(node, ox, oy, oz, ix, iy, iz, maxDistance)) {
+                int count = nodes[2 * node + 1];
+                if (count < 0) { // inner node - any order will do, all the intersections are needed unless blocked
+                    stack[top++] = nodes[2 * node];
+                    ++node;
+                    continue;
+                }
+                int first = nodes[2 * node];
+                for (int i = first; i < first + count; i++)
+                    if (primitives[i].findTransparency(ray, maxDistance, transparency))
+                        return true;
+            }
+            if (top == 0) return false;
+            node = stack[--top];
+        }
+    }
+
+    /**
+     * adds a list of intersections to the accumulated intersections
+     *
+     * @param intersections the accumulated intersections, may be null
+     * @param found         the intersections to add, may be null
+     * @return the accumulated intersections
+     */
+    private static List<GeoPoint> addAll(List<GeoPoint> intersections, List<GeoPoint> found) {
+        if (found == null) return intersections;
+        if (intersections == null) return new LinkedList<>(found);
+        intersections.addAll(found);
+        return intersections;
+    }
+
+    @Override
+    protected AABB calcBoundary() {
+        return hierarchyBoundary();
+    }
+
+    /**
+     * calculates the boundary of the hierarchy - the box of its root node
+     *
+     * @return the boundary, null if the hierarchy is empty or has unbounded primitives
+     */
+    private AABB hierarchyBoundary() {
+        //the unbounded primitives make the whole hierarchy unbounded
+        if (nodeCount == 0 || unbounded.length > 0) return null;
+        return new AABB(bounds[0], bounds[1], bounds[2], bounds[3], bounds[4], bounds[5]);
+    }
+
+    /**
+     * Bins class holds the bins of the three axes of a node - the amount of primitives whose centers fall in each
+     * bin, and the box of their boxes. The bins of a large node are filled by fork/join: the range of primitives is
+     * split in halves until it's small enough for a single thread, each part fills bins of its own, and the bins of
+     * the two halves are merged when both are done.
+     */
+    private static class Bins extends RecursiveTask<Bins> {
+        @Serial
+        private static final long serialVersionUID = 1L;
+        /**
+         * amount of primitives in each bin, BINS values per axis
+         */
+        final int[] counts = new int[3 * BINS];
+        /**
+         * box of each bin, BINS boxes per axis
+         */
+        final double[] bounds = new double[6 * 3 * BINS];
+        private final double[] primBounds;
+        private final double[] centroids;
+        private final double[] centroidBounds;
+        private final int[] order;
+        private final int start;
+        private final int end;
+
+        /**
+         * Bins constructor, the bins are empty until computed
+         *
+         * @param primBounds     the boxes of the primitives
+         * @param centroids      the centers of the boxes of the primitives
+         * @param centroidBounds the box of the centers of the node primitives
+         * @param order          the primitives indexes
+         * @param start          the first index (in order) of the binned range
+         * @param end            the index (in order) after the last one of the binned range
+         */
+        Bins(double[] primBounds, double[] centroids, double[] centroidBounds, int[] order, int start, int end) {
+            this.primBounds = primBounds;
+            this.centroids = centroids;
+            this.centroidBounds = centroidBounds;
+            this.order = order;
+            this.start = start;
+            this.end = end;
+            for (int b = 0; b < 3 * BINS; b++) setEmpty(bounds, b);
+        }
+
+        @Override
+        protected Bins compute() {
+            if (end - start > PARALLEL_BINNING_SIZE) {
+                int mid = (start + end) >>> 1;
+                Bins left = new Bins(primBounds, centroids, centroidBounds, order, start, mid);
+                left.fork();
+                Bins right = new Bins(primBounds, centroids, centroidBounds, order, mid, end).compute();
+                left.join();
+                for (int b = 0; b < 3 * BINS; b++) {
+                    counts[b] = left.counts[b] + right.counts[b];
+                    grow(bounds, b, left.bounds, b);
+                    grow(bounds, b, right.bounds, b);
+                }
+                return this;
+            }
+            for (int axis = 0; axis < 3; axis++) {
+                double min = centroidBounds[axis];
+                double extent = centroidBounds[axis + 3] - min;
+                if (extent <= 0) continue;
+                for (int i = start; i < end; i++) {
+                    int b = axis * BINS + bin(centroids[3 * order[i] + axis], min, extent);
+                    counts[b]++;
+                    grow(bounds, b, primBounds, order[i]);
+                }
+            }
+            return this;
+        }
+    }
+}
@@ -6,6 +6,7 @@ import primitives.Vector;
 
 import java.util.List;
 
+import static primitives.Util.alignZero;
 import static primitives.Util.isZero;
 
 /**
@@ -96,6 +97,65 @@ public class Cylinder extends Tube {
         return d1 < d2 ? List.of(temp.get(0), gpBase) : List.of(gpBase, temp.get(0));
     }
 
+    @Override
+    public boolean findClosestHit(Ray ray, HitRecord hit) {
+        //the casing between the bases
+        boolean found = super.findClosestHit(ray, hit);
+        for (int i = 0; i < 2; ++i) {
+            double distance = calcBaseDistance(ray, i == 0 ? 0 : height);
+            if (distance > 0 && alignZero(distance - hit.t) < 0) {
+                hit.set(distance, this);
+                found = true;
+            }
+        }
+        return found;
+    }
+
+    @Override
+    protected int countIntersections(Ray ray, double maxDistance) {
+        int count = super.countIntersections(ray, maxDistance);
+        for (int i = 0; i < 2; ++i) {
+            double distance = calcBaseDistance(ray, i == 0 ? 0 : height);
+            if (distance > 0 && alignZero(distance - maxDistance) < 0) ++count;
+        }
+        return count;
+    }
+
+    /**
+     * calculates the distance of the intersection of a ray line with a base, without creating any vectors
+     *
+     * @param ray        the ray
+     * @param baseHeight the height of the base along the axis - 0 or the cylinder height
+     * @return the distance, which may be negative (behind the ray head), NaN if the ray is parallel to the bases or
+     * the ray line doesn't cross the base inside its circle
+     */
+    private double calcBaseDistance(Ray ray, double baseHeight) {
+        Vector dir = axis.getDirection();
+        Vector rayDir = ray.getDirection();
+        double dn = alignZero(rayDir.dotProduct(dir));
+        if (dn == 0) return Double.NaN;
+        Point head = ray.getHead();
+        Point base = axis.getHead();
+        double px = head.getX() - base.getX(), py = head.getY() - base.getY(), pz = head.getZ() - base.getZ();
+        //the position of the ray head along the axis
+        double headHeight = px * dir.getX() + py * dir.getY() + pz * dir.getZ();
+        double distance = alignZero((baseHeight - headHeight) / dn);
+        double x = px + distance * rayDir.getX(), y = py + distance * rayDir.getY(), z = pz + distance * rayDir.getZ();
+        return alignZero(x * x + y * y + z * z - baseHeight * baseHeight - radius * radius) < 0 ? distance : Double.NaN;
+    }
+
+    @Override
+    protected boolean onCasing(Ray ray, double t) {
+        Point base = axis.getHead();
+        Vector dir = axis.getDirection();
+        Point head = ray.getHead();
+        Vector rayDir = ray.getDirection();
+        double along = (head.getX() + t * rayDir.getX() - base.getX()) * dir.getX()
+                + (head.getY() + t * rayDir.getY() - base.getY()) * dir.getY()
+                + (head.getZ() + t * rayDir.getZ() - base.getZ()) * dir.getZ();
+        return alignZero(along) > 0 && alignZero(along - height) < 0;
+    }
+
     private boolean onCylinder(GeoPoint geoPoint, Point b1, Point b2, Vector dir) {
         return geoPoint.point.subtract(b1).dotProduct(dir) > 0 &&
                 geoPoint.point.subtract(b2).dotProduct(dir.scale(-1)) > 0;
@@ -108,18 +168,55 @@ public class Cylinder extends Tube {
 
 
     @Override
-    public int[][] calcBoundary() {
+    public AABB calcBoundary() {
         Point firstBaseCenter = axis.getHead();
         Point secondBaseCenter = axis.getPoint(height);
-
-        return new int[][]{minMax(firstBaseCenter.getX(),secondBaseCenter.getX()),
-                minMax(firstBaseCenter.getY(), secondBaseCenter.getY()),
-                minMax(firstBaseCenter.getZ(), secondBaseCenter.getZ())};
+        Vector dir = axis.getDirection();
+        //the bases are discs, on each axis a base extends from its center by radius * sin of the angle between the
+        //cylinder axis and that axis
+        double ex = radius * Math.sqrt(Math.max(0, 1 - dir.getX() * dir.getX()));
+        double ey = radius * Math.sqrt(Math.max(0, 1 - dir.getY() * dir.getY()));
+        double ez = radius * Math.sqrt(Math.max(0, 1 - dir.getZ() * dir.getZ()));
+
+        return new AABB(Math.min(firstBaseCenter.getX(), secondBaseCenter.getX()) - ex,
+                Math.min(firstBaseCenter.getY(), secondBaseCenter.getY()) - ey,
+                Math.min(firstBaseCenter.getZ(), secondBaseCenter.getZ()) - ez,
+                Math.max(firstBaseCenter.getX(), secondBaseCenter.getX()) + ex,
+                Math.max(firstBaseCenter.getY(), secondBaseCenter.getY()) + ey,
+                Math.max(firstBaseCenter.getZ(), secondBaseCenter.getZ()) + ez);
     }
 
-    private int[] minMax(double first,double second){
-        return first < second? new int[]{(int)Math.floor(first-radius),(int)Math.ceil(second+radius)}:
-                new int[]{(int)Math.floor(second-radius),(int)Math.ceil(first+radius)};
+    /**
+     * checks whether the capsule around the cylinder - its axis segment swept by the radius - overlaps with a box.
+     * The squared distance between the box and a point moving along the segment is convex, so its minimum is found
+     * by a ternary search.
+     */
+    @Override
+    protected boolean overlaps(AABB box) {
+        double low = 0, high = height;
+        for (int i = 0; i < 50; ++i) {
+            double t1 = low + (high - low) / 3;
+            double t2 = high - (high - low) / 3;
+            if (distanceSquared(box, t1) < distanceSquared(box, t2)) high = t2;
+            else low = t1;
+        }
+        return distanceSquared(box, (low + high) / 2) <= radius * radius;
     }
 
+    /**
+     * the squared distance between a box and a point on the cylinder axis
+     *
+     * @param box the box
+     * @param t   the distance of the point from the first base center
+     * @return the squared distance
+     */
+    private double distanceSquared(AABB box, double t) {
+        Point head = axis.getHead();
+        Vector dir = axis.getDirection();
+        double x = head.getX() + t * dir.getX(), y = head.getY() + t * dir.getY(), z = head.getZ() + t * dir.getZ();
+        double dx = Math.max(0, Math.max(box.minX - x, x - box.maxX));
+        double dy = Math.max(0, Math.max(box.minY - y, y - box.maxY));
+        double dz = Math.max(0, Math.max(box.minZ - z, z - box.maxZ));
+        return dx * dx + dy * dy + dz * dz;
+    }
 }
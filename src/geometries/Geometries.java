@@ -1,19 +1,27 @@
 package geometries;
 
-import primitives.Double3;
 import primitives.Point;
 import primitives.Ray;
 import scene.Scene;
 
 import java.util.ArrayList;
-import java.util.HashMap;
+import java.util.Arrays;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.stream.IntStream;
 /**
  * Geometries class represents a collection of geometries in 3D Cartesian coordinate system
  */
 public class Geometries extends Intersectable{
     private final List<Intersectable> Geometry = new LinkedList<>();
+    /**
+     * the margin of the voxel boxes in the overlap tests, relative to the voxel size
+     */
+    private static final double OVERLAP_MARGIN = 1e-6;
+    /**
+     * the minimum number of geometric entities whose voxels are found in parallel
+     */
+    private static final int PARALLEL_BUILD_SIZE = 1024;
 
     Geometries(){}
 
@@ -22,13 +30,28 @@ public class Geometries extends Intersectable{
     }
 
     public void add(Intersectable... geometries){
-        if(geometries.length>0)Geometry.addAll(List.of(geometries));
-
+        for (Intersectable geometry : geometries) {
+            //the collection is bounded only as long as all its entities are bounded
+            boundary = Geometry.isEmpty() ? geometry.boundary
+                    : boundary == null || geometry.boundary == null ? null : boundary.union(geometry.boundary);
+            Geometry.add(geometry);
+        }
     }
+    /**
+     * geometries getter
+     *
+     * @return the geometric entities of the collection
+     */
+    List<Intersectable> getGeometries() {
+        return Geometry;
+    }
+
     @Override
     public List<GeoPoint> findGeoIntersectionsHelper(Ray ray, double maxDistance) {
         List<GeoPoint> intersections = null;
         for (var geometry : Geometry) {
+            //the exact intersection is calculated only for the entities whose box is on the ray way
+            if (geometry.boundary != null && !geometry.boundary.intersects(ray, maxDistance)) continue;
             List<GeoPoint> returnList = geometry.findGeoIntersections(ray, maxDistance);
             if (returnList != null) { //if it's not null (there are intersections)
                 if (intersections == null)
@@ -41,76 +64,192 @@ public class Geometries extends Intersectable{
     }
 
     @Override
-    public int[][] calcBoundary() {
-        double minX = Double.POSITIVE_INFINITY;
-        double maxX = Double.NEGATIVE_INFINITY;
-        double minY = Double.POSITIVE_INFINITY;
-        double maxY = Double.NEGATIVE_INFINITY;
-        double minZ = Double.POSITIVE_INFINITY;
-        double maxZ = Double.NEGATIVE_INFINITY;
-        for (var geometry : Geometry) {
-            if(geometry.boundary==null) {
-                continue;
+    public boolean findClosestHit(Ray ray, HitRecord hit) {
+        boolean found = false;
+        for (var geometry : Geometry)
+            if (geometry.boundary == null || geometry.boundary.intersects(ray, hit.t)) {
+                if (!(geometry instanceof Geometries)) ++hit.tests;
+                if (geometry.findClosestHit(ray, hit))
+                    found = true;
             }
-                if (geometry.boundary[0][0] < minX)
-                    minX = geometry.boundary[0][0];
-
-            if (geometry.boundary[0][1] > maxX)
-                maxX = geometry.boundary[0][1];
-            if (geometry.boundary[1][0] < minY)
-                minY = geometry.boundary[1][0];
-            if (geometry.boundary[1][1] > maxY)
-                maxY = geometry.boundary[1][1];
-            if (geometry.boundary[2][0] < minZ)
-                minZ = geometry.boundary[2][0];
-            if (geometry.boundary[2][1] > maxZ)
-                maxZ = geometry.boundary[2][1];
-        }
-        return new int[][]{{(int) minX, (int) Math.ceil(maxX)},
-                {(int) minY, (int) Math.ceil(maxY)},
-                {(int) minZ, (int) Math.ceil(maxZ)}};
+        return found;
+    }
+
+    @Override
+    public boolean findTransparency(Ray ray, double maxDistance, TransparencyRecord transparency) {
+        for (var geometry : Geometry)
+            if ((geometry.boundary == null || geometry.boundary.intersects(ray, maxDistance))
+                    && geometry.findTransparency(ray, maxDistance, transparency))
+                return true;
+        return false;
     }
-    public Geometries remove(Geometry givenGeometry) {
-        Geometries list = new Geometries();
+
+    @Override
+    public AABB calcBoundary() {
+        AABB box = null;
         for (var geometry : Geometry) {
-            if (!geometry.equals(givenGeometry))
-                list.add(geometry);
+            if (geometry.boundary == null) return null;
+            box = box == null ? geometry.boundary : box.union(geometry.boundary);
         }
-        return list;
+        return box;
+    }
+
+    @Override
+    protected boolean overlaps(AABB box) {
+        for (var geometry : Geometry)
+            if (geometry.boundary == null || geometry.boundary.overlaps(box) && geometry.overlaps(box))
+                return true;
+        return false;
     }
 
     /**
-     * move over all geometric entities of a scene and return a hashmap of all the none empty voxels
+     * finds the bounding box of the bounded geometric entities of the collection, ignoring the unbounded ones
      *
-     * @param scene the scene
-     * @return the hash map of voxels
+     * @return the bounding box, null if there are no bounded entities
      */
-    public HashMap<Double3, Geometries> attachVoxel(Scene scene) {
-        HashMap<Double3, Geometries> voxels = new HashMap<>();
-        List<Double3> voxelIndexes;
-        int i = 0;
-        for (var geometry : Geometry) {
-            if(i==231){
-                int u = 5;
-            }
-            i++;
-            voxelIndexes = geometry.findVoxels(scene);
-            for (var index : voxelIndexes) {
-                if (!voxels.containsKey(index))//the voxel is already exists in thr map
-                    voxels.put(index, new Geometries(geometry));
-                else {
-                    voxels.get(index).add(geometry);
+    public AABB calcBoundedBoundary() {
+        AABB box = null;
+        for (var geometry : Geometry)
+            if (geometry.boundary != null)
+                box = box == null ? geometry.boundary : box.union(geometry.boundary);
+        return box;
+    }
+
+    /**
+     * move over all geometric entities of a scene and attach them to the voxels of the scene grid. The voxels are
+     * stored in a compressed layout - all the entities indexes of all the voxels in one array, voxel after voxel, and
+     * for each voxel the position of its first entity in that array.<br>
+     * In the hierarchical grid mode, each voxel with more entities than the scene maximum is divided to a sub grid of
+     * its own. The unbounded entities can't be attached to voxels, they are kept aside.
+     *
+     * @param scene the scene, its voxels arrays are set
+     */
+    public void attachVoxel(Scene scene) {
+        Intersectable[] entities = Geometry.toArray(new Intersectable[0]);
+        int[] all = new int[entities.length];
+        for (int i = 0; i < all.length; ++i) all[i] = i;
+        scene.unboundedGeometries = Geometry.stream().filter(geometry -> geometry.boundary == null)
+                .toArray(Intersectable[]::new);
+        AABB boundary = scene.getGridBoundary();
+        double[] origin = {boundary.minX, boundary.minY, boundary.minZ};
+        double[] edges = {scene.getXEdgeVoxel(), scene.getYEdgeVoxel(), scene.getZEdgeVoxel()};
+        int[] resolution = scene.getGridResolution();
+        int[][] grid = attachVoxel(entities, all, origin, edges, resolution);
+        scene.voxelsGeometries = entities;
+        scene.voxelsStart = grid[0];
+        scene.voxels = grid[1];
+
+        scene.subGrids = null;
+        if (scene.maxVoxelGeometries <= 0) return;
+        Scene.SubGrid[] subGrids = new Scene.SubGrid[grid[0].length - 1];
+        //the sub grids are independent, so they are built in parallel
+        IntStream.range(0, subGrids.length).parallel().forEach(v -> {
+            int count = grid[0][v + 1] - grid[0][v];
+            if (count <= scene.maxVoxelGeometries) return;
+            //the voxel indexes on the axes
+            int[] index = {v % resolution[0], v / resolution[0] % resolution[1], v / (resolution[0] * resolution[1])};
+            double[] subOrigin = new double[3];
+            for (int axis = 0; axis < 3; ++axis) subOrigin[axis] = origin[axis] + index[axis] * edges[axis];
+            int[] subResolution = Scene.calcResolution(count, edges, Scene.MAX_SUB_RESOLUTION);
+            double[] subEdges = new double[3];
+            for (int axis = 0; axis < 3; ++axis) subEdges[axis] = edges[axis] / subResolution[axis];
+            int[][] subGrid = attachVoxel(entities, Arrays.copyOfRange(grid[1], grid[0][v], grid[0][v + 1]),
+                    subOrigin, subEdges, subResolution);
+            subGrids[v] = new Scene.SubGrid(subOrigin, subEdges, subResolution, subGrid[0], subGrid[1]);
+        });
+        scene.subGrids = subGrids;
+    }
+
+    /**
+     * attaches geometric entities to the voxels of a grid, in two passes over the entities: the first counts the
+     * entities of each voxel, and the second places them.<br>
+     * The voxels of each entity are found by the overlap tests, which are the bulk of the work, so for many entities
+     * they are found in parallel (by the fork/join pool) into a list per entity. The counting and placing passes
+     * only go over these lists, in the entities order, so the result doesn't depend on the threads.<br>
+     * An entity whose boundary spans several voxels is attached only to the voxels it overlaps with, by its exact
+     * overlap test. The voxel boxes are slightly expanded, so an entity on the face between two voxels is attached
+     * to both of them in spite of rounding errors.
+     *
+     * @param entities   all the geometric entities
+     * @param indexes    the indexes of the entities to attach
+     * @param origin     the minimum corner of the grid
+     * @param edges      the size of the edges of a voxel on each axis
+     * @param resolution the number of voxels on each axis
+     * @return the position of the first entity of each voxel (with an extra last element), and the entities indexes
+     * of all the voxels
+     */
+    private static int[][] attachVoxel(Intersectable[] entities, int[] indexes, double[] origin, double[] edges,
+                                       int[] resolution) {
+        int[][] cells = new int[indexes.length][];
+        IntStream entitiesRange = IntStream.range(0, indexes.length);
+        if (indexes.length >= PARALLEL_BUILD_SIZE) entitiesRange = entitiesRange.parallel();
+        entitiesRange.forEach(i -> cells[i] = findCells(entities[indexes[i]], origin, edges, resolution));
+        //count the entities of each voxel - the count of voxel v is kept in voxelsStart[v + 1]
+        int[] voxelsStart = new int[resolution[0] * resolution[1] * resolution[2] + 1];
+        for (int[] entityCells : cells)
+            for (int v : entityCells)
+                ++voxelsStart[v + 1];
+        //the start of each voxel is the sum of the counts of the previous voxels
+        Arrays.parallelPrefix(voxelsStart, Integer::sum);
+        //place the entities, next[v] is the position of the next entity of voxel v
+        int[] voxels = new int[voxelsStart[voxelsStart.length - 1]];
+        int[] next = Arrays.copyOf(voxelsStart, voxelsStart.length - 1);
+        for (int i = 0; i < indexes.length; ++i)
+            for (int v : cells[i])
+                voxels[next[v]++] = indexes[i];
+        return new int[][]{voxelsStart, voxels};
+    }
+
+    /**
+     * finds the voxels of a grid that a geometric entity overlaps with
+     *
+     * @param entity     the geometric entity
+     * @param origin     the minimum corner of the grid
+     * @param edges      the size of the edges of a voxel on each axis
+     * @param resolution the number of voxels on each axis
+     * @return the voxels indexes, empty for an unbounded entity
+     */
+    private static int[] findCells(Intersectable entity, double[] origin, double[] edges, int[] resolution) {
+        int[] range = entity.findVoxels(origin, edges, resolution);
+        if (range == null) return new int[0];
+        int[] cells = new int[(range[1] - range[0] + 1) * (range[3] - range[2] + 1) * (range[5] - range[4] + 1)];
+        //an entity inside a single voxel surely overlaps with it
+        boolean single = cells.length == 1;
+        int count = 0;
+        for (int x = range[0]; x <= range[1]; ++x)
+            for (int y = range[2]; y <= range[3]; ++y)
+                for (int z = range[4]; z <= range[5]; ++z) {
+                    double minX = origin[0] + x * edges[0], minY = origin[1] + y * edges[1];
+                    double minZ = origin[2] + z * edges[2];
+                    AABB voxel = new AABB(minX, minY, minZ, minX + edges[0], minY + edges[1], minZ + edges[2])
+                            .expand(OVERLAP_MARGIN * Math.max(edges[0], Math.max(edges[1], edges[2])));
+                    if (single || entity.overlaps(voxel))
+                        cells[count++] = x + resolution[0] * (y + resolution[1] * z);
                 }
-            }
-        }
-        return voxels;
+        return count == cells.length ? cells : Arrays.copyOf(cells, count);
+    }
+
+    @Override
+    public void calcDerivedAttributes() {
+        for (var geometry : Geometry)
+            geometry.calcDerivedAttributes();
+        super.calcDerivedAttributes();
+    }
+
+    @Override
+    public int primitivesCount() {
+        int count = 0;
+        for (var geometry : Geometry)
+            count += geometry.primitivesCount();
+        return count;
     }
 
     /**
-     * boundary getter
-     * @return the matrix of the boundary
+     * the number of geometric entities in the collection (a nested collection is a single entity)
+     *
+     * @return the number of entities
      */
-    public int[][] getBoundary(){
-        return boundary;
+    public int size() {
+        return Geometry.size();
     }
 }
@@ -3,8 +3,11 @@ package geometries;
 import primitives.Color;
 import primitives.Material;
 import primitives.Point;
+import primitives.Ray;
 import primitives.Vector;
 
+import java.util.List;
+
 /**
  * Interface Geometry is the basic interface for all geometric objects
  */
@@ -53,5 +56,24 @@ public abstract class Geometry extends Intersectable{
         return this;
     }
 
+    @Override
+    public boolean findTransparency(Ray ray, double maxDistance, TransparencyRecord transparency) {
+        int count = countIntersections(ray, maxDistance);
+        return count > 0 && transparency.pass(material.kt, count);
+    }
+
+    /**
+     * counts the intersections of a ray with the geometry which are closer than a maximum distance. The geometries
+     * override it with a calculation that doesn't build the intersections list.
+     *
+     * @param ray         the ray
+     * @param maxDistance the maximum distance of an intersection from the ray head
+     * @return the number of intersections
+     */
+    protected int countIntersections(Ray ray, double maxDistance) {
+        List<GeoPoint> intersections = findGeoIntersectionsHelper(ray, maxDistance);
+        return intersections == null ? 0 : intersections.size();
+    }
+
 
 }
@@ -3,9 +3,7 @@ package geometries;
 import primitives.Double3;
 import primitives.Point;
 import primitives.Ray;
-import scene.Scene;
 
-import java.util.LinkedList;
 import java.util.List;
 
 /**
@@ -14,16 +12,17 @@ import java.util.List;
 public abstract class Intersectable {
 
     /**
-     * boundary of the entity represented by the array [x[min,max],y[min,max],z[min,max]]
+     * the bounding box of the entity, null if the entity is unbounded. It isn't written to the scene files, since it
+     * is derived from the entity attributes
      */
-    public int[][] boundary;
+    public transient AABB boundary;
 
     /**
-     * finds the boundary values of the geometric entity or a group of geometric entities
+     * finds the bounding box of the geometric entity or a group of geometric entities
      *
-     * @return the geometry boundary
+     * @return the geometry bounding box, null if it's unbounded
      */
-    protected abstract int[][] calcBoundary();
+    protected abstract AABB calcBoundary();
     /**
      * findIntersections function returns a list of intersection points of a ray with the geometry
      *
@@ -64,46 +63,113 @@ public abstract class Intersectable {
      */
     protected abstract List<GeoPoint> findGeoIntersectionsHelper(Ray ray,double distance);
 
+    /**
+     * finds the closest intersection of a ray with the geometry which is closer than the distance in the hit record,
+     * and if found - updates the record with it.<br>
+     * Unlike {@link #findGeoIntersections(Ray, double)} it doesn't build any list, therefore the geometries override
+     * it with an allocation free calculation. This default implementation is based on the intersections list.
+     *
+     * @param ray the ray that intersects the geometry
+     * @param hit the closest intersection found so far, its distance is the maximum distance for the search
+     * @return true if a closer intersection was found
+     */
+    public boolean findClosestHit(Ray ray, HitRecord hit) {
+        List<GeoPoint> intersections = findGeoIntersectionsHelper(ray, hit.t);
+        if (intersections == null) return false;
+        boolean found = false;
+        for (GeoPoint gp : intersections) {
+            double t = ray.getHead().distance(gp.point);
+            if (t < hit.t) {
+                hit.set(t, gp.geometry);
+                hit.point = gp.point;
+                found = true;
+            }
+        }
+        return found;
+    }
+
+    /**
+     * accumulates the transparency of the geometries between the head of a ray and a maximum distance into a
+     * transparency record - each intersection multiplies it by the kt of the intersected geometry material. The
+     * search stops as soon as the light is blocked, i.e. the accumulated transparency is below the minimum of the
+     * record, so an opaque geometry ends it at its first intersection.<br>
+     * This default implementation is based on the intersections list, the geometries override it without
+     * building any lists.
+     *
+     * @param ray          the shadow ray
+     * @param maxDistance  the distance of the light source from the ray head
+     * @param transparency the accumulated transparency
+     * @return true if the light is blocked
+     */
+    public boolean findTransparency(Ray ray, double maxDistance, TransparencyRecord transparency) {
+        List<GeoPoint> intersections = findGeoIntersectionsHelper(ray, maxDistance);
+        if (intersections == null) return false;
+        for (GeoPoint gp : intersections)
+            if (transparency.pass(gp.geometry.getMaterial().kt, 1))
+                return true;
+        return false;
+    }
+
     /**
      * boundary getter
      *
      * @return the boundary
      */
-    public int[][] getBoundary() {
+    public AABB getBoundary() {
         return boundary;
     }
 
 
     /**
-     * return the indexes of all voxels that the geometric entity intersects with
-     * @param scene the scene that we would use its voxels
-     * @return the indexes of the voxels intersected with this
+     * return the range of indexes of the voxels of a grid that the geometric entity intersects with
+     * @param origin     the minimum corner of the grid
+     * @param edges      the size of the edges of a voxel on each axis
+     * @param resolution the number of voxels on each axis
+     * @return the indexes range [xMin, xMax, yMin, yMax, zMin, zMax] (inclusive), null if the entity is unbounded
      */
-    protected List<Double3> findVoxels(Scene scene) {
-        List<Double3> indexes = new LinkedList<>();//since we won't remove any voxel but only add we will use linked list
-        double xEdgeVoxel=scene.getXEdgeVoxel();
-        double yEdgeVoxel=scene.getYEdgeVoxel();
-        double zEdgeVoxel=scene.getZEdgeVoxel();
-
+    protected int[] findVoxels(double[] origin, double[] edges, int[] resolution) {
         if(this.boundary==null){
-            return indexes;
+            return null;
         }
-
-        int xMinIndex = (int) ((this.boundary[0][0] - scene.geometries.boundary[0][0]) / xEdgeVoxel - 0.01);
-        int xMaxIndex = (int) ((this.boundary[0][1] - scene.geometries.boundary[0][0]) / xEdgeVoxel - 0.01);
-        int yMinIndex = (int) ((this.boundary[1][0] - scene.geometries.boundary[1][0]) / yEdgeVoxel - 0.01);
-        int yMaxIndex = (int) ((this.boundary[1][1] - scene.geometries.boundary[1][0]) / yEdgeVoxel - 0.01);
-        int zMinIndex = (int) ((this.boundary[2][0] - scene.geometries.boundary[2][0]) / zEdgeVoxel - 0.01);
-        int zMaxIndex = (int) ((this.boundary[2][1] - scene.geometries.boundary[2][0]) / zEdgeVoxel - 0.01);
-        //move over all the voxels in the range of indexes
-        for (int i = xMinIndex; i <= xMaxIndex; i++) {
-            for (int j = yMinIndex; j <= yMaxIndex; j++) {
-                for (int k = zMinIndex; k <= zMaxIndex; k++) {
-                    indexes.add(new Double3(i, j, k));
-                }
-            }
+        int[] range = new int[6];
+        for (int axis = 0; axis < 3; axis++) {
+            int minIndex = (int) Math.floor((this.boundary.min(axis) - origin[axis]) / edges[axis]);
+            int maxIndex = (int) Math.floor((this.boundary.max(axis) - origin[axis]) / edges[axis]);
+            //the indexes are clamped to the grid
+            range[2 * axis] = Math.max(minIndex, 0);
+            range[2 * axis + 1] = Math.min(maxIndex, resolution[axis] - 1);
         }
-        return indexes;
+        return range;
+    }
+
+    /**
+     * checks whether the geometric entity overlaps with a box - a voxel inside the entity boundary, so the entity
+     * should be attached to the voxel. The test may be conservative and answer true for an entity that only gets
+     * close to the box; this default implementation answers true for every box.
+     *
+     * @param box the box
+     * @return false if the entity surely doesn't overlap with the box
+     */
+    protected boolean overlaps(AABB box) {
+        return true;
+    }
+
+    /**
+     * calculates the attributes that are derived from the entity attributes, such as its boundary. They aren't
+     * written to the scene files, so they are calculated again after the entity is read from a file
+     */
+    public void calcDerivedAttributes() {
+        boundary = calcBoundary();
+    }
+
+    /**
+     * the number of the primitive geometric entities the entity is made of - the entities that rays are intersected
+     * with one by one
+     *
+     * @return 1 for a single geometric entity
+     */
+    public int primitivesCount() {
+        return 1;
     }
 
 
@@ -144,4 +210,147 @@ public abstract class Intersectable {
                     '}';
         }
     }
+
+    /**
+     * HitRecord class is a reusable record of the closest intersection found so far along a ray - the distance of
+     * the intersection from the ray head, its geometry and optionally the intersection point. One record is kept per
+     * thread and reset before each closest intersection search, so the search allocates nothing.
+     */
+    public static class HitRecord {
+        /**
+         * the distance of the closest intersection from the ray head, or the maximum distance if none was found
+         */
+        public double t = Double.POSITIVE_INFINITY;
+        /**
+         * the geometry of the closest intersection, null if none was found
+         */
+        public Geometry geometry = null;
+        /**
+         * the closest intersection point, null if it wasn't calculated yet
+         */
+        public Point point = null;
+        /**
+         * the amount of geometric entities the ray was intersected with in the search, counted by the collections
+         * of geometric entities (a mesh counts as one entity)
+         */
+        public int tests = 0;
+
+        /**
+         * prepares the record for a new search
+         *
+         * @param maxDistance the maximum distance of an intersection from the ray head
+         * @return the record itself
+         */
+        public HitRecord reset(double maxDistance) {
+            this.t = maxDistance;
+            this.geometry = null;
+            this.point = null;
+            this.tests = 0;
+            return this;
+        }
+
+        /**
+         * records a closer intersection, its point would be calculated only if needed
+         *
+         * @param t        the distance of the intersection from the ray head
+         * @param geometry the intersected geometry
+         */
+        public void set(double t, Geometry geometry) {
+            this.t = t;
+            this.geometry = geometry;
+            this.point = null;
+        }
+
+        /**
+         * creates a GeoPoint of the recorded intersection
+         *
+         * @param ray the ray of the search
+         * @return the GeoPoint of the closest intersection, null if there is none
+         */
+        public GeoPoint toGeoPoint(Ray ray) {
+            return geometry == null ? null : new GeoPoint(geometry, getPoint(ray));
+        }
+
+        /**
+         * the recorded intersection point, calculated once on the first demand
+         *
+         * @param ray the ray of the search
+         * @return the closest intersection point
+         */
+        public Point getPoint(Ray ray) {
+            if (point == null) point = ray.getPoint(t);
+            return point;
+        }
+    }
+
+    /**
+     * TransparencyRecord class is a reusable accumulator of the transparency along a shadow ray - the product of the
+     * kt coefficients of all the intersections between the point and the light source. The light is blocked once
+     * all the components of the product are below the minimum transparency.
+     */
+    public static class TransparencyRecord {
+        private double kr = 1, kg = 1, kb = 1;
+        private double minK = 0;
+        private boolean blocked = false;
+
+        /**
+         * prepares the record for a new shadow ray
+         *
+         * @param minK the minimum transparency, below it the light is considered blocked
+         * @return the record itself
+         */
+        public TransparencyRecord reset(double minK) {
+            kr = kg = kb = 1;
+            this.minK = minK;
+            blocked = false;
+            return this;
+        }
+
+        /**
+         * passes the light through a geometry
+         *
+         * @param kt    the transparency coefficient of the geometry material
+         * @param count the number of intersections of the ray with the geometry
+         * @return true if the light is blocked
+         */
+        public boolean pass(Double3 kt, int count) {
+            for (int i = 0; i < count; ++i) {
+                kr *= kt.getD1();
+                kg *= kt.getD2();
+                kb *= kt.getD3();
+            }
+            return blocked = kr < minK && kg < minK && kb < minK;
+        }
+
+        /**
+         * checks whether the light is blocked
+         *
+         * @return true if the accumulated transparency is below the minimum
+         */
+        public boolean isBlocked() {
+            return blocked;
+        }
+
+        /**
+         * the accumulated transparency
+         *
+         * @return the transparency, {@link Double3#ZERO} if the light is blocked
+         */
+        public Double3 toDouble3() {
+            return blocked ? Double3.ZERO : new Double3(kr, kg, kb);
+        }
+
+        /**
+         * copies the accumulated transparency into an array, without creating a Double3 object
+         *
+         * @param k the array for the transparency of each color component
+         * @return the array, zeros if the light is blocked
+         */
+        public double[] toArray(double[] k) {
+            k[0] = blocked ? 0 : kr;
+            k[1] = blocked ? 0 : kg;
+            k[2] = blocked ? 0 : kb;
+            return k;
+        }
+    }
 }
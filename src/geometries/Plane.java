@@ -56,13 +56,49 @@ public class Plane extends Geometry {
 
         double t1=alignZero(normal.dotProduct(q.subtract(ray.getHead()))/t);
         //if the ray is in the opposite direction of the normal
-        if(t1<=0||alignZero(t1-distance)>0){
+        if(t1<=0||alignZero(t1-distance)>=0){
             return null;
         }
         //if the ray intersects the plane
         return List.of(new GeoPoint(this,ray.getPoint(t1)));
     }
 
+    @Override
+    public boolean findClosestHit(Ray ray, HitRecord hit) {
+        double t = calcDistance(ray);
+        if (Double.isNaN(t) || alignZero(t - hit.t) >= 0)
+            return false;
+        hit.set(t, this);
+        return true;
+    }
+
+    @Override
+    protected int countIntersections(Ray ray, double maxDistance) {
+        double t = calcDistance(ray);
+        return !Double.isNaN(t) && alignZero(t - maxDistance) < 0 ? 1 : 0;
+    }
+
+    /**
+     * calculates the distance from the head of a ray to its intersection with the plane, without creating any
+     * vectors
+     *
+     * @param ray the ray
+     * @return the distance of the intersection, NaN if the ray doesn't intersect the plane in front of its head
+     */
+    double calcDistance(Ray ray) {
+        double nx = normal.getX(), ny = normal.getY(), nz = normal.getZ();
+        double nv = alignZero(nx * ray.getDirection().getX() + ny * ray.getDirection().getY()
+                + nz * ray.getDirection().getZ());
+        //if the ray is parallel to the plane
+        if (nv == 0)
+            return Double.NaN;
+        Point head = ray.getHead();
+        double t = alignZero((nx * (q.getX() - head.getX()) + ny * (q.getY() - head.getY())
+                + nz * (q.getZ() - head.getZ())) / nv);
+        //if the ray starts at the plane or the plane is behind it
+        return t > 0 ? t : Double.NaN;
+    }
+
     /**
      * getNormal function returns the normal to the plane
      * @return the normal to the plane
@@ -77,7 +113,7 @@ public class Plane extends Geometry {
     }
 
     @Override
-    protected int[][] calcBoundary() {
+    protected AABB calcBoundary() {
     return null;
 
 
@@ -4,6 +4,7 @@ import java.util.ArrayList;
 import java.util.LinkedList;
 import java.util.List;
 
+import static primitives.Util.alignZero;
 import static primitives.Util.isZero;
 
 import primitives.Point;
@@ -117,11 +118,65 @@ public class Polygon   extends Geometry {
         return List.of(new GeoPoint(this,checkPoint.point));
    }
 
+   @Override
+   public boolean findClosestHit(Ray ray, HitRecord hit) {
+      double t = plane.calcDistance(ray);
+      if (Double.isNaN(t) || alignZero(t - hit.t) >= 0)
+         return false;
+      Point  head = ray.getHead();
+      Vector dir  = ray.getDirection();
+      if (!isInside(head.getX() + t * dir.getX(), head.getY() + t * dir.getY(), head.getZ() + t * dir.getZ()))
+         return false;
+      hit.set(t, this);
+      return true;
+   }
+
+   @Override
+   protected int countIntersections(Ray ray, double maxDistance) {
+      double t = plane.calcDistance(ray);
+      if (Double.isNaN(t) || alignZero(t - maxDistance) >= 0)
+         return 0;
+      Point  head = ray.getHead();
+      Vector dir  = ray.getDirection();
+      return isInside(head.getX() + t * dir.getX(), head.getY() + t * dir.getY(), head.getZ() + t * dir.getZ()) ? 1 : 0;
+   }
+
+   /**
+    * Checks whether a point of the polygon plane is inside the polygon, without creating any vectors. The point is
+    * inside if it is on the same side of all the edges, i.e. the cross products of the edges with the vectors from
+    * the point have the same direction along the normal. A point exactly on an edge or a vertex is not inside.
+    * @param  px the x coordinate of the point
+    * @param  py the y coordinate of the point
+    * @param  pz the z coordinate of the point
+    * @return    true if the point is inside the polygon
+    */
+   boolean isInside(double px, double py, double pz) {
+      Vector  n        = plane.getNormal();
+      double  nx       = n.getX(), ny = n.getY(), nz = n.getZ();
+      Point   last     = vertices.get(size - 1);
+      boolean positive = false;
+      for (int i = 0; i < size; ++i) {
+         Point  p  = vertices.get(i);
+         double ex = p.getX() - last.getX(), ey = p.getY() - last.getY(), ez = p.getZ() - last.getZ();
+         double wx = last.getX() - px, wy = last.getY() - py, wz = last.getZ() - pz;
+         // the sign is not rounded - a point near an edge shared by two polygons is inside exactly one of them
+         double side = nx * (ey * wz - ez * wy) + ny * (ez * wx - ex * wz) + nz * (ex * wy - ey * wx);
+         if (side == 0)
+            return false; // on the edge or its continuation
+         if (i == 0)
+            positive = side > 0;
+         else if (positive != side > 0)
+            return false;
+         last = p;
+      }
+      return true;
+   }
+
    @Override
    public Vector getNormal(Point point) { return plane.getNormal(); }
 
     @Override
-    public int[][] calcBoundary() {
+    public AABB calcBoundary() {
         double minX = Double.POSITIVE_INFINITY;
         double maxX = Double.NEGATIVE_INFINITY;
         double minY = Double.POSITIVE_INFINITY;
@@ -149,10 +204,66 @@ public class Polygon   extends Geometry {
                 maxZ = z;
         }
 
-        return new int[][]{{(int) Math.floor(minX), (int) Math.ceil(maxX)},
-                {(int) Math.floor(minY), (int) Math.ceil(maxY)},
-                {(int) Math.floor(minZ), (int) Math.ceil(maxZ)}};
+        return new AABB(minX, minY, minZ, maxX, maxY, maxZ);
     }
 
+    /**
+     * checks whether the polygon overlaps with a box by the separating axis theorem - a convex polygon and a box
+     * don't overlap only if their projections are separated on one of the box normals, the polygon normal or the
+     * cross products of the box edges with the polygon edges
+     */
+    @Override
+    protected boolean overlaps(AABB box) {
+        //the box half sizes, and the vertices relative to the box center
+        double hx = (box.maxX - box.minX) / 2, hy = (box.maxY - box.minY) / 2, hz = (box.maxZ - box.minZ) / 2;
+        double[] x = new double[size], y = new double[size], z = new double[size];
+        for (int i = 0; i < size; ++i) {
+            Point vertex = vertices.get(i);
+            x[i] = vertex.getX() - (box.minX + box.maxX) / 2;
+            y[i] = vertex.getY() - (box.minY + box.maxY) / 2;
+            z[i] = vertex.getZ() - (box.minZ + box.maxZ) / 2;
+        }
+        //the polygon plane
+        Vector n = plane.getNormal();
+        double distance = n.getX() * x[0] + n.getY() * y[0] + n.getZ() * z[0];
+        if (Math.abs(distance) > hx * Math.abs(n.getX()) + hy * Math.abs(n.getY()) + hz * Math.abs(n.getZ()))
+            return false;
+        //the cross products of the edges with the X, Y and Z axes
+        for (int i = 0; i < size; ++i) {
+            int j = (i + 1) % size;
+            double ex = x[j] - x[i], ey = y[j] - y[i], ez = z[j] - z[i];
+            if (separated(0, ez, -ey, x, y, z, hx, hy, hz)
+                    || separated(-ez, 0, ex, x, y, z, hx, hy, hz)
+                    || separated(ey, -ex, 0, x, y, z, hx, hy, hz))
+                return false;
+        }
+        //the box normals are covered by the polygon boundary
+        return true;
+    }
 
+    /**
+     * checks whether an axis separates the polygon from a box centered at the origin
+     *
+     * @param ax the axis X component
+     * @param ay the axis Y component
+     * @param az the axis Z component
+     * @param x  the vertices X coordinates relative to the box center
+     * @param y  the vertices Y coordinates relative to the box center
+     * @param z  the vertices Z coordinates relative to the box center
+     * @param hx the box half size on the X axis
+     * @param hy the box half size on the Y axis
+     * @param hz the box half size on the Z axis
+     * @return true if the projections of the polygon and the box on the axis are separated
+     */
+    private static boolean separated(double ax, double ay, double az, double[] x, double[] y, double[] z,
+                                     double hx, double hy, double hz) {
+        double min = Double.POSITIVE_INFINITY, max = Double.NEGATIVE_INFINITY;
+        for (int i = 0; i < x.length; ++i) {
+            double p = ax * x[i] + ay * y[i] + az * z[i];
+            if (p < min) min = p;
+            if (p > max) max = p;
+        }
+        double r = hx * Math.abs(ax) + hy * Math.abs(ay) + hz * Math.abs(az);
+        return min > r || max < -r;
+    }
 }
@@ -43,7 +43,8 @@ public class Sphere extends RadialGeometry {
         double tm = alignZero(ray.getDirection().dotProduct(v));
 
         //check if the ray is tangent to the sphere
-        double d = alignZero(Math.sqrt(v.lengthSquared() - tm * tm));
+        //rounding may turn the squared distance of a ray through the center slightly negative
+        double d = alignZero(Math.sqrt(Math.max(0, v.lengthSquared() - tm * tm)));
         if (d >= radius) return null;
         double th = alignZero(Math.sqrt(radius * radius - d * d));
         double t1 = alignZero(tm - th);
@@ -76,14 +77,77 @@ public class Sphere extends RadialGeometry {
     }
 
     @Override
-    public int[][] calcBoundary() {
+    public boolean findClosestHit(Ray ray, HitRecord hit) {
+        double tm = calcMiddleDistance(ray);
+        double th = calcHalfChord(ray, tm);
+        if (Double.isNaN(th)) return false;
+        //the nearer intersection, or the farther one if the nearer is behind the head
+        double closest = alignZero(tm - th);
+        if (closest <= 0) closest = alignZero(tm + th);
+        if (closest <= 0 || alignZero(closest - hit.t) >= 0) return false;
+        hit.set(closest, this);
+        return true;
+    }
+
+    @Override
+    protected int countIntersections(Ray ray, double maxDistance) {
+        double tm = calcMiddleDistance(ray);
+        double th = calcHalfChord(ray, tm);
+        if (Double.isNaN(th)) return 0;
+        double t1 = alignZero(tm - th);
+        double t2 = alignZero(tm + th);
+        return (t1 > 0 && alignZero(t1 - maxDistance) < 0 ? 1 : 0)
+                + (t2 > 0 && alignZero(t2 - maxDistance) < 0 ? 1 : 0);
+    }
+
+    /**
+     * calculates the distance from the head of a ray to the projection of the center on the ray line, without
+     * creating any vectors - the intersections are at the half chord before and after it
+     *
+     * @param ray the ray
+     * @return the distance, negative if the projection is behind the ray head
+     */
+    private double calcMiddleDistance(Ray ray) {
+        Point head = ray.getHead();
+        Vector dir = ray.getDirection();
+        return alignZero(dir.getX() * (center.getX() - head.getX()) + dir.getY() * (center.getY() - head.getY())
+                + dir.getZ() * (center.getZ() - head.getZ()));
+    }
+
+    /**
+     * calculates the half of the chord the ray line cuts in the sphere, without creating any vectors
+     *
+     * @param ray the ray
+     * @param tm  the distance from the ray head to the projection of the center on the ray line
+     * @return the half chord, NaN if the ray line misses the sphere or is tangent to it
+     */
+    private double calcHalfChord(Ray ray, double tm) {
+        Point head = ray.getHead();
+        double vx = center.getX() - head.getX();
+        double vy = center.getY() - head.getY();
+        double vz = center.getZ() - head.getZ();
+        //the squared distance of the center from the ray line, the ray misses or is tangent if it's not below r^2
+        double dSquared = vx * vx + vy * vy + vz * vz - tm * tm;
+        double rSquared = radius * radius;
+        if (alignZero(dSquared - rSquared) >= 0) return Double.NaN;
+        return alignZero(Math.sqrt(rSquared - dSquared));
+    }
+
+    @Override
+    public AABB calcBoundary() {
         double x = center.getX();
         double y = center.getY();
         double z = center.getZ();
 
-        return new int[][]{{(int) Math.floor(x - radius), (int) Math.ceil(x + radius)},
-                {(int) Math.floor(y - radius), (int) Math.ceil(y + radius)},
-                {(int) Math.floor(z - radius), (int) Math.ceil(z + radius)}};
+        return new AABB(x - radius, y - radius, z - radius, x + radius, y + radius, z + radius);
     }
-}
 
+    @Override
+    protected boolean overlaps(AABB box) {
+        //the squared distance from the center to the closest point of the box
+        double dx = Math.max(0, Math.max(box.minX - center.getX(), center.getX() - box.maxX));
+        double dy = Math.max(0, Math.max(box.minY - center.getY(), center.getY() - box.maxY));
+        double dz = Math.max(0, Math.max(box.minZ - center.getZ(), center.getZ() - box.maxZ));
+        return dx * dx + dy * dy + dz * dz <= radius * radius;
+    }
+}
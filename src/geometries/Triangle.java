@@ -6,12 +6,22 @@ import primitives.Vector;
 
 import java.util.List;
 
-import static primitives.Util.isZero;
+import static primitives.Util.alignZero;
 
 /**
  * Triangle class represents a triangle in 3D Cartesian coordinate system
  */
 public class Triangle extends Polygon {
+    /**
+     * the first vertex coordinates, derived from the vertices
+     */
+    private transient double ax, ay, az;
+    /**
+     * the coordinates of the edges from the first vertex to the second and to the third vertices, derived from the
+     * vertices
+     */
+    private transient double e1x, e1y, e1z, e2x, e2y, e2z;
+
     /**
      * constructor for Triangle class
      *
@@ -21,38 +31,94 @@ public class Triangle extends Polygon {
      */
     public Triangle(Point p1, Point p2, Point p3) {
         super(p1, p2, p3);
+        calcEdges();
+    }
+
+    /**
+     * calculates the first vertex coordinates and the edges coordinates from the vertices
+     */
+    private void calcEdges() {
+        Point p1 = vertices.get(0), p2 = vertices.get(1), p3 = vertices.get(2);
+        ax = p1.getX();
+        ay = p1.getY();
+        az = p1.getZ();
+        e1x = p2.getX() - ax;
+        e1y = p2.getY() - ay;
+        e1z = p2.getZ() - az;
+        e2x = p3.getX() - ax;
+        e2y = p3.getY() - ay;
+        e2z = p3.getZ() - az;
+    }
+
+    @Override
+    public void calcDerivedAttributes() {
+        super.calcDerivedAttributes();
+        calcEdges();
     }
 
     @Override
     public List<GeoPoint> findGeoIntersectionsHelper(Ray ray, double maxDistance) {
-        List<GeoPoint> intersections = plane.findGeoIntersections(ray, maxDistance);
-        //if there are no intersections with the plane, there are no intersections with the triangle
-        if (intersections == null) {
+        double t = calcDistance(ray, null);
+        if (Double.isNaN(t) || alignZero(t - maxDistance) >= 0)
             return null;
-        }
-
-        //if the ray intersects the plane at the triangle's plane
-        Vector v1 = vertices.get(0).subtract(ray.getHead());
-        Vector v2 = vertices.get(1).subtract(ray.getHead());
-        Vector v3 = vertices.get(2).subtract(ray.getHead());
-
-        Vector n1 = v1.crossProduct(v2).normalize();
-        Vector n2 = v2.crossProduct(v3).normalize();
-        Vector n3 = v3.crossProduct(v1).normalize();
+        return List.of(new GeoPoint(this, ray.getPoint(t)));
+    }
 
-        double s1 = ray.getDirection().dotProduct(n1);
-        double s2 = ray.getDirection().dotProduct(n2);
-        double s3 = ray.getDirection().dotProduct(n3);
+    @Override
+    public boolean findClosestHit(Ray ray, HitRecord hit) {
+        double t = calcDistance(ray, null);
+        if (Double.isNaN(t) || alignZero(t - hit.t) >= 0)
+            return false;
+        hit.set(t, this);
+        return true;
+    }
 
-        //if the ray is parallel to the triangle's plane
-        if (isZero(s1) || isZero(s2) || isZero(s3)) {
-            return null;
-        }
+    @Override
+    protected int countIntersections(Ray ray, double maxDistance) {
+        double t = calcDistance(ray, null);
+        return !Double.isNaN(t) && alignZero(t - maxDistance) < 0 ? 1 : 0;
+    }
 
-        if (s1 > 0 && s2 > 0 && s3 > 0 || s1 < 0 && s2 < 0 && s3 < 0) {
-            return List.of(new GeoPoint(this, intersections.get(0).point));
+    /**
+     * calculates the distance from the head of a ray to its intersection with the triangle by the Moller-Trumbore
+     * algorithm - the intersection point is solved straight in the barycentric coordinates of the triangle, without
+     * intersecting its plane first and without creating any vectors. A ray through an edge or a vertex doesn't
+     * intersect the triangle.
+     *
+     * @param ray         the ray
+     * @param barycentric array for the barycentric coordinates of the intersection - the weights of the second and
+     *                    the third vertices (the first vertex weight is the rest of 1), null if they aren't needed
+     * @return the distance of the intersection, NaN if the ray doesn't intersect the triangle in front of its head
+     */
+    public double calcDistance(Ray ray, double[] barycentric) {
+        Point head = ray.getHead();
+        Vector dir = ray.getDirection();
+        double dx = dir.getX(), dy = dir.getY(), dz = dir.getZ();
+        //p = dir x e2, the determinant is e1 . p
+        double px = dy * e2z - dz * e2y, py = dz * e2x - dx * e2z, pz = dx * e2y - dy * e2x;
+        double det = alignZero(e1x * px + e1y * py + e1z * pz);
+        //if the ray is parallel to the triangle plane
+        if (det == 0)
+            return Double.NaN;
+        double inverse = 1 / det;
+        double sx = head.getX() - ax, sy = head.getY() - ay, sz = head.getZ() - az;
+        double u = alignZero((sx * px + sy * py + sz * pz) * inverse);
+        if (u <= 0 || u >= 1)
+            return Double.NaN;
+        //q = s x e1
+        double qx = sy * e1z - sz * e1y, qy = sz * e1x - sx * e1z, qz = sx * e1y - sy * e1x;
+        double v = alignZero((dx * qx + dy * qy + dz * qz) * inverse);
+        //if the intersection is outside the triangle, or on an edge or a vertex
+        if (v <= 0 || alignZero(1 - u - v) <= 0)
+            return Double.NaN;
+        double t = alignZero((e2x * qx + e2y * qy + e2z * qz) * inverse);
+        //if the ray starts at the triangle or the triangle is behind it
+        if (t <= 0)
+            return Double.NaN;
+        if (barycentric != null) {
+            barycentric[0] = u;
+            barycentric[1] = v;
         }
-        //if the ray intersects the plane but not the triangle
-        return null;
+        return t;
     }
 }
@@ -0,0 +1,687 @@
+package geometries;
+
+import primitives.Color;
+import primitives.Material;
+import primitives.Point;
+import primitives.Ray;
+import primitives.Vector;
+
+import java.util.Arrays;
+import java.util.LinkedList;
+import java.util.List;
+
+import static primitives.Util.alignZero;
+
+/**
+ * TriangleMesh class represents a mesh of triangles in 3D Cartesian coordinate system, which share their vertices,
+ * their emission and their material.<br>
+ * The vertices coordinates and the triangles vertex indexes are kept in packed primitive arrays instead of a
+ * Triangle object (with its own list of points, plane and bounding box) per triangle, and the rays are intersected
+ * with the triangles by the Moller-Trumbore algorithm straight on these arrays.<br>
+ * The mesh is a single entity for the scene acceleration structures, so it keeps its own bounding volume hierarchy
+ * over its triangles, in packed arrays as well. A triangle of the mesh is created as a geometry object only when a
+ * ray hits it for the first time, for the normal calculation.
+ */
+public class TriangleMesh extends Geometry {
+    /**
+     * the maximum amount of triangles in a leaf node of the hierarchy
+     */
+    private static final int LEAF_SIZE = 4;
+    /**
+     * the size of the nodes stack of a hierarchy traversal, the hierarchy depth is logarithmic since its nodes are
+     * split in their median
+     */
+    private static final int STACK_SIZE = 64;
+    /**
+     * the tolerance of a point on the mesh - of its distance out of a node bounding box, and of its barycentric
+     * coordinates out of a triangle
+     */
+    private static final double TOLERANCE = 1e-9;
+    /**
+     * the hierarchy traversal stack and ray coordinates of each thread, shared by all the meshes since a traversal
+     * never starts another one, so the traversals don't allocate
+     */
+    private static final ThreadLocal<Traversal> TRAVERSALS = ThreadLocal.withInitial(Traversal::new);
+
+    /**
+     * the vertices coordinates - x, y and z of each vertex one after the other
+     */
+    private final double[] vertices;
+    /**
+     * the vertex indexes of the triangles - three for each triangle, ordered by the hierarchy leaves
+     */
+    private final int[] indices;
+    /**
+     * the hierarchy nodes, two values for each node: a leaf has its first triangle and its amount of triangles, an
+     * inner node has the index of its second child and 0 (its first child is the node right after it)
+     */
+    private final int[] nodes;
+    /**
+     * the bounding boxes of the hierarchy nodes - minimum x, y, z and maximum x, y, z of each node
+     */
+    private final double[] bounds;
+    /**
+     * the faces of the triangles which were hit, created on the first hit of each triangle so the hits don't
+     * allocate
+     */
+    private transient Face[] faces;
+
+    /**
+     * constructor for TriangleMesh class
+     *
+     * @param vertices the vertices coordinates - x, y and z of each vertex one after the other
+     * @param indices  the vertex indexes of the triangles - three for each triangle
+     * @throws IllegalArgumentException if there are no triangles, or an index isn't of a vertex
+     */
+    public TriangleMesh(double[] vertices, int[] indices) {
+        if (vertices.length % 3 != 0)
+            throw new IllegalArgumentException("The vertices array must hold three coordinates for each vertex");
+        if (indices.length == 0 || indices.length % 3 != 0)
+            throw new IllegalArgumentException("The indices array must hold three indexes for each triangle");
+        for (int index : indices)
+            if (index < 0 || 3 * index >= vertices.length)
+                throw new IllegalArgumentException("Wrong vertex index " + index);
+        this.vertices = vertices.clone();
+        this.indices = indices.clone();
+
+        //a split node has more than LEAF_SIZE triangles, so every leaf has at least two and there are less nodes
+        //than triangles
+        int count = indices.length / 3;
+        int[] nodes = new int[2 * count];
+        double[] bounds = new double[6 * count];
+        double[] centroids = new double[3 * count];
+        int[] order = new int[count];
+        for (int i = 0; i < count; ++i) {
+            order[i] = i;
+            for (int axis = 0; axis < 3; ++axis)
+                centroids[3 * i + axis] = (vertex(3 * i, axis) + vertex(3 * i + 1, axis) + vertex(3 * i + 2, axis)) / 3;
+        }
+        int[] next = {1};
+        build(0, nodes, bounds, order, 0, count, centroids, next);
+        this.nodes = Arrays.copyOf(nodes, 2 * next[0]);
+        this.bounds = Arrays.copyOf(bounds, 6 * next[0]);
+        //the triangles are kept in the order of the leaves, so each leaf is a range of them
+        for (int i = 0; i < count; ++i)
+            System.arraycopy(indices, 3 * order[i], this.indices, 3 * i, 3);
+
+        this.boundary = meshBoundary();
+    }
+
+    /**
+     * constructor for TriangleMesh class from points
+     *
+     * @param points  the vertices (null entries, which aren't referred by the triangles, are allowed)
+     * @param indices the indexes of the triangles vertices in the points array - three for each triangle
+     * @throws IllegalArgumentException if there are no triangles, or an index isn't of a vertex
+     */
+    public TriangleMesh(Point[] points, int[] indices) {
+        this(toCoordinates(points), indices);
+    }
+
+    /**
+     * packs the coordinates of points into an array
+     *
+     * @param points the points, null entries are packed as zeros
+     * @return the coordinates - x, y and z of each point one after the other
+     */
+    private static double[] toCoordinates(Point[] points) {
+        double[] coordinates = new double[3 * points.length];
+        for (int i = 0; i < points.length; ++i)
+            if (points[i] != null) {
+                coordinates[3 * i] = points[i].getX();
+                coordinates[3 * i + 1] = points[i].getY();
+                coordinates[3 * i + 2] = points[i].getZ();
+            }
+        return coordinates;
+    }
+
+    /**
+     * the amount of triangles in the mesh
+     *
+     * @return the amount of triangles
+     */
+    public int size() {
+        return indices.length / 3;
+    }
+
+    @Override
+    public int primitivesCount() {
+        return size();
+    }
+
+    /**
+     * a vertex coordinate of a triangle vertex (before the triangles are ordered)
+     *
+     * @param corner the index of the vertex in the indices array
+     * @param axis   the axis - 0 for X, 1 for Y and 2 for Z
+     * @return the coordinate
+     */
+    private double vertex(int corner, int axis) {
+        return vertices[3 * indices[corner] + axis];
+    }
+
+    /**
+     * builds a node of the hierarchy, and its sub nodes recursively. The node triangles are split in the median of
+     * their centroids on the axis where the centroids spread the most.
+     *
+     * @param node      the node index
+     * @param nodes     the hierarchy nodes
+     * @param bounds    the bounding boxes of the hierarchy nodes
+     * @param order     the triangles order, the node range of it is reordered by the split
+     * @param first     the first triangle of the node in the order
+     * @param count     the amount of triangles of the node
+     * @param centroids the triangles centroids
+     * @param next      a single cell holding the index of the next free node
+     */
+    private void build(int node, int[] nodes, double[] bounds, int[] order, int first, int count, double[] centroids,
+                       int[] next) {
+        double[] box = {Double.POSITIVE_INFINITY, Double.POSITIVE_INFINITY, Double.POSITIVE_INFINITY,
+                Double.NEGATIVE_INFINITY, Double.NEGATIVE_INFINITY, Double.NEGATIVE_INFINITY};
+        double[] spread = {Double.POSITIVE_INFINITY, Double.POSITIVE_INFINITY, Double.POSITIVE_INFINITY,
+                Double.NEGATIVE_INFINITY, Double.NEGATIVE_INFINITY, Double.NEGATIVE_INFINITY};
+        for (int i = first; i < first + count; ++i)
+            for (int axis = 0; axis < 3; ++axis) {
+                for (int corner = 0; corner < 3; ++corner) {
+                    double value = vertex(3 * order[i] + corner, axis);
+                    box[axis] = Math.min(box[axis], value);
+                    box[axis + 3] = Math.max(box[axis + 3], value);
+                }
+                double centroid = centroids[3 * order[i] + axis];
+                spread[axis] = Math.min(spread[axis], centroid);
+                spread[axis + 3] = Math.max(spread[axis + 3], centroid);
+            }
+        System.arraycopy(box, 0, bounds, 6 * node, 6);
+
+        if (count <= LEAF_SIZE) {
+            nodes[2 * node] = first;
+            nodes[2 * node + 1] = count;
+            return;
+        }
+        int axis = 0;
+        for (int k = 1; k < 3; ++k)
+            if (spread[k + 3] - spread[k] > spread[axis + 3] - spread[axis]) axis = k;
+        int half = count / 2;
+        select(order, first, first + count - 1, first + half, centroids, axis);
+
+        int left = next[0]++;
+        build(left, nodes, bounds, order, first, half, centroids, next);
+        int right = next[0]++;
+        build(right, nodes, bounds, order, first + half, count - half, centroids, next);
+        nodes[2 * node] = right;
+        nodes[2 * node + 1] = 0;
+    }
+
+    /**
+     * reorders a range of the triangles so the triangle in a given position is the one that would be there if the
+     * range was sorted by the centroids on an axis, the triangles before it aren't greater and the triangles after it
+     * aren't smaller (quick select)
+     *
+     * @param order     the triangles order
+     * @param low       the first position of the range
+     * @param high      the last position of the range
+     * @param k         the position to fill
+     * @param centroids the triangles centroids
+     * @param axis      the axis - 0 for X, 1 for Y and 2 for Z
+     */
+    private static void select(int[] order, int low, int high, int k, double[] centroids, int axis) {
+        while (low < high) {
+            double pivot = centroids[3 * order[(low + high) >>> 1] + axis];
+            int i = low, j = high;
+            while (i <= j) {
+                while (centroids[3 * order[i] + axis] < pivot) ++i;
+                while (centroids[3 * order[j] + axis] > pivot) --j;
+                if (i <= j) {
+                    int temp = order[i];
+                    order[i++] = order[j];
+                    order[j--] = temp;
+                }
+            }
+            if (k <= j) high = j;
+            else if (k >= i) low = i;
+            else return;
+        }
+    }
+
+    /**
+     * finds the distance along a ray to the point where it enters the bounding box of a node, by the slab test
+     *
+     * @param node        the node index
+     * @param head        the ray head coordinates
+     * @param inverse     the inverse of the ray direction coordinates
+     * @param maxDistance the maximum distance from the ray head
+     * @return the entry distance, or -1 if the ray misses the box within the maximum distance
+     */
+    private double entryDistance(int node, double[] head, double[] inverse, double maxDistance) {
+        double near = 0, far = maxDistance;
+        for (int axis = 0; axis < 3; ++axis) {
+            double t1 = (bounds[6 * node + axis] - head[axis]) * inverse[axis];
+            double t2 = (bounds[6 * node + axis + 3] - head[axis]) * inverse[axis];
+            if (t1 > t2) { double t = t1; t1 = t2; t2 = t; }
+            if (t1 > near) near = t1;
+            if (t2 < far) far = t2;
+        }
+        return near <= far ? near : -1;
+    }
+
+    /**
+     * intersects a ray with a triangle of the mesh by the Moller-Trumbore algorithm - the intersection point is
+     * solved in the barycentric coordinates of the triangle, with no vector objects. The triangle edges are part of
+     * it, so a ray can't pass between two adjacent triangles.
+     *
+     * @param triangle the triangle index
+     * @param head     the ray head coordinates
+     * @param dir      the ray direction coordinates
+     * @return the distance of the intersection from the ray head, NaN if the ray line misses the triangle or is
+     * parallel to it
+     */
+    private double intersect(int triangle, double[] head, double[] dir) {
+        int a = 3 * indices[3 * triangle], b = 3 * indices[3 * triangle + 1], c = 3 * indices[3 * triangle + 2];
+        double e1x = vertices[b] - vertices[a], e1y = vertices[b + 1] - vertices[a + 1];
+        double e1z = vertices[b + 2] - vertices[a + 2];
+        double e2x = vertices[c] - vertices[a], e2y = vertices[c + 1] - vertices[a + 1];
+        double e2z = vertices[c + 2] - vertices[a + 2];
+        //p = dir x e2, the determinant is e1 . p
+        double px = dir[1] * e2z - dir[2] * e2y, py = dir[2] * e2x - dir[0] * e2z, pz = dir[0] * e2y - dir[1] * e2x;
+        double det = e1x * px + e1y * py + e1z * pz;
+        if (alignZero(det) == 0) return Double.NaN;
+        double inverse = 1 / det;
+        double sx = head[0] - vertices[a], sy = head[1] - vertices[a + 1], sz = head[2] - vertices[a + 2];
+        double u = (sx * px + sy * py + sz * pz) * inverse;
+        if (u < 0 || u > 1) return Double.NaN;
+        //q = s x e1
+        double qx = sy * e1z - sz * e1y, qy = sz * e1x - sx * e1z, qz = sx * e1y - sy * e1x;
+        double v = (dir[0] * qx + dir[1] * qy + dir[2] * qz) * inverse;
+        if (v < 0 || u + v > 1) return Double.NaN;
+        return (e2x * qx + e2y * qy + e2z * qz) * inverse;
+    }
+
+    /**
+     * checks whether an intersection distance is in front of the ray head and closer than a maximum distance
+     *
+     * @param t           the intersection distance, NaN if there is no intersection
+     * @param maxDistance the maximum distance
+     * @return true if the intersection is valid
+     */
+    private static boolean inRange(double t, double maxDistance) {
+        return alignZero(t) > 0 && alignZero(t - maxDistance) < 0;
+    }
+
+    /**
+     * the face of a triangle of the mesh, created once per triangle
+     *
+     * @param triangle the triangle index
+     * @return the face
+     */
+    private Face face(int triangle) {
+        //a race may create a face twice, the faces of a triangle are equal
+        Face[] faces = this.faces;
+        if (faces == null) this.faces = faces = new Face[size()];
+        Face face = faces[triangle];
+        if (face == null) faces[triangle] = face = new Face(triangle);
+        return face;
+    }
+
+    /**
+     * the normal of a triangle of the mesh
+     *
+     * @param triangle the triangle index
+     * @return the normal
+     */
+    private Vector normal(int triangle) {
+        int a = 3 * indices[3 * triangle], b = 3 * indices[3 * triangle + 1], c = 3 * indices[3 * triangle + 2];
+        Vector e1 = new Vector(vertices[b] - vertices[a], vertices[b + 1] - vertices[a + 1],
+                vertices[b + 2] - vertices[a + 2]);
+        Vector e2 = new Vector(vertices[c] - vertices[a], vertices[c + 1] - vertices[a + 1],
+                vertices[c + 2] - vertices[a + 2]);
+        return e1.crossProduct(e2).normalize();
+    }
+
+    /**
+     * finds the distance of a point from the plane of a triangle of the mesh, if the point is over the triangle
+     *
+     * @param triangle the triangle index
+     * @param x        the point X coordinate
+     * @param y        the point Y coordinate
+     * @param z        the point Z coordinate
+     * @return the distance, NaN if the projection of the point on the plane is out of the triangle
+     */
+    private double distance(int triangle, double x, double y, double z) {
+        int a = 3 * indices[3 * triangle], b = 3 * indices[3 * triangle + 1], c = 3 * indices[3 * triangle + 2];
+        double e1x = vertices[b] - vertices[a], e1y = vertices[b + 1] - vertices[a + 1];
+        double e1z = vertices[b + 2] - vertices[a + 2];
+        double e2x = vertices[c] - vertices[a], e2y = vertices[c + 1] - vertices[a + 1];
+        double e2z = vertices[c + 2] - vertices[a + 2];
+        double sx = x - vertices[a], sy = y - vertices[a + 1], sz = z - vertices[a + 2];
+        //the barycentric coordinates of the projection by the dot products of the edges
+        double d11 = e1x * e1x + e1y * e1y + e1z * e1z, d12 = e1x * e2x + e1y * e2y + e1z * e2z;
+        double d22 = e2x * e2x + e2y * e2y + e2z * e2z;
+        double s1 = sx * e1x + sy * e1y + sz * e1z, s2 = sx * e2x + sy * e2y + sz * e2z;
+        double det = d11 * d22 - d12 * d12;
+        double u = (d22 * s1 - d12 * s2) / det, v = (d11 * s2 - d12 * s1) / det;
+        if (u < -TOLERANCE || v < -TOLERANCE || u + v > 1 + TOLERANCE) return Double.NaN;
+        double nx = e1y * e2z - e1z * e2y, ny = e1z * e2x - e1x * e2z, nz = e1x * e2y - e1y * e2x;
+        return Math.abs(sx * nx + sy * ny + sz * nz) / Math.sqrt(nx * nx + ny * ny + nz * nz);
+    }
+
+    @Override
+    public List<GeoPoint> findGeoIntersectionsHelper(Ray ray, double maxDistance) {
+        Traversal r = TRAVERSALS.get().set(ray);
+        List<GeoPoint> intersections = null;
+        int[] stack = r.stack;
+        int top = 0;
+        stack[top++] = 0;
+        while (top > 0) {
+            int node = stack[--top];
+            if (entryDistance(node, r.head, r.inverse, maxDistance) < 0) continue;
+            if (nodes[2 * node + 1] == 0) {
+                stack[top++] = nodes[2 * node];
+                stack[top++] = node + 1;
+                continue;
+            }
+            for (int i = nodes[2 * node]; i < nodes[2 * node] + nodes[2 * node + 1]; ++i) {
+                double t = intersect(i, r.head, r.dir);
+                if (inRange(t, maxDistance)) {
+                    if (intersections == null) intersections = new LinkedList<>();
+                    intersections.add(new GeoPoint(face(i), ray.getPoint(t)));
+                }
+            }
+        }
+        return intersections;
+    }
+
+    @Override
+    public boolean findClosestHit(Ray ray, HitRecord hit) {
+        Traversal r = TRAVERSALS.get().set(ray);
+        int[] stack = r.stack;
+        int top = 0;
+        stack[top++] = 0;
+        int closest = -1;
+        while (top > 0) {
+            int node = stack[--top];
+            if (entryDistance(node, r.head, r.inverse, hit.t) < 0) continue;
+            if (nodes[2 * node + 1] == 0) {
+                //the nearer child is visited first, so the farther one may be culled by its hit
+                int first = node + 1, second = nodes[2 * node];
+                double firstEntry = entryDistance(first, r.head, r.inverse, hit.t);
+                double secondEntry = entryDistance(second, r.head, r.inverse, hit.t);
+                if (secondEntry >= 0 && (firstEntry < 0 || secondEntry < firstEntry)) {
+                    int temp = first;
+                    first = second;
+                    second = temp;
+                }
+                stack[top++] = second;
+                stack[top++] = first;
+                continue;
+            }
+            for (int i = nodes[2 * node]; i < nodes[2 * node] + nodes[2 * node + 1]; ++i) {
+                double t = intersect(i, r.head, r.dir);
+                if (inRange(t, hit.t)) {
+                    hit.t = t;
+                    closest = i;
+                }
+            }
+        }
+        if (closest < 0) return false;
+        hit.set(hit.t, face(closest));
+        return true;
+    }
+
+    @Override
+    protected int countIntersections(Ray ray, double maxDistance) {
+        Traversal r = TRAVERSALS.get().set(ray);
+        int[] stack = r.stack;
+        int top = 0;
+        stack[top++] = 0;
+        int count = 0;
+        while (top > 0) {
+            int node = stack[--top];
+            if (entryDistance(node, r.head, r.inverse, maxDistance) < 0) continue;
+            if (nodes[2 * node + 1] == 0) {
+                stack[top++] = nodes[2 * node];
+                stack[top++] = node + 1;
+                continue;
+            }
+            for (int i = nodes[2 * node]; i < nodes[2 * node] + nodes[2 * node + 1]; ++i)
+                if (inRange(intersect(i, r.head, r.dir), maxDistance)) ++count;
+        }
+        return count;
+    }
+
+    /**
+     * the normal of the mesh at a point on it - the normal of the triangle the point is on. The hierarchy nodes
+     * which contain the point are searched, and if the point is on an edge of a few triangles, the triangle whose
+     * plane is the closest to the point is chosen.
+     *
+     * @param p the point on the mesh
+     * @return the normal
+     * @throws IllegalArgumentException if the point isn't on the mesh
+     */
+    @Override
+    public Vector getNormal(Point p) {
+        double x = p.getX(), y = p.getY(), z = p.getZ();
+        int[] stack = TRAVERSALS.get().stack;
+        int top = 0;
+        stack[top++] = 0;
+        int closest = -1;
+        double closestDistance = Double.POSITIVE_INFINITY;
+        while (top > 0) {
+            int node = stack[--top];
+            int b = 6 * node;
+            if (bounds[b] - x > TOLERANCE || x - bounds[b + 3] > TOLERANCE || bounds[b + 1] - y > TOLERANCE
+                    || y - bounds[b + 4] > TOLERANCE || bounds[b + 2] - z > TOLERANCE || z - bounds[b + 5] > TOLERANCE)
+                continue;
+            if (nodes[2 * node + 1] == 0) {
+                stack[top++] = nodes[2 * node];
+                stack[top++] = node + 1;
+                continue;
+            }
+            for (int i = nodes[2 * node]; i < nodes[2 * node] + nodes[2 * node + 1]; ++i) {
+                double distance = distance(i, x, y, z);
+                if (distance < closestDistance) {
+                    closestDistance = distance;
+                    closest = i;
+                }
+            }
+        }
+        if (closest < 0) throw new IllegalArgumentException("The point isn't on the mesh");
+        return normal(closest);
+    }
+
+    @Override
+    protected AABB calcBoundary() {
+        return meshBoundary();
+    }
+
+    /**
+     * calculates the boundary of the mesh - the box of the root node of its hierarchy
+     *
+     * @return the boundary
+     */
+    private AABB meshBoundary() {
+        return new AABB(bounds[0], bounds[1], bounds[2], bounds[3], bounds[4], bounds[5]);
+    }
+
+    /**
+     * checks whether the mesh overlaps with a box - whether one of its triangles does, by the separating axis theorem.
+     * Only the triangles of the hierarchy nodes which overlap with the box are checked.
+     */
+    @Override
+    protected boolean overlaps(AABB box) {
+        int[] stack = TRAVERSALS.get().stack;
+        int top = 0;
+        stack[top++] = 0;
+        while (top > 0) {
+            int node = stack[--top];
+            int b = 6 * node;
+            if (bounds[b] > box.maxX || bounds[b + 3] < box.minX || bounds[b + 1] > box.maxY
+                    || bounds[b + 4] < box.minY || bounds[b + 2] > box.maxZ || bounds[b + 5] < box.minZ)
+                continue;
+            if (nodes[2 * node + 1] == 0) {
+                stack[top++] = nodes[2 * node];
+                stack[top++] = node + 1;
+                continue;
+            }
+            for (int i = nodes[2 * node]; i < nodes[2 * node] + nodes[2 * node + 1]; ++i)
+                if (overlaps(i, box)) return true;
+        }
+        return false;
+    }
+
+    /**
+     * checks whether a triangle of the mesh overlaps with a box by the separating axis theorem - they don't overlap
+     * only if their projections are separated on one of the box normals, the triangle normal or the cross products
+     * of the box edges with the triangle edges
+     *
+     * @param triangle the triangle index
+     * @param box      the box
+     * @return true if the triangle overlaps with the box
+     */
+    private boolean overlaps(int triangle, AABB box) {
+        //the box half sizes, and the vertices relative to the box center
+        double[] half = {(box.maxX - box.minX) / 2, (box.maxY - box.minY) / 2, (box.maxZ - box.minZ) / 2};
+        double[] center = {(box.minX + box.maxX) / 2, (box.minY + box.maxY) / 2, (box.minZ + box.maxZ) / 2};
+        double[][] v = new double[3][3];
+        for (int corner = 0; corner < 3; ++corner)
+            for (int axis = 0; axis < 3; ++axis)
+                v[corner][axis] = vertices[3 * indices[3 * triangle + corner] + axis] - center[axis];
+        //the box normals
+        for (int axis = 0; axis < 3; ++axis)
+            if (Math.min(v[0][axis], Math.min(v[1][axis], v[2][axis])) > half[axis]
+                    || Math.max(v[0][axis], Math.max(v[1][axis], v[2][axis])) < -half[axis])
+                return false;
+        //the triangle normal
+        double[] e1 = {v[1][0] - v[0][0], v[1][1] - v[0][1], v[1][2] - v[0][2]};
+        double[] e2 = {v[2][0] - v[0][0], v[2][1] - v[0][1], v[2][2] - v[0][2]};
+        if (separated(e1[1] * e2[2] - e1[2] * e2[1], e1[2] * e2[0] - e1[0] * e2[2], e1[0] * e2[1] - e1[1] * e2[0],
+                v, half))
+            return false;
+        //the cross products of the edges with the X, Y and Z axes
+        for (int i = 0; i < 3; ++i) {
+            int j = (i + 1) % 3;
+            double ex = v[j][0] - v[i][0], ey = v[j][1] - v[i][1], ez = v[j][2] - v[i][2];
+            if (separated(0, ez, -ey, v, half) || separated(-ez, 0, ex, v, half) || separated(ey, -ex, 0, v, half))
+                return false;
+        }
+        return true;
+    }
+
+    /**
+     * checks whether an axis separates a triangle from a box centered at the origin
+     *
+     * @param ax   the axis X component
+     * @param ay   the axis Y component
+     * @param az   the axis Z component
+     * @param v    the triangle vertices relative to the box center
+     * @param half the box half sizes
+     * @return true if the projections of the triangle and the box on the axis are separated
+     */
+    private static boolean separated(double ax, double ay, double az, double[][] v, double[] half) {
+        double min = Double.POSITIVE_INFINITY, max = Double.NEGATIVE_INFINITY;
+        for (double[] vertex : v) {
+            double p = ax * vertex[0] + ay * vertex[1] + az * vertex[2];
+            if (p < min) min = p;
+            if (p > max) max = p;
+        }
+        double r = half[0] * Math.abs(ax) + half[1] * Math.abs(ay) + half[2] * Math.abs(az);
+        return min > r || max < -r;
+    }
+
+    /**
+     * Traversal class holds the scratch arrays of the traversals of a thread - the nodes stack and the coordinates of
+     * the ray
+     */
+    private static final class Traversal {
+        /**
+         * the nodes stack
+         */
+        private final int[] stack = new int[STACK_SIZE];
+        /**
+         * the ray head coordinates
+         */
+        private final double[] head = new double[3];
+        /**
+         * the ray direction coordinates
+         */
+        private final double[] dir = new double[3];
+        /**
+         * the inverse of the ray direction coordinates
+         */
+        private final double[] inverse = new double[3];
+
+        /**
+         * sets the coordinates of a ray head and direction, and the inverse of the direction coordinates
+         *
+         * @param ray the ray
+         * @return the traversal itself
+         */
+        private Traversal set(Ray ray) {
+            Point h = ray.getHead();
+            Vector d = ray.getDirection();
+            head[0] = h.getX();
+            head[1] = h.getY();
+            head[2] = h.getZ();
+            dir[0] = d.getX();
+            dir[1] = d.getY();
+            dir[2] = d.getZ();
+            inverse[0] = 1 / dir[0];
+            inverse[1] = 1 / dir[1];
+            inverse[2] = 1 / dir[2];
+            return this;
+        }
+    }
+
+    /**
+     * Face class represents a single triangle of the mesh, as the geometry of an intersection. It holds only the
+     * triangle index, and takes the emission and the material of the mesh.
+     */
+    private final class Face extends Geometry {
+        /**
+         * the triangle index in the mesh
+         */
+        private final int triangle;
+
+        /**
+         * constructor for Face class
+         *
+         * @param triangle the triangle index in the mesh
+         */
+        private Face(int triangle) {
+            this.triangle = triangle;
+        }
+
+        @Override
+        public Color getEmission() {
+            return TriangleMesh.this.getEmission();
+        }
+
+        @Override
+        public Material getMaterial() {
+            return TriangleMesh.this.getMaterial();
+        }
+
+        @Override
+        public Vector getNormal(Point p) {
+            return normal(triangle);
+        }
+
+        @Override
+        protected List<GeoPoint> findGeoIntersectionsHelper(Ray ray, double maxDistance) {
+            Traversal r = TRAVERSALS.get().set(ray);
+            double t = intersect(triangle, r.head, r.dir);
+            return inRange(t, maxDistance) ? List.of(new GeoPoint(this, ray.getPoint(t))) : null;
+        }
+
+        @Override
+        protected AABB calcBoundary() {
+            double[] box = {Double.POSITIVE_INFINITY, Double.POSITIVE_INFINITY, Double.POSITIVE_INFINITY,
+                    Double.NEGATIVE_INFINITY, Double.NEGATIVE_INFINITY, Double.NEGATIVE_INFINITY};
+            for (int corner = 0; corner < 3; ++corner)
+                for (int axis = 0; axis < 3; ++axis) {
+                    double value = vertices[3 * indices[3 * triangle + corner] + axis];
+                    box[axis] = Math.min(box[axis], value);
+                    box[axis + 3] = Math.max(box[axis + 3], value);
+                }
+            return new AABB(box[0], box[1], box[2], box[3], box[4], box[5]);
+        }
+    }
+}
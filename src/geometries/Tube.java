@@ -123,7 +123,86 @@ public class Tube extends RadialGeometry {
     }
 
     @Override
-    public int[][] calcBoundary() {//there is no boundary to infinite geometric entity
+    public boolean findClosestHit(Ray ray, HitRecord hit) {
+        double distance = calcCasingDistance(ray, false);
+        if (Double.isNaN(distance)) return false;
+        //the nearer intersection, or the farther one if the nearer isn't a hit
+        if (!isCasingHit(ray, distance, hit.t)) {
+            distance = calcCasingDistance(ray, true);
+            if (!isCasingHit(ray, distance, hit.t)) return false;
+        }
+        hit.set(distance, this);
+        return true;
+    }
+
+    @Override
+    protected int countIntersections(Ray ray, double maxDistance) {
+        double near = calcCasingDistance(ray, false);
+        if (Double.isNaN(near)) return 0;
+        return (isCasingHit(ray, near, maxDistance) ? 1 : 0)
+                + (isCasingHit(ray, calcCasingDistance(ray, true), maxDistance) ? 1 : 0);
+    }
+
+    /**
+     * checks whether an intersection of a ray line with the infinite casing is a hit of the geometry in front of the
+     * ray head and closer than a maximum distance
+     *
+     * @param ray         the ray
+     * @param t           the distance of the intersection from the ray head
+     * @param maxDistance the maximum distance
+     * @return true if the intersection is a hit
+     */
+    private boolean isCasingHit(Ray ray, double t, double maxDistance) {
+        return t > 0 && alignZero(t - maxDistance) < 0 && onCasing(ray, t);
+    }
+
+    /**
+     * calculates the distance of an intersection of a ray line with the infinite casing - the same quadratic
+     * equation as in findGeoIntersectionsHelper, calculated over coordinates
+     *
+     * @param ray the ray
+     * @param far false for the nearer of the two intersections, true for the farther one
+     * @return the distance, which may be negative (behind the ray head), NaN if the ray line misses the casing, is
+     * tangent to it or is parallel to the axis
+     */
+    private double calcCasingDistance(Ray ray, boolean far) {
+        Vector tubeDir = axis.getDirection();
+        Vector rayDir = ray.getDirection();
+        double ax = tubeDir.getX(), ay = tubeDir.getY(), az = tubeDir.getZ();
+        double dx = rayDir.getX(), dy = rayDir.getY(), dz = rayDir.getZ();
+        //the ray direction without its component along the axis
+        double dv = dx * ax + dy * ay + dz * az;
+        double ux = dx - dv * ax, uy = dy - dv * ay, uz = dz - dv * az;
+        double a = alignZero(ux * ux + uy * uy + uz * uz);
+        //the ray is parallel to the axis
+        if (a == 0) return Double.NaN;
+        //the vector between the heads without its component along the axis
+        double px = ray.getHead().getX() - axis.getHead().getX();
+        double py = ray.getHead().getY() - axis.getHead().getY();
+        double pz = ray.getHead().getZ() - axis.getHead().getZ();
+        double pv = px * ax + py * ay + pz * az;
+        double wx = px - pv * ax, wy = py - pv * ay, wz = pz - pv * az;
+        double b = 2 * (ux * wx + uy * wy + uz * wz);
+        double c = wx * wx + wy * wy + wz * wz - radius * radius;
+        double det = alignZero(b * b - 4 * a * c);
+        if (det <= 0) return Double.NaN;
+        det = Math.sqrt(det);
+        return alignZero((-b + (far ? det : -det)) / (2 * a));
+    }
+
+    /**
+     * checks whether an intersection of a ray with the infinite casing is a part of the geometry
+     *
+     * @param ray the ray
+     * @param t   the distance of the intersection from the ray head
+     * @return true for a tube, since its casing is infinite
+     */
+    protected boolean onCasing(Ray ray, double t) {
+        return true;
+    }
+
+    @Override
+    public AABB calcBoundary() {//there is no boundary to infinite geometric entity
         return null;
     }
 
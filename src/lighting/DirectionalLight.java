@@ -26,6 +26,11 @@ public class DirectionalLight extends Light implements LightSource {
         return direction;
     }
 
+    @Override
+    public double getAttenuation(Point p, double[] l) {
+        return 1;
+    }
+
     @Override
     public double getDistance(Point point) { //double.POSITIVE_INFINTI
         return Double.POSITIVE_INFINITY;
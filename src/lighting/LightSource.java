@@ -17,6 +17,31 @@ public interface LightSource {
      */
     public Vector getL(Point p);
 
+    /**
+     * Get the intensity of the light at its source
+     * @return the intensity of the light
+     */
+    public Color getIntensity();
+
+    /**
+     * Get the direction from the light source to a point into an array, without creating vectors
+     * @param p the point
+     * @param l the array for the direction coordinates
+     * @return the direction array
+     */
+    default double[] getL(Point p, double[] l) {
+        return Vec3.set(l, getL(p));
+    }
+
+    /**
+     * Get the factor of the light intensity at a point - the intensity at the point is the intensity of the light
+     * scaled by it
+     * @param p the point
+     * @param l the direction from the light source to the point, as found by {@link #getL(Point, double[])}
+     * @return the intensity factor at the point
+     */
+    public double getAttenuation(Point p, double[] l);
+
     /**
      *
      * @param point
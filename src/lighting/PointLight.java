@@ -35,6 +35,23 @@ public class PointLight extends Light implements LightSource{
         return p.subtract(position).normalize();
     }
 
+    @Override
+    public double[] getL(Point p, double[] l) {
+        // if the point is the same as the light source, return null
+        if (p.equals(position))
+            return null;
+        l[0] = p.getX() - position.getX();
+        l[1] = p.getY() - position.getY();
+        l[2] = p.getZ() - position.getZ();
+        return Vec3.normalize(l);
+    }
+
+    @Override
+    public double getAttenuation(Point p, double[] l) {
+        double d = position.distance(p);
+        return 1d / (kc + kl * d + kq * d * d);
+    }
+
     @Override
     public double getDistance(Point point) {
         return position.distance(point);
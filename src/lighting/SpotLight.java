@@ -41,6 +41,12 @@ public class SpotLight extends PointLight {
                 : super.getIntensity(p).scale(Math.max(0, direction.dotProduct(getL(p))));
     }
 
+    @Override
+    public double getAttenuation(Point p, double[] l) {
+        double cos = Math.max(0, direction.getX() * l[0] + direction.getY() * l[1] + direction.getZ() * l[2]);
+        return super.getAttenuation(p, l) * (narrowBeam != 1 ? Math.pow(cos, narrowBeam) : cos);
+    }
+
     /**
      * Set the constant attenuation factor.
      *
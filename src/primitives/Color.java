@@ -111,6 +111,12 @@ public class Color {
       return new Color(rgb.reduce(k));
    }
 
+   /**
+    * The RGB components of the color
+    * @return the components
+    */
+   public Double3 getRgb() { return rgb; }
+
    @Override
    public String toString() { return "rgb:" + rgb; }
 }
@@ -38,6 +38,10 @@ public class Material {
     // Parameters for blur glass
     public int numOfRays = 1;
     public double blurGlassDistance = 1, blurGlassRadius = 1;
+    // Parameters for adaptive blur glass - the rays are traced in batches and the tracing stops once the standard
+    // error of the average color is below the threshold, 0 threshold traces all the rays
+    public int blurGlassBatch = 1;
+    public double blurGlassThreshold = 0;
 
     /**
      * setter for kd
@@ -169,4 +173,25 @@ public class Material {
         return this;
     }
 
+    /**
+     * Sets the parameters for adaptive blur glass rendering. The rays of the beam are traced in batches, and after
+     * each batch the tracing stops if the colors agree well enough - so only the areas where the blurred image
+     * actually varies are traced by all the rays.
+     *
+     * @param batch     The number of rays traced between the checks.
+     * @param threshold The standard error of the average color components to stop at, in the 0-255 scale of the
+     *                  colors, 0 to trace all the rays.
+     * @return This Material object.
+     * @throws IllegalArgumentException if any of the parameters is invalid.
+     */
+    public Material setAdaptiveBlurGlass(int batch, double threshold) {
+        if (batch < 1 || threshold < 0)
+            throw new IllegalArgumentException("Illegal argument in setAdaptiveBlurGlass");
+
+        this.blurGlassBatch = batch;
+        this.blurGlassThreshold = threshold;
+
+        return this;
+    }
+
 }
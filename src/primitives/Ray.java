@@ -46,6 +46,21 @@ public class Ray {
         this.direction = direction.normalize();
     }
 
+    /**
+     * constructor for Ray class with normal to the direction, from the coordinates of the direction and the normal
+     * (for the shading calculations, which keep their vectors in arrays)
+     * @param head the head of the ray
+     * @param direction the direction coordinates of the ray
+     * @param normal the normal coordinates
+     */
+    public Ray(Point head, double[] direction, double[] normal) {
+        double delta = Vec3.dot(normal, direction) > 0 ? DELTA : -DELTA;
+        this.head = new Point(head.getX() + delta * normal[0], head.getY() + delta * normal[1],
+                head.getZ() + delta * normal[2]);
+        double length = Vec3.length(direction);
+        this.direction = new Vector(direction[0] / length, direction[1] / length, direction[2] / length);
+    }
+
     @Override
     public final boolean equals(Object o) {
         if (this == o) return true;
@@ -95,11 +110,12 @@ public class Ray {
             return null;
         }
         GeoPoint closest=points.get(0);
-        double distance = head.distance(closest.point);
+        double distance = head.distanceSquared(closest.point);
         for(GeoPoint p:points){
-            if(head.distance(p.point)<distance){
+            double d = head.distanceSquared(p.point);
+            if(d<distance){
                 closest=p;
-                distance=head.distance(p.point);
+                distance=d;
             }
         }
         return closest;
@@ -107,8 +123,11 @@ public class Ray {
 
     /**
      * Generates a beam of rays spread out from the main ray within a specified radius and distance.
-     * The beam is formed by calculating additional rays at random points within a circle defined by the radius
-     * and centered at a point along the main ray's direction at the specified distance.
+     * The beam is formed by calculating additional rays at points within a circle defined by the radius
+     * and centered at a point along the main ray's direction at the specified distance.<br>
+     * The points follow the Sobol sequence over the circle, shifted by a random offset of the {@link Sampler} for
+     * each beam, so any first part of the beam is already spread evenly over the circle and a caller may stop tracing
+     * it early.
      *
      * @param n The normal vector to the plane in which the rays are spread.
      * @param radius The radius of the circle within which the rays are spread.
@@ -117,61 +136,47 @@ public class Ray {
      * @return A list of {@link Ray} objects representing the main ray and the additional rays forming the beam.
      */
     public List<Ray> generateBeam(Vector n, double radius, double distance, int numOfRays) {
-    List<Ray> rays = new LinkedList<Ray>();
-    rays.add(this); // Including the main ray in the list of rays to be returned
-
-    // If only one ray is requested or the radius is zero, return the list containing only the current ray
-    if (numOfRays == 1 || isZero(radius))
-        return rays;
-
-    // Calculate two orthogonal vectors (nX, nY) on the plane perpendicular to the direction of the ray
-    Vector nX = direction.createNormal(); // Create a normal vector to the direction of the ray
-    Vector nY = direction.crossProduct(nX); // Create another vector orthogonal to both the direction and nX
-
-    // Calculate the center of the circle at the specified distance along the ray from its head
-    Point centerCircle = this.getPoint(distance);
-
-    Point randomPoint; // Placeholder for points on the circle
-    Vector v12; // Placeholder for the direction vector from the ray's head to a point on the circle
-
-    double rand_x, rand_y; // Random x and y coordinates on the circle
-    double delta_radius = radius / (numOfRays - 1); // Decrement of radius for each additional ray
-    double nv = n.dotProduct(direction); // Dot product of the normal vector and the ray's direction
-
-    // Generate additional rays within the beam
-    for (int i = 1; i < numOfRays; i++) {
-        randomPoint = centerCircle; // Start at the center of the circle
-
-        // Generate random x and y coordinates within the circle
-        rand_x = random(-radius, radius);
-        rand_y = randomSign() * Math.sqrt(radius * radius - rand_x * rand_x); // Ensure the point lies within the circle
-
-        // Offset the center point by the random x and y coordinates to get a point on the circle
-        try {
-            randomPoint = randomPoint.add(nX.scale(rand_x));
-        } catch (Exception ex) {
-        }
-
-        try {
-            randomPoint = randomPoint.add(nY.scale(rand_y));
-        } catch (Exception ex) {
-        }
-
-        // Calculate the direction vector from the ray's head to the random point on the circle
-        v12 = randomPoint.subtract(head).normalize();
-
-        // Calculate the dot product of the normal vector and this new direction vector
-        double nt = alignZero(n.dotProduct(v12));
-
-        // Add the new ray to the list if it's in the same general direction as the original ray
-        if (nv * nt > 0) {
-            rays.add(new Ray(head, v12));
+        List<Ray> rays = new ArrayList<>(numOfRays);
+        rays.add(this); // Including the main ray in the list of rays to be returned
+
+        // If only one ray is requested or the radius is zero, return the list containing only the current ray
+        if (numOfRays == 1 || isZero(radius))
+            return rays;
+
+        // Calculate two orthogonal vectors (nX, nY) on the plane perpendicular to the direction of the ray
+        Vector nX = direction.createNormal(); // Create a normal vector to the direction of the ray
+        Vector nY = direction.crossProduct(nX); // Create another vector orthogonal to both the direction and nX
+
+        // Calculate the center of the circle at the specified distance along the ray from its head
+        Point centerCircle = this.getPoint(distance);
+        double nv = n.dotProduct(direction); // Dot product of the normal vector and the ray's direction
+
+        // the random offset of the sequence for this beam
+        Sampler sampler = Sampler.current();
+        double shiftR = sampler.nextDouble(), shiftAngle = sampler.nextDouble();
+
+        // Generate additional rays within the beam
+        for (int i = 1; i < numOfRays; i++) {
+            // the distance from the center is uniform, as it was for the rings of decreasing radius before, so the
+            // rays are denser near the main ray
+            double r = radius * Sampler.wrap(Sampler.sobol(0, i) + shiftR);
+            double angle = 2 * Math.PI * Sampler.wrap(Sampler.sobol(1, i) + shiftAngle);
+            double x = alignZero(r * Math.cos(angle));
+            double y = alignZero(r * Math.sin(angle));
+
+            Point point = centerCircle;
+            if (x != 0) point = point.add(nX.scale(x));
+            if (y != 0) point = point.add(nY.scale(y));
+
+            // the direction from the ray's head to the point on the circle
+            Vector v12 = point.subtract(head).normalize();
+
+            // Add the new ray to the list if it's in the same general direction as the original ray
+            double nt = alignZero(n.dotProduct(v12));
+            if (nv * nt > 0)
+                rays.add(new Ray(head, v12));
         }
 
-        // Decrease the radius for the next iteration to distribute rays evenly across the beam
-        radius -= delta_radius;
+        return rays; // Return the list of rays forming the beam
     }
-
-    return rays; // Return the list of rays forming the beam
-}
 }
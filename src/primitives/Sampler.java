@@ -0,0 +1,190 @@
+package primitives;
+
+/**
+ * Sampler class provides the random numbers and the sample patterns of the renderer.<br>
+ * Each thread has its own sampler, so the threads don't contend on a shared generator. The generator is SplitMix64
+ * (the algorithm of {@link java.util.SplittableRandom}) and it is reseeded from the pixel before the pixel is
+ * rendered, so the numbers a pixel gets don't depend on the thread that renders it or on the pixels rendered before
+ * it, and rendering a scene again gives the same image.<br>
+ * Besides the random numbers it provides low discrepancy sequences - Halton and Sobol - whose first elements are
+ * already spread evenly, and a blue noise offset for each pixel to shift a sequence by, so neighbor pixels don't
+ * repeat the same pattern.
+ */
+public final class Sampler {
+    /** the increment of the SplitMix64 state, the odd number closest to 2^64 divided by the golden ratio */
+    private static final long GOLDEN_GAMMA = 0x9e3779b97f4a7c15L;
+    /** the first R2 sequence coefficient, the inverse of the plastic number */
+    private static final double R2_X = 0.7548776662466927;
+    /** the second R2 sequence coefficient, the inverse of the square of the plastic number */
+    private static final double R2_Y = 0.5698402909980532;
+    /** the sampler of each thread */
+    private static final ThreadLocal<Sampler> samplers = ThreadLocal.withInitial(Sampler::new);
+
+    /** the state of the generator */
+    private long state = GOLDEN_GAMMA;
+    /** the blue noise offsets of the current pixel */
+    private double offsetX, offsetY;
+    /** the index of the next sample of the current pixel */
+    private int sample = 0;
+
+    /**
+     * Samplers are created only for the threads by {@link #current()}
+     */
+    private Sampler() {
+    }
+
+    /**
+     * The sampler of the current thread
+     *
+     * @return the sampler
+     */
+    public static Sampler current() {
+        return samplers.get();
+    }
+
+    /**
+     * Starts the samples of a pixel - reseeds the generator from the pixel and restarts the sample index
+     *
+     * @param x the column of the pixel
+     * @param y the row of the pixel
+     * @return the sampler itself
+     */
+    public Sampler setPixel(int x, int y) {
+        return setPixel(x, y, 0);
+    }
+
+    /**
+     * Starts the samples of a pass over a pixel - reseeds the generator from the pixel and the pass, so each pass
+     * gets other random numbers, and restarts the sample index
+     *
+     * @param x    the column of the pixel
+     * @param y    the row of the pixel
+     * @param pass the pass
+     * @return the sampler itself
+     */
+    public Sampler setPixel(int x, int y, int pass) {
+        state = mix64(((long) y << 32 | x & 0xffffffffL) * GOLDEN_GAMMA + pass);
+        offsetX = blueNoise(x, y);
+        offsetY = blueNoise(y, x);
+        sample = 0;
+        return this;
+    }
+
+    /**
+     * The next random number of the generator
+     *
+     * @return a random number in [0,1)
+     */
+    public double nextDouble() {
+        return (mix64(state += GOLDEN_GAMMA) >>> 11) * 0x1.0p-53;
+    }
+
+    /**
+     * A random number in a range
+     *
+     * @param min value (included)
+     * @param max value (excluded)
+     * @return the random number
+     */
+    public double nextDouble(double min, double max) {
+        return nextDouble() * (max - min) + min;
+    }
+
+    /**
+     * The index of the next sample of the current pixel, and moves on to the one after it
+     *
+     * @return the sample index
+     */
+    public int nextSample() {
+        return sample++;
+    }
+
+    /**
+     * The first coordinate of a sample of the current pixel - the Halton sequence of base 2, shifted by the blue noise
+     * offset of the pixel
+     *
+     * @param index the index of the sample
+     * @return the coordinate in [0,1)
+     */
+    public double sampleX(int index) {
+        return wrap(halton(2, index) + offsetX);
+    }
+
+    /**
+     * The second coordinate of a sample of the current pixel - the Halton sequence of base 3, shifted by the blue
+     * noise offset of the pixel
+     *
+     * @param index the index of the sample
+     * @return the coordinate in [0,1)
+     */
+    public double sampleY(int index) {
+        return wrap(halton(3, index) + offsetY);
+    }
+
+    /**
+     * The element of the Halton sequence of a base - the radical inverse of the index, its digits in the base
+     * mirrored around the fraction point
+     *
+     * @param base  the base, a prime number for the sequences of different bases to be independent
+     * @param index the index
+     * @return the element in [0,1)
+     */
+    public static double halton(int base, int index) {
+        double result = 0, digit = 1d / base;
+        for (; index > 0; index /= base, digit /= base)
+            result += (index % base) * digit;
+        return result;
+    }
+
+    /**
+     * The element of one of the first two dimensions of the Sobol sequence. Any 2^m elements of the two dimensions
+     * starting at a multiple of 2^m have exactly one point in each of the 2^m equal rectangles of any shape
+     *
+     * @param dimension the dimension, 0 or 1
+     * @param index     the index
+     * @return the element in [0,1)
+     */
+    public static double sobol(int dimension, int index) {
+        int result = 0;
+        // the direction numbers of the first dimension are 2^31, 2^30 ... which reverse the bits of the index, and the
+        // ones of the second dimension are made by the primitive polynomial x + 1
+        for (int v = 1 << 31; index != 0; index >>>= 1, v = dimension == 0 ? v >>> 1 : v ^ v >>> 1)
+            if ((index & 1) != 0) result ^= v;
+        return (result >>> 8) * 0x1.0p-24;
+    }
+
+    /**
+     * A blue noise value of a pixel - the R2 sequence over the pixels, which has no low frequencies so neighbor pixels
+     * get distant values
+     *
+     * @param x the column of the pixel
+     * @param y the row of the pixel
+     * @return the value in [0,1)
+     */
+    public static double blueNoise(int x, int y) {
+        double value = x * R2_X + y * R2_Y;
+        return value - Math.floor(value);
+    }
+
+    /**
+     * Wraps a number in [0,2) into [0,1)
+     *
+     * @param u the number
+     * @return the fraction of the number
+     */
+    public static double wrap(double u) {
+        return u < 1 ? u : u - 1;
+    }
+
+    /**
+     * The SplitMix64 output function, which mixes the bits of the state
+     *
+     * @param z the state
+     * @return the mixed bits
+     */
+    private static long mix64(long z) {
+        z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+        z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+        return z ^ (z >>> 31);
+    }
+}
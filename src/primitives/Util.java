@@ -1,11 +1,9 @@
 package primitives;
-import java.util.Random;
 /** Util class is used for some internal utilities, e.g. controlling accuracy
  * @author Dan */
 public final class Util {
    /** It is binary, equivalent to ~1/1,000,000,000,000 in decimal (12 digits) */
    private static final int ACCURACY = -40;
-    private static final Random random = new Random();
    /** Don't let anyone instantiate this class. */
    private Util() {}
 
@@ -45,12 +43,12 @@ public final class Util {
       return (n1 < 0 && n2 < 0) || (n1 > 0 && n2 > 0);
    }
 
-   /** Provide a real random number in range between min and max
+   /** Provide a real random number in range between min and max, from the {@link Sampler} of the thread
     * @param  min value (included)
     * @param  max value (excluded)
     * @return     the random value */
    public static double random(double min, double max) {
-      return Math.random() * (max - min) + min;
+      return Sampler.current().nextDouble(min, max);
    }
 
    /**
@@ -60,6 +58,6 @@ public final class Util {
     */
    public static int randomSign() {
 
-      return random.nextBoolean() ? 1 : -1;
+      return Sampler.current().nextDouble() < 0.5 ? 1 : -1;
    }
 }
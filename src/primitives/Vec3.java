@@ -0,0 +1,150 @@
+package primitives;
+
+/**
+ * Vector math over plain arrays of three doubles, for the inner loops of the ray tracer.<br>
+ * {@link Point}, {@link Vector}, {@link Double3} and {@link Color} are immutable, so each operation on them creates
+ * new objects (and a vector checks it isn't zero on creation). These functions write their result into an array given
+ * by the caller instead, so a calculation may reuse the same arrays for all its steps. The arrays hold X, Y and Z of a
+ * point or a vector, or R, G and B of a color, and nothing is checked.
+ */
+public final class Vec3 {
+    /**
+     * Don't let anyone instantiate this class.
+     */
+    private Vec3() {
+    }
+
+    /**
+     * copies the coordinates of a point (or a vector) into an array
+     *
+     * @param out the result array
+     * @param p   the point
+     * @return the result array
+     */
+    public static double[] set(double[] out, Point p) {
+        return set(out, p.xyz);
+    }
+
+    /**
+     * copies the components of a color into an array
+     *
+     * @param out   the result array
+     * @param color the color
+     * @return the result array
+     */
+    public static double[] set(double[] out, Color color) {
+        return set(out, color.getRgb());
+    }
+
+    /**
+     * copies a triad of numbers into an array
+     *
+     * @param out the result array
+     * @param d   the numbers
+     * @return the result array
+     */
+    public static double[] set(double[] out, Double3 d) {
+        out[0] = d.d1;
+        out[1] = d.d2;
+        out[2] = d.d3;
+        return out;
+    }
+
+    /**
+     * fills an array with zeros
+     *
+     * @param out the array
+     * @return the array
+     */
+    public static double[] zero(double[] out) {
+        out[0] = out[1] = out[2] = 0;
+        return out;
+    }
+
+    /**
+     * the dot product of two vectors
+     *
+     * @param a the first vector
+     * @param b the second vector
+     * @return the dot product
+     */
+    public static double dot(double[] a, double[] b) {
+        return a[0] * b[0] + a[1] * b[1] + a[2] * b[2];
+    }
+
+    /**
+     * the length of a vector
+     *
+     * @param a the vector
+     * @return the length
+     */
+    public static double length(double[] a) {
+        return Math.sqrt(dot(a, a));
+    }
+
+    /**
+     * scales a vector
+     *
+     * @param out the result array, it may be the vector array
+     * @param a   the vector
+     * @param s   the scaling factor
+     * @return the result array
+     */
+    public static double[] scale(double[] out, double[] a, double s) {
+        out[0] = a[0] * s;
+        out[1] = a[1] * s;
+        out[2] = a[2] * s;
+        return out;
+    }
+
+    /**
+     * adds a scaled vector to a vector: a + s * b
+     *
+     * @param out the result array, it may be one of the vector arrays
+     * @param a   the first vector
+     * @param s   the scaling factor of the second vector
+     * @param b   the second vector
+     * @return the result array
+     */
+    public static double[] scaleAdd(double[] out, double[] a, double s, double[] b) {
+        out[0] = a[0] + s * b[0];
+        out[1] = a[1] + s * b[1];
+        out[2] = a[2] + s * b[2];
+        return out;
+    }
+
+    /**
+     * multiplies two triads component by component
+     *
+     * @param out the result array, it may be one of the triad arrays
+     * @param a   the first triad
+     * @param b   the second triad
+     * @return the result array
+     */
+    public static double[] product(double[] out, double[] a, double[] b) {
+        out[0] = a[0] * b[0];
+        out[1] = a[1] * b[1];
+        out[2] = a[2] * b[2];
+        return out;
+    }
+
+    /**
+     * normalizes a vector in place
+     *
+     * @param a the vector, it must not be zero
+     * @return the vector array
+     */
+    public static double[] normalize(double[] a) {
+        return scale(a, a, 1 / length(a));
+    }
+
+    /**
+     * creates a color from an array of its components
+     *
+     * @param rgb the components
+     * @return the color
+     */
+    public static Color toColor(double[] rgb) {
+        return new Color(rgb[0], rgb[1], rgb[2]);
+    }
+}
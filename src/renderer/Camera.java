@@ -1,12 +1,19 @@
 package renderer;
 
 import primitives.Color;
+import primitives.Double3;
 import primitives.Point;
+import primitives.Sampler;
 import primitives.Ray;
 import primitives.Vector;
 
+import java.time.Duration;
+import java.time.Instant;
 import java.util.LinkedList;
 import java.util.MissingResourceException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.stream.IntStream;
 
 import static primitives.Util.alignZero;
 import static primitives.Util.isZero;
@@ -26,9 +33,46 @@ public class Camera implements Cloneable {
     private RayTracerBase rayTracer;
     // threads management
     private PixelManager pixelManager;
-    private int threadsCount = 0; // -2 auto, -1 range/stream, 0 no threads, 1+ number of threadsprivate
-    final int SPARE_THREADS = 2; // Spare threads if trying to use all the coresprivate
-    double printInterval = 0; // printing progress percentage interval
+    private int threadsCount = 0; // -2 auto, -1 range/stream, 0 no threads, 1+ number of threads
+    private final int SPARE_THREADS = 2; // Spare threads if trying to use all the cores
+    private double printInterval = 0; // printing progress percentage interval
+    private int tileSize = PixelManager.DEFAULT_TILE_SIZE; // size of the tiles edge the threads take in pixels
+    private int virtualThreads = 0; // 0 virtual threads are not used, 1+ maximum tiles rendered at once
+    private volatile boolean cancelled = false; // set when the running (or the next) render was asked to stop
+    private volatile boolean lastCancelled = false; // whether the last finished render was cancelled
+    // adaptive super sampling
+    private int samplingDepth = 0; // 0 a single ray through the pixel center, 1+ levels of pixel subdivision
+    private double samplingThreshold = 0; // color difference between samples which subdivides their area
+    private RenderStatistics statistics = null; // the statistics collector, null if the statistics aren't collected
+    // progressive rendering
+    private int pass = -1; // the current pass of a progressive render, -1 if the render isn't progressive
+    private boolean budgeted = false; // whether the progressive render has a deadline
+    private long deadline = 0; // the System.nanoTime of the deadline of the progressive render
+    private volatile boolean timedOut = false; // set when tiles of the current pass were skipped at the deadline
+
+    /**
+     * A listener to the passes of a progressive render
+     */
+    @FunctionalInterface
+    public interface ProgressListener {
+        /**
+         * Called after a pass of a progressive render, when the image writer has the average of all the passes so far
+         *
+         * @param camera          the rendering camera
+         * @param samplesPerPixel the amount of samples of each pixel so far
+         */
+        void passRendered(Camera camera, int samplesPerPixel);
+    }
+
+    /**
+     * The result of a time budgeted render
+     *
+     * @param image           the image writer holding the best image reached until the deadline
+     * @param samplesPerPixel the amount of samples every pixel got - the amount of the passes completed until the
+     *                        deadline
+     */
+    public record RenderResult(ImageWriter image, int samplesPerPixel) {
+    }
 
     /**
      * Camera constructor
@@ -68,8 +112,6 @@ public class Camera implements Cloneable {
      * @return the ray through the pixel
      */
     public Ray constructRay(int nX, int nY, int j, int i) {
-        // Pc is the center of the view plane
-        Point pC = location.add(to.scale(distance));
         // ratio of the view plane-the size of the pixel
         double rY = height / nY;
         double rX = width / nX;
@@ -77,14 +119,25 @@ public class Camera implements Cloneable {
         double xI = (j - (nX - 1) / 2.0) * rX;
         double yI = -(i - (nY - 1) / 2.0) * rY;
 
-        Point pIJ = pC;
+        return constructRay(xI, yI);
+    }
+
+    /**
+     * Construct Ray through a point on the view plane
+     *
+     * @param xI the distance of the point from the center of the view plane to the right
+     * @param yI the distance of the point from the center of the view plane upwards
+     * @return the ray through the point
+     */
+    private Ray constructRay(double xI, double yI) {
+        // Pc is the center of the view plane
+        Point pIJ = location.add(to.scale(distance));
         if (!isZero(xI))
             pIJ = pIJ.add(right.scale(xI));
         if (!isZero(yI))
             pIJ = pIJ.add(up.scale(yI));
 
         return new Ray(location, pIJ.subtract(location));
-
     }
 
     /**
@@ -93,30 +146,155 @@ public class Camera implements Cloneable {
      * @return the camera
      */
     public Camera renderImage() {
+        startRendering();
+        renderTiles(imageWriter.getNx(), imageWriter.getNy());
+        finishRendering();
+        return this;
+    }
+
+    /**
+     * Render the image progressively - in passes of a single ray through each pixel. The first pass gives a coarse
+     * image within the time of a plain render, and each following pass adds a sample at another point of each pixel
+     * (by the Halton sequence of the pixel in the {@link Sampler}) to the average of the samples, which the image
+     * writer keeps in its pixels, so its image is always the average of the samples so far.<br>
+     * After each pass the listener is called, so it can publish the image - e.g. write it by
+     * {@link #writeToImage()}, which overwrites the PNG file with the better image every time. The listener (or any
+     * other thread) may stop the render at any quality by {@link #cancelRendering()}. The adaptive super sampling
+     * isn't used in this mode.
+     *
+     * @param passes   the maximal amount of passes, which is the amount of samples per pixel
+     * @param listener the listener to the completion of the passes, may be null
+     * @return the camera
+     */
+    public Camera renderProgressive(int passes, ProgressListener listener) {
+        if (passes < 1) throw new IllegalArgumentException("The amount of passes must be positive");
+        startRendering();
+        renderPasses(passes, listener);
+        finishRendering();
+        return this;
+    }
+
+    /**
+     * Render the image progressively (see {@link #renderProgressive(int, ProgressListener)}) until a deadline - the
+     * passes are refining the image while there is time, and at the deadline the tiles of the running pass are
+     * finished and the rest of them are skipped, so the render returns shortly after it. The first pass is always
+     * completed, so the image is whole even if the deadline is too early for it, and the pixels of the tiles the
+     * stopped pass has rendered keep its sample too.<br>
+     * Stopping at the deadline doesn't count as a cancellation - {@link #isCancelled()} is true only if the render
+     * was cancelled by {@link #cancelRendering()}.
+     *
+     * @param deadline  the time to stop refining the image at
+     * @param maxPasses the maximal amount of passes, the render ends before the deadline once it completes them
+     * @param listener  the listener to the completion of the passes, may be null
+     * @return the image writer with the image and the amount of samples per pixel of the passes completed
+     */
+    public RenderResult renderUntil(Instant deadline, int maxPasses, ProgressListener listener) {
+        if (maxPasses < 1) throw new IllegalArgumentException("The amount of passes must be positive");
+        startRendering();
+        budgeted = true;
+        this.deadline = System.nanoTime() + Duration.between(Instant.now(), deadline).toNanos();
+        int samples;
+        try {
+            samples = renderPasses(maxPasses, listener);
+        } finally {
+            budgeted = false;
+            timedOut = false;
+        }
+        finishRendering();
+        return new RenderResult(imageWriter, samples);
+    }
+
+    /**
+     * Render the passes of a progressive render into the image writer
+     *
+     * @param passes   the maximal amount of passes
+     * @param listener the listener to the completion of the passes, may be null
+     * @return the amount of passes completed
+     */
+    private int renderPasses(int passes, ProgressListener listener) {
+        int nX = imageWriter.getNx();
+        int nY = imageWriter.getNy();
+        timedOut = false;
+        int completed = 0;
+        try {
+            for (pass = 0; pass < passes; pass++) {
+                renderTiles(nX, nY);
+                if (cancelled || timedOut) break;
+                completed = pass + 1;
+                if (listener != null) listener.passRendered(this, completed);
+            }
+        } finally {
+            pass = -1;
+        }
+        return completed;
+    }
+
+    /**
+     * Check the camera can render and prepare the rendering
+     */
+    private void startRendering() {
         if (imageWriter == null)
             throw new MissingResourceException("Missing ImageWriter", "Camera", "imageWriter");
         if (rayTracer == null)
             throw new MissingResourceException("Missing RayTracer", "Camera", "rayTracer");
-        int nX = imageWriter.getNx();
-        int nY = imageWriter.getNy();
-        pixelManager = new PixelManager(nY, nX, printInterval);
+        if (statistics != null) statistics.renderStarted();
+    }
 
-        if (threadsCount == 0) {
-            for (int i = 0; i < nX; i++) {
-                for (int j = 0; j < nY; j++) {
-                    castRay(nX, nY, i, j);
+    /**
+     * End the rendering - keep whether it was cancelled and clear the cancellation before the render returns, so a
+     * cancellation that comes after it applies to the next render
+     */
+    private void finishRendering() {
+        lastCancelled = cancelled;
+        cancelled = false;
+        if (statistics != null) statistics.renderFinished();
+    }
+
+    /**
+     * Render all the tiles of the image by the threads mode of the camera
+     *
+     * @param nX the number of columns in the view plane
+     * @param nY the number of rows in the view plane
+     */
+    private void renderTiles(int nX, int nY) {
+        pixelManager = new PixelManager(nY, nX, tileSize, printInterval);
+        if (virtualThreads > 0) {
+            // every tile is rendered by its own virtual thread, the semaphore caps how many run at once
+            Semaphore permits = new Semaphore(virtualThreads);
+            try (var executor = Executors.newVirtualThreadPerTaskExecutor()) {
+                for (int i = 0; i < pixelManager.tilesCount() && !cancelled && !timedOut; i++) {
+                    permits.acquire();
+                    PixelManager.Tile tile = pixelManager.getTile(i);
+                    executor.execute(() -> {
+                        try {
+                            renderTile(nX, nY, tile);
+                        } finally {
+                            permits.release();
+                        }
+                    });
                 }
+            } catch (InterruptedException ignore) {
+                cancelled = true;
+                Thread.currentThread().interrupt();
             }
+        } else if (threadsCount == 0) {
+            PixelManager.Tile tile;
+            while ((tile = pixelManager.nextTile()) != null)
+                renderTile(nX, nY, tile);
+        } else if (threadsCount == -1) {
+            // the tiles are split between the threads of the common fork/join pool, which steal work from each other
+            IntStream.range(0, pixelManager.tilesCount()).parallel()
+                    .forEach(i -> renderTile(nX, nY, pixelManager.getTile(i)));
         } else {
 
             var threads = new LinkedList<Thread>(); // list of threads
-            while (threadsCount-- > 0) // add appropriate number of threads
+            for (int i = 0; i < threadsCount; i++) // add appropriate number of threads
                 threads.add(new Thread(() -> { // add a thread with its code
-                    PixelManager.Pixel pixel; // current pixel(row,col)
-                    // allocate pixel(row,col) in loop until there are no more pixels
-                    while ((pixel = pixelManager.nextPixel()) != null)
-                        // cast ray through pixel (and color it – inside castRay)
-                        castRay(nX, nY, pixel.col(), pixel.row());
+                    PixelManager.Tile tile; // current tile
+                    // allocate tiles in loop until there are no more tiles
+                    while ((tile = pixelManager.nextTile()) != null)
+                        // cast rays through the tile pixels (and color them – inside castRay)
+                        renderTile(nX, nY, tile);
                 }));
             // start all the threads
             for (var thread : threads) thread.start();
@@ -127,8 +305,6 @@ public class Camera implements Cloneable {
             }
 
         }
-
-        return this;
     }
 
     /**
@@ -140,8 +316,152 @@ public class Camera implements Cloneable {
      * @param row the y index of the pixel
      */
     private void castRay(int nX, int nY, int column, int row) {
-        imageWriter.writePixel(column, row, rayTracer.traceRay(constructRay(nX, nY, column, row)));
-        pixelManager.pixelDone();
+        if (pass >= 0) {
+            castProgressiveRay(nX, nY, column, row);
+            return;
+        }
+        Sampler.current().setPixel(column, row);
+        if (samplingDepth == 0) {
+            imageWriter.writePixel(column, row, rayTracer.traceRay(constructRay(nX, nY, column, row)));
+            return;
+        }
+        double rY = height / nY;
+        double rX = width / nX;
+        imageWriter.writePixel(column, row, castSamples((column - (nX - 1) / 2.0) * rX,
+                -(row - (nY - 1) / 2.0) * rY, rX, rY, samplingDepth, null, 0, 0));
+    }
+
+    /**
+     * Cast the ray of the current pass through a pixel and add its color to the average of the pixel samples so far
+     *
+     * @param nX     the number of columns in the view plane
+     * @param nY     the number of rows in the view plane
+     * @param column the x index of the pixel
+     * @param row    the y index of the pixel
+     */
+    private void castProgressiveRay(int nX, int nY, int column, int row) {
+        Sampler sampler = Sampler.current().setPixel(column, row, pass);
+        double rY = height / nY;
+        double rX = width / nX;
+        Color color = rayTracer.traceRay(constructRay((column - (nX - 1) / 2.0 + sampler.sampleX(pass) - 0.5) * rX,
+                -(row - (nY - 1) / 2.0 + sampler.sampleY(pass) - 0.5) * rY));
+        imageWriter.addSample(column, row, color, pass + 1);
+    }
+
+    /**
+     * Sample an area of the view plane adaptively. One jittered ray is cast through each quarter of the area, at the
+     * next sample of the pixel in the {@link Sampler}, and if the colors of the rays differ by more than the sampling
+     * threshold, each quarter is sampled the same way instead, until the depth is exhausted. A subdivided quarter
+     * keeps the sample it already has for the sub quarter it falls in, so it casts only 3 new rays. So flat areas
+     * cost 4 rays and only the edges get more of them.
+     *
+     * @param xI     the distance of the area center from the center of the view plane to the right
+     * @param yI     the distance of the area center from the center of the view plane upwards
+     * @param rX     the width of the area
+     * @param rY     the height of the area
+     * @param depth  the levels of subdivision left
+     * @param known  the color of a sample that was already cast in the area, null if there is none
+     * @param knownX the position of the known sample across the area, in [0,1) from its left side
+     * @param knownY the position of the known sample along the area, in [0,1) from its bottom side
+     * @return the average color of the area
+     */
+    private Color castSamples(double xI, double yI, double rX, double rY, int depth, Color known, double knownX,
+                              double knownY) {
+        Sampler sampler = Sampler.current();
+        double halfX = rX / 2, halfY = rY / 2;
+        // the quarters are left or right by the first bit and down or up by the second
+        int knownQuarter = known == null ? -1 : (knownX < 0.5 ? 0 : 1) | (knownY < 0.5 ? 0 : 2);
+        Color[] colors = new Color[4];
+        double[] sampleX = new double[4], sampleY = new double[4];
+        double[] min = {Double.POSITIVE_INFINITY, Double.POSITIVE_INFINITY, Double.POSITIVE_INFINITY};
+        double[] max = {Double.NEGATIVE_INFINITY, Double.NEGATIVE_INFINITY, Double.NEGATIVE_INFINITY};
+        for (int q = 0; q < 4; q++) {
+            if (q == knownQuarter) {
+                colors[q] = known;
+                sampleX[q] = 2 * knownX - (q & 1);
+                sampleY[q] = 2 * knownY - (q >> 1);
+            } else {
+                // a sample point in the quarter
+                int sample = sampler.nextSample();
+                sampleX[q] = sampler.sampleX(sample);
+                sampleY[q] = sampler.sampleY(sample);
+                colors[q] = rayTracer.traceRay(constructRay(xI + ((q & 1) - 1 + sampleX[q]) * halfX,
+                        yI + ((q >> 1) - 1 + sampleY[q]) * halfY));
+            }
+            Double3 rgb = colors[q].getRgb();
+            min[0] = Math.min(min[0], rgb.getD1());
+            min[1] = Math.min(min[1], rgb.getD2());
+            min[2] = Math.min(min[2], rgb.getD3());
+            max[0] = Math.max(max[0], rgb.getD1());
+            max[1] = Math.max(max[1], rgb.getD2());
+            max[2] = Math.max(max[2], rgb.getD3());
+        }
+        if (depth > 1 && (max[0] - min[0] > samplingThreshold || max[1] - min[1] > samplingThreshold
+                || max[2] - min[2] > samplingThreshold))
+            for (int q = 0; q < 4; q++)
+                colors[q] = castSamples(xI + ((q & 1) - 0.5) * halfX, yI + ((q >> 1) - 0.5) * halfY,
+                        halfX, halfY, depth - 1, colors[q], sampleX[q], sampleY[q]);
+        return colors[0].add(colors[1], colors[2], colors[3]).reduce(4);
+    }
+
+    /**
+     * Cast rays through all the pixels of a tile and report its completion
+     *
+     * @param nX   the number of columns in the view plane
+     * @param nY   the number of rows in the view plane
+     * @param tile the tile to render
+     */
+    private void renderTile(int nX, int nY, PixelManager.Tile tile) {
+        if (cancelled || timedOut) return;
+        if (budgeted && pass > 0 && System.nanoTime() - deadline >= 0) {
+            timedOut = true;
+            return;
+        }
+        if (statistics == null) {
+            castRays(nX, nY, tile);
+        } else {
+            long start = System.nanoTime();
+            RayTracerBase.setStatistics(statistics);
+            try {
+                castRays(nX, nY, tile);
+            } finally {
+                RayTracerBase.setStatistics(null);
+            }
+            statistics.tileRendered(tile, System.nanoTime() - start);
+        }
+        pixelManager.tileDone(tile);
+    }
+
+    /**
+     * Cast rays through all the pixels of a tile
+     *
+     * @param nX   the number of columns in the view plane
+     * @param nY   the number of rows in the view plane
+     * @param tile the tile to render
+     */
+    private void castRays(int nX, int nY, PixelManager.Tile tile) {
+        for (int row = tile.row(); row < tile.row() + tile.height(); row++)
+            for (int column = tile.col(); column < tile.col() + tile.width(); column++)
+                castRay(nX, nY, column, row);
+    }
+
+    /**
+     * Cancel the rendering that is running now. The tiles that are being rendered are finished and the rest of the
+     * tiles are skipped, so renderImage returns shortly with a partial image. If no rendering is running, the next
+     * one is cancelled as soon as it starts, so a cancellation isn't lost when it comes just before the rendering
+     * starts. It is safe to call from any thread.
+     */
+    public void cancelRendering() {
+        cancelled = true;
+    }
+
+    /**
+     * Check whether the last finished rendering was cancelled
+     *
+     * @return true if the last rendering was cancelled
+     */
+    public boolean isCancelled() {
+        return lastCancelled;
     }
 
     /**
@@ -261,6 +581,12 @@ public class Camera implements Cloneable {
 
         /**
          * Set the threads count
+         * <ul>
+         * <li>-2 - the amount of threads is chosen by the available cores</li>
+         * <li>-1 - the tiles are rendered by a parallel stream in the common fork/join pool</li>
+         * <li>0 - no threads, the image is rendered by the calling thread</li>
+         * <li>1 or more - the amount of threads to render with</li>
+         * </ul>
          *
          * @param threads the number of threads
          * @return the builder for chaining calls
@@ -275,6 +601,64 @@ public class Camera implements Cloneable {
             return this;
         }
 
+        /**
+         * Set the size of the square tiles of pixels the image is divided to, a thread renders a whole tile
+         * before it takes the next one
+         *
+         * @param tileSize the size of a tile edge in pixels
+         * @return the builder for chaining calls
+         */
+        public Builder setTileSize(int tileSize) {
+            if (tileSize < 1) throw new IllegalArgumentException("Tile size must be positive");
+            this.camera.tileSize = tileSize;
+            return this;
+        }
+
+        /**
+         * Render with virtual threads - every tile is submitted as a task to a virtual-thread-per-task executor,
+         * which is convenient for running many renders from one JVM at once without managing platform threads.
+         * This mode is used instead of the threads count when it is set.
+         *
+         * @param parallelism the maximum amount of tiles rendered at once, 0 to stop using virtual threads
+         * @return the builder for chaining calls
+         */
+        public Builder setVirtualThreads(int parallelism) {
+            if (parallelism < 0) throw new IllegalArgumentException("Virtual threads parallelism must not be negative");
+            this.camera.virtualThreads = parallelism;
+            return this;
+        }
+
+        /**
+         * Render with adaptive super sampling (anti-aliasing) instead of a single ray through each pixel center.
+         * Every pixel is sampled by a jittered ray through each of its quarters, and a quarter is subdivided and
+         * sampled again while the colors of the samples differ by more than the threshold. Flat areas are sampled by
+         * 4 rays per pixel and edges by up to 4 to the power of the depth rays.
+         *
+         * @param depth     the maximal levels of subdivision, 0 for a single ray through the pixel center
+         * @param threshold the maximal difference of a color component between the samples of an area which isn't
+         *                  subdivided, in the 0-255 scale of the colors
+         * @return the builder for chaining calls
+         */
+        public Builder setAdaptiveSuperSampling(int depth, double threshold) {
+            if (depth < 0) throw new IllegalArgumentException("Super sampling depth must not be negative");
+            if (threshold < 0) throw new IllegalArgumentException("Super sampling threshold must not be negative");
+            this.camera.samplingDepth = depth;
+            this.camera.samplingThreshold = threshold;
+            return this;
+        }
+
+        /**
+         * Collect statistics of the renders - the rays of each kind, the intersection tests, the recursion depth and
+         * the rendering time of the tiles. The statistics are accumulated over the renders until they are reset.
+         *
+         * @param statistics the statistics collector, null to stop collecting the statistics
+         * @return the builder for chaining calls
+         */
+        public Builder setStatistics(RenderStatistics statistics) {
+            this.camera.statistics = statistics;
+            return this;
+        }
+
         /**
          * Set the debug print
          *
@@ -9,13 +9,32 @@ import java.util.logging.Logger;
 import javax.imageio.ImageIO;
 
 import primitives.Color;
+import primitives.Double3;
 
 /** Image writer class combines accumulation of pixel color matrix and finally
  * producing a non-optimized jpeg image from this matrix. The class although is
  * responsible of holding image related parameters of View Plane - pixel matrix
- * size and resolution
+ * size and resolution<br>
+ * The pixel colors are kept in their full (high dynamic) range in a float
+ * matrix, which the rendering threads write into without locking since each
+ * pixel is written by a single thread. They are brought to the printable range
+ * only when the image is written - multiplied by the exposure and mapped by the
+ * tone mapping operator in one pass over the matrix
  * @author Dan */
 public class ImageWriter {
+   /** Tone mapping operators - the ways to map colors of any brightness into the
+    * printable range */
+   public enum ToneMapping {
+      /** any component brighter than 255 is cut to 255 */
+      CLAMP,
+      /** Reinhard operator x/(1+x) - compresses the bright components smoothly,
+       * never reaching the full white */
+      REINHARD,
+      /** ACES filmic curve (the fit of Krzysztof Narkowicz) - a contrasted S
+       * curve, which saturates the bright components to white */
+      ACES
+   }
+
    /** Horizontal resolution of the image - number of pixels in row */
    private int                 nX;
    /** Vertical resolution of the image - number of pixels in column */
@@ -25,8 +44,13 @@ public class ImageWriter {
     * directory */
    private static final String FOLDER_PATH = System.getProperty("user.dir") + "/images";
 
-   /** Image generation buffer (the matrix of the pixels) */
-   private BufferedImage       image;
+   /** Image generation buffer (the matrix of the pixels) - the red, green and
+    * blue components of each pixel in rows of pixels */
+   private final float[]       pixels;
+   /** tone mapping operator of the printed image */
+   private ToneMapping         toneMapping = ToneMapping.CLAMP;
+   /** factor the colors are multiplied by before the tone mapping */
+   private float               exposure    = 1;
    /** image file name, not including the file extension '.png' */
    private String              imageName;
    /** logger for reporting I/O failures */
@@ -42,7 +66,7 @@ public class ImageWriter {
       this.nX        = nX;
       this.nY        = nY;
 
-      image          = new BufferedImage(nX, nY, BufferedImage.TYPE_INT_RGB);
+      pixels         = new float[3 * nX * nY];
    }
 
    // ***************** Getters/Setters ********************** //
@@ -54,6 +78,25 @@ public class ImageWriter {
     * @return the amount of horizontal pixels */
    public int getNx() { return nX; }
 
+   /** Setter of the tone mapping operator of the printed image, clamping by
+    * default
+    * @param  toneMapping the tone mapping operator
+    * @return             the image writer itself */
+   public ImageWriter setToneMapping(ToneMapping toneMapping) {
+      if (toneMapping == null) throw new IllegalArgumentException("Missing tone mapping operator");
+      this.toneMapping = toneMapping;
+      return this;
+   }
+
+   /** Setter of the exposure of the printed image in stops - each stop doubles
+    * the colors before the tone mapping, 0 by default
+    * @param  stops the exposure
+    * @return       the image writer itself */
+   public ImageWriter setExposure(double stops) {
+      exposure = (float) Math.pow(2, stops);
+      return this;
+   }
+
    // ***************** Operations ******************** //
 
    /** Function writeToImage produces unoptimized png file of the image according
@@ -62,7 +105,7 @@ public class ImageWriter {
    public void writeToImage() {
       try {
          File file = new File(FOLDER_PATH + '/' + imageName + ".png");
-         ImageIO.write(image, "png", file);
+         ImageIO.write(toneMap(), "png", file);
       } catch (IOException e) {
          logger.log(Level.SEVERE, "I/O error", e);
          throw new IllegalStateException("I/O error - may be missing directory " + FOLDER_PATH, e);
@@ -75,8 +118,88 @@ public class ImageWriter {
     * @param yIndex Y axis index of the pixel
     * @param color  final color of the pixel */
    public void writePixel(int xIndex, int yIndex, Color color) {
-      image.setRGB(xIndex, yIndex, color.getColor().getRGB());
+      Double3 rgb = color.getRgb();
+      int     i   = 3 * (yIndex * nX + xIndex);
+      pixels[i]     = (float) rgb.getD1();
+      pixels[i + 1] = (float) rgb.getD2();
+      pixels[i + 2] = (float) rgb.getD3();
    }
 
-}
+   /** Add a sample to a pixel of a progressive render - the pixel color is the
+    * running average of its samples, so the matrix always holds the image of
+    * the samples so far and needs no buffer of sums
+    * @param xIndex  X axis index of the pixel
+    * @param yIndex  Y axis index of the pixel
+    * @param color   the color of the sample
+    * @param samples the amount of samples of the pixel including this one, the
+    *                first sample overwrites the pixel */
+   void addSample(int xIndex, int yIndex, Color color, int samples) {
+      Double3 rgb    = color.getRgb();
+      int     i      = 3 * (yIndex * nX + xIndex);
+      float   weight = 1f / samples;
+      pixels[i]     += ((float) rgb.getD1() - pixels[i]) * weight;
+      pixels[i + 1] += ((float) rgb.getD2() - pixels[i + 1]) * weight;
+      pixels[i + 2] += ((float) rgb.getD3() - pixels[i + 2]) * weight;
+   }
+
+   /** The color of a specific pixel in the pixel color matrix - before the
+    * exposure and the tone mapping
+    * @param  xIndex X axis index of the pixel
+    * @param  yIndex Y axis index of the pixel
+    * @return        the color of the pixel */
+   public Color getPixel(int xIndex, int yIndex) {
+      int i = 3 * (yIndex * nX + xIndex);
+      return new Color(pixels[i], pixels[i + 1], pixels[i + 2]);
+   }
 
+   /** Produce the printable image of the pixel color matrix by the exposure and
+    * the tone mapping operator
+    * @return the image */
+   BufferedImage toneMap() {
+      int[] rgb = new int[nX * nY];
+      switch (toneMapping) {
+         case CLAMP -> {
+            for (int p = 0, i = 0; p < rgb.length; p++, i += 3)
+               rgb[p] = clamp(pixels[i] * exposure) << 16 | clamp(pixels[i + 1] * exposure) << 8
+                     | clamp(pixels[i + 2] * exposure);
+         }
+         case REINHARD -> {
+            for (int p = 0, i = 0; p < rgb.length; p++, i += 3)
+               rgb[p] = reinhard(pixels[i] * exposure) << 16 | reinhard(pixels[i + 1] * exposure) << 8
+                     | reinhard(pixels[i + 2] * exposure);
+         }
+         case ACES -> {
+            for (int p = 0, i = 0; p < rgb.length; p++, i += 3)
+               rgb[p] = aces(pixels[i] * exposure) << 16 | aces(pixels[i + 1] * exposure) << 8
+                     | aces(pixels[i + 2] * exposure);
+         }
+      }
+      BufferedImage image = new BufferedImage(nX, nY, BufferedImage.TYPE_INT_RGB);
+      image.setRGB(0, 0, nX, nY, rgb, 0, nX);
+      return image;
+   }
+
+   /** Cut a color component to the printable range
+    * @param  c the component, 0 to whatever...
+    * @return   the printable component, 0 to 255 */
+   private static int clamp(float c) {
+      int ic = (int) c;
+      return ic > 255 ? 255 : ic;
+   }
+
+   /** Map a color component by Reinhard operator
+    * @param  c the component, 0 to whatever...
+    * @return   the printable component, 0 to 255 */
+   private static int reinhard(float c) {
+      return clamp(255 * c / (255 + c));
+   }
+
+   /** Map a color component by the ACES filmic curve
+    * @param  c the component, 0 to whatever...
+    * @return   the printable component, 0 to 255 */
+   private static int aces(float c) {
+      float x = c / 255;
+      return clamp(255 * x * (2.51f * x + 0.03f) / (x * (2.43f * x + 0.59f) + 0.14f));
+   }
+
+}
@@ -1,94 +1,106 @@
 package renderer;
 
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
 /** PixelManager is a helper class. It is used for multi-threading in the
  * renderer and
  * for follow up its progress.<br/>
- * A Camera uses one pixel manager object and several Pixel objects - one in
- * each thread.
+ * The image is divided into square tiles of pixels, and the threads take the
+ * tiles one by one from a shared atomic counter, so a thread that finishes its
+ * tile early just takes the next free one. Neither the tiles allocation nor the
+ * progress update take a lock.<br/>
+ * A Camera uses one pixel manager object and several Tile objects - one in
+ * each thread at a time.
  * @author Dan Zilberstein */
 class PixelManager {
-    /** Immutable class for object containing allocated pixel (with its row and
-     * column numbers) */
-    record Pixel(int col, int row) {
+    /** Immutable class for object containing allocated tile (with its first
+     * column and row numbers and its size in pixels) */
+    record Tile(int col, int row, int width, int height) {
     }
 
+    /** Default size of a tile edge in pixels */
+    static final int            DEFAULT_TILE_SIZE = 16;
+
     /** Maximum rows of pixels */
-    private int                 maxRows       = 0;
+    private final int           maxRows;
     /** Maximum columns of pixels */
-    private int                 maxCols       = 0;
+    private final int           maxCols;
+    /** Size of a tile edge in pixels */
+    private final int           tileSize;
+    /** Amount of tiles in a row of tiles */
+    private final int           tilesInRow;
+    /** Total amount of tiles in the image */
+    private final int           totalTiles;
     /** Total amount of pixels in the generated image */
-    private long                totalPixels   = 0l;
+    private final long          totalPixels;
 
-    /** Currently processed row of pixels */
-    private volatile int        cRow          = 0;
-    /** Currently processed column of pixels */
-    private volatile int        cCol          = -1;
-    /** Amount of pixels that have been processed */
-    private volatile long       pixels        = 0l;
+    /** Index of the next tile to allocate */
+    private final AtomicInteger nextTile          = new AtomicInteger();
+    /** Amount of pixels that have been processed - striped between the threads
+     * and summed up only for printing */
+    private final LongAdder     pixels            = new LongAdder();
     /** Last printed progress update percentage */
-    private volatile int        lastPrinted   = 0;
+    private final AtomicInteger lastPrinted       = new AtomicInteger();
 
     /** Flag of debug printing of progress percentage */
-    private boolean             print         = false;
+    private final boolean       print;
     /** Progress percentage printing interval */
-    private long                printInterval = 100l;
+    private final long          printInterval;
     /** Printing format */
-    private static final String PRINT_FORMAT  = "%5.1f%%\r";
-    /** Mutual exclusion object for synchronizing next pixel allocation between
-     * threads */
-    private Object              mutexNext     = new Object();
-    /** Mutual exclusion object for printing progress percentage in console window
-     * by different threads */
-    private Object              mutexPixels   = new Object();
+    private static final String PRINT_FORMAT      = "%5.1f%%\r";
 
     /** Initialize pixel manager data for multi-threading
      * @param maxRows  the amount of pixel rows
      * @param maxCols  the amount of pixel columns
+     * @param tileSize the size of a tile edge in pixels
      * @param interval print time interval in seconds, 0 if printing is not
      *                 required */
-    PixelManager(int maxRows, int maxCols, double interval) {
+    PixelManager(int maxRows, int maxCols, int tileSize, double interval) {
         this.maxRows  = maxRows;
         this.maxCols  = maxCols;
+        this.tileSize = tileSize;
+        tilesInRow    = (maxCols + tileSize - 1) / tileSize;
+        totalTiles    = tilesInRow * ((maxRows + tileSize - 1) / tileSize);
         totalPixels   = (long) maxRows * maxCols;
         printInterval = (int) (interval * 10);
         if (print = printInterval != 0) System.out.printf(PRINT_FORMAT, 0d);
     }
 
-    /** Function for thread-safe manipulating of main follow up Pixel object - this
-     * function is critical section for all the threads, and the pixel manager data
-     * is the shared data of this critical section.<br/>
-     * The function provides next available pixel number each call.
-     * @return true if next pixel is allocated, false if there are no more pixels */
-    Pixel nextPixel() {
-        synchronized (mutexNext) {
-            if (cRow == maxRows) return null;
+    /** Amount of tiles in the image
+     * @return the amount of tiles */
+    int tilesCount() { return totalTiles; }
 
-            ++cCol;
-            if (cCol < maxCols)
-                return new Pixel(cRow, cCol);
+    /** Provides a tile by its index, the tiles are indexed row by row
+     * @param  index the tile index
+     * @return       the tile */
+    Tile getTile(int index) {
+        int col = (index % tilesInRow) * tileSize;
+        int row = (index / tilesInRow) * tileSize;
+        return new Tile(col, row, Math.min(tileSize, maxCols - col), Math.min(tileSize, maxRows - row));
+    }
 
-            cCol = 0;
-            ++cRow;
-            if (cRow < maxRows)
-                return new Pixel(cRow, cCol);
-        }
-        return null;
+    /** Function for thread-safe allocation of the next tile - a single atomic
+     * increment, no critical section.
+     * @return the next tile, or null if there are no more tiles */
+    Tile nextTile() {
+        int index = nextTile.getAndIncrement();
+        return index < totalTiles ? getTile(index) : null;
     }
 
-    /** Finish pixel processing by updating and printing of progress percentage */
-    void pixelDone() {
-        boolean flag       = false;
-        int     percentage = 0;
-        synchronized (mutexPixels) {
-            ++pixels;
-            if (print) {
-                percentage = (int) (1000l * pixels / totalPixels);
-                if (percentage - lastPrinted >= printInterval) {
-                    lastPrinted = percentage;
-                    flag        = true;
-                }
-            }
-            if (flag) System.out.printf(PRINT_FORMAT, percentage / 10d);
-        }
+    /** Percentage of the pixels whose tiles are done
+     * @return the percentage, 100 when all the tiles are done */
+    double progress() { return 100d * pixels.sum() / totalPixels; }
+
+    /** Finish tile processing by updating and printing of progress percentage
+     * @param tile the finished tile */
+    void tileDone(Tile tile) {
+        pixels.add((long) tile.width() * tile.height());
+        if (!print) return;
+        int percentage = (int) (1000l * pixels.sum() / totalPixels);
+        int last       = lastPrinted.get();
+        // only the thread that succeeds to update the last printed value prints it
+        if (percentage - last >= printInterval && lastPrinted.compareAndSet(last, percentage))
+            System.out.printf(PRINT_FORMAT, percentage / 10d);
     }
-}
\ No newline at end of file
+}
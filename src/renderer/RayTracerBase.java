@@ -9,11 +9,38 @@ import scene.Scene;
 
  */
 public abstract class RayTracerBase {
+    /**
+     * the statistics collector of the render each thread works for, null if the statistics aren't collected. It is
+     * kept per thread rather than in the tracer, so cameras that share a tracer don't count into each other's
+     * statistics
+     */
+    private static final ThreadLocal<RenderStatistics> STATISTICS = new ThreadLocal<>();
+
     protected Scene scene;
 
     public RayTracerBase(Scene scene){
         this.scene=scene;
     }
+
+    /**
+     * Set the statistics collector of the render the current thread works for, the camera sets it around each tile
+     *
+     * @param statistics the statistics collector, null to stop collecting the statistics
+     */
+    static void setStatistics(RenderStatistics statistics) {
+        if (statistics == null) STATISTICS.remove();
+        else STATISTICS.set(statistics);
+    }
+
+    /**
+     * The statistics collector of the render the current thread works for
+     *
+     * @return the statistics collector, null if the statistics aren't collected
+     */
+    protected static RenderStatistics statistics() {
+        return STATISTICS.get();
+    }
+
     /**
      * Trace a ray in the scene
      * @param ray the ray to trace
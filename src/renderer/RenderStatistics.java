@@ -0,0 +1,289 @@
+package renderer;
+
+import javax.management.JMException;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * RenderStatistics collects what the time of a render went to - the rays of each kind, the intersection tests and
+ * the voxels of the closest intersection searches, the recursion depth and the rendering time of the tiles.<br>
+ * The statistics are opt-in - they are collected only when a statistics object is given to the camera
+ * ({@link Camera.Builder#setStatistics(RenderStatistics)}), which hands it to the ray tracer on the threads that
+ * render its tiles, so cameras that share a ray tracer keep separate statistics. The counters are
+ * {@link LongAdder}s, which are striped between the threads, so the render threads don't contend on them. The
+ * statistics are reported to the listeners after every tile and at the end of the render, and may be registered as
+ * an MXBean to watch them from a JMX console.
+ */
+public class RenderStatistics implements RenderStatisticsMXBean {
+    /**
+     * The kinds of rays
+     */
+    public enum RayType {
+        /** a ray from the camera */
+        PRIMARY,
+        /** a reflected ray */
+        REFLECTED,
+        /** a refracted ray */
+        REFRACTED,
+        /** an additional ray of a glossy (blurry glass) beam */
+        GLOSSY,
+        /** a ray from a point towards a light source */
+        SHADOW
+    }
+
+    /**
+     * A listener to the progress of a render
+     */
+    public interface Listener {
+        /**
+         * Called by the render thread after it rendered a tile
+         *
+         * @param statistics the statistics
+         * @param col        the first column of the tile
+         * @param row        the first row of the tile
+         * @param width      the width of the tile in pixels
+         * @param height     the height of the tile in pixels
+         * @param nanos      the rendering time of the tile in nanoseconds
+         */
+        default void tileRendered(RenderStatistics statistics, int col, int row, int width, int height, long nanos) {
+        }
+
+        /**
+         * Called at the end of the render
+         *
+         * @param statistics the statistics
+         */
+        default void renderFinished(RenderStatistics statistics) {
+        }
+    }
+
+    private final LongAdder[] rays = new LongAdder[RayType.values().length];
+    private final LongAdder closestHitSearches = new LongAdder();
+    private final LongAdder intersectionTests = new LongAdder();
+    private final LongAdder gridSearches = new LongAdder();
+    private final LongAdder voxels = new LongAdder();
+    private final LongAccumulator maxDepth = new LongAccumulator(Math::max, 0);
+    private final LongAdder tiles = new LongAdder();
+    private final LongAdder tilesNanos = new LongAdder();
+    private final LongAccumulator maxTileNanos = new LongAccumulator(Math::max, 0);
+    private volatile long renderStart = 0;
+    private volatile long renderNanos = 0;
+    private final List<Listener> listeners = new CopyOnWriteArrayList<>();
+
+    /**
+     * Creates zeroed statistics
+     */
+    public RenderStatistics() {
+        for (int i = 0; i < rays.length; i++)
+            rays[i] = new LongAdder();
+    }
+
+    /**
+     * Adds a listener to the progress of the renders
+     *
+     * @param listener the listener
+     * @return the statistics itself
+     */
+    public RenderStatistics addListener(Listener listener) {
+        listeners.add(listener);
+        return this;
+    }
+
+    /**
+     * Registers the statistics as an MXBean in the platform MBean server
+     *
+     * @param name the name of the bean, e.g. the name of the image
+     * @return the statistics itself
+     * @throws IllegalStateException if the bean couldn't be registered, e.g. the name is taken
+     */
+    public RenderStatistics registerMBean(String name) {
+        try {
+            ManagementFactory.getPlatformMBeanServer()
+                    .registerMBean(this, new ObjectName("renderer:type=RenderStatistics,name=" + ObjectName.quote(name)));
+        } catch (JMException e) {
+            throw new IllegalStateException("Can't register the render statistics " + name, e);
+        }
+        return this;
+    }
+
+    /**
+     * Counts a ray
+     *
+     * @param type the kind of the ray
+     */
+    public void countRay(RayType type) {
+        rays[type.ordinal()].increment();
+    }
+
+    /**
+     * Counts several rays of the same kind
+     *
+     * @param type  the kind of the rays
+     * @param count the amount of the rays
+     */
+    public void countRays(RayType type, int count) {
+        rays[type.ordinal()].add(count);
+    }
+
+    /**
+     * Counts a closest intersection search
+     *
+     * @param tests the amount of geometric entities the ray was intersected with
+     */
+    public void countIntersectionTests(int tests) {
+        closestHitSearches.increment();
+        intersectionTests.add(tests);
+    }
+
+    /**
+     * Counts the walk of a closest intersection search through a voxel grid
+     *
+     * @param count the amount of voxels the ray went through
+     */
+    public void countVoxels(int count) {
+        gridSearches.increment();
+        voxels.add(count);
+    }
+
+    /**
+     * Records the recursion level of a color calculation
+     *
+     * @param depth the recursion level, 0 for a ray from the camera
+     */
+    public void recordDepth(int depth) {
+        maxDepth.accumulate(depth);
+    }
+
+    /**
+     * The amount of rays of a kind
+     *
+     * @param type the kind of the rays
+     * @return the amount of rays
+     */
+    public long getRays(RayType type) {
+        return rays[type.ordinal()].sum();
+    }
+
+    @Override
+    public long getPrimaryRays() {
+        return getRays(RayType.PRIMARY);
+    }
+
+    @Override
+    public long getReflectedRays() {
+        return getRays(RayType.REFLECTED);
+    }
+
+    @Override
+    public long getRefractedRays() {
+        return getRays(RayType.REFRACTED);
+    }
+
+    @Override
+    public long getGlossyRays() {
+        return getRays(RayType.GLOSSY);
+    }
+
+    @Override
+    public long getShadowRays() {
+        return getRays(RayType.SHADOW);
+    }
+
+    @Override
+    public double getIntersectionTestsPerRay() {
+        long searches = closestHitSearches.sum();
+        return searches == 0 ? 0 : (double) intersectionTests.sum() / searches;
+    }
+
+    @Override
+    public double getVoxelsPerRay() {
+        long searches = gridSearches.sum();
+        return searches == 0 ? 0 : (double) voxels.sum() / searches;
+    }
+
+    @Override
+    public int getMaxDepth() {
+        return (int) maxDepth.get();
+    }
+
+    @Override
+    public long getTiles() {
+        return tiles.sum();
+    }
+
+    @Override
+    public double getAverageTileMillis() {
+        long count = tiles.sum();
+        return count == 0 ? 0 : tilesNanos.sum() / 1e6 / count;
+    }
+
+    @Override
+    public double getMaxTileMillis() {
+        return maxTileNanos.get() / 1e6;
+    }
+
+    @Override
+    public double getRenderMillis() {
+        long start = renderStart;
+        return (start == 0 ? renderNanos : System.nanoTime() - start) / 1e6;
+    }
+
+    @Override
+    public void reset() {
+        for (LongAdder counter : rays) counter.reset();
+        closestHitSearches.reset();
+        intersectionTests.reset();
+        gridSearches.reset();
+        voxels.reset();
+        maxDepth.reset();
+        tiles.reset();
+        tilesNanos.reset();
+        maxTileNanos.reset();
+        renderNanos = 0;
+    }
+
+    /**
+     * Marks the start of a render
+     */
+    void renderStarted() {
+        renderStart = System.nanoTime();
+    }
+
+    /**
+     * Records the rendering time of a tile and reports it to the listeners
+     *
+     * @param tile  the tile
+     * @param nanos the rendering time in nanoseconds
+     */
+    void tileRendered(PixelManager.Tile tile, long nanos) {
+        tiles.increment();
+        tilesNanos.add(nanos);
+        maxTileNanos.accumulate(nanos);
+        for (Listener listener : listeners)
+            listener.tileRendered(this, tile.col(), tile.row(), tile.width(), tile.height(), nanos);
+    }
+
+    /**
+     * Marks the end of a render and reports it to the listeners
+     */
+    void renderFinished() {
+        renderNanos = System.nanoTime() - renderStart;
+        renderStart = 0;
+        for (Listener listener : listeners)
+            listener.renderFinished(this);
+    }
+
+    @Override
+    public String toString() {
+        return String.format("rays: %d primary, %d reflected, %d refracted, %d glossy, %d shadow; "
+                        + "%.1f intersection tests and %.1f voxels per ray; max depth %d; "
+                        + "%d tiles, %.2f ms average, %.2f ms max; %.0f ms",
+                getPrimaryRays(), getReflectedRays(), getRefractedRays(), getGlossyRays(), getShadowRays(),
+                getIntersectionTestsPerRay(), getVoxelsPerRay(), getMaxDepth(),
+                getTiles(), getAverageTileMillis(), getMaxTileMillis(), getRenderMillis());
+    }
+}
@@ -0,0 +1,71 @@
+package renderer;
+
+/**
+ * The management interface of {@link RenderStatistics}, so a running render can be watched from a JMX console
+ */
+public interface RenderStatisticsMXBean {
+    /**
+     * @return the amount of rays from the camera
+     */
+    long getPrimaryRays();
+
+    /**
+     * @return the amount of reflected rays
+     */
+    long getReflectedRays();
+
+    /**
+     * @return the amount of refracted rays
+     */
+    long getRefractedRays();
+
+    /**
+     * @return the amount of the additional rays of glossy (blurry glass) beams
+     */
+    long getGlossyRays();
+
+    /**
+     * @return the amount of shadow rays
+     */
+    long getShadowRays();
+
+    /**
+     * @return the average amount of intersection tests of a closest intersection search
+     */
+    double getIntersectionTestsPerRay();
+
+    /**
+     * @return the average amount of voxels a closest intersection search walked through
+     */
+    double getVoxelsPerRay();
+
+    /**
+     * @return the deepest recursion level of the color calculation
+     */
+    int getMaxDepth();
+
+    /**
+     * @return the amount of rendered tiles
+     */
+    long getTiles();
+
+    /**
+     * @return the average rendering time of a tile in milliseconds
+     */
+    double getAverageTileMillis();
+
+    /**
+     * @return the longest rendering time of a tile in milliseconds
+     */
+    double getMaxTileMillis();
+
+    /**
+     * @return the time of the last render in milliseconds, or the time since it started if it is running
+     */
+    double getRenderMillis();
+
+    /**
+     * Zeroes all the statistics
+     */
+    void reset();
+}
@@ -5,11 +5,12 @@ import lighting.LightSource;
 import primitives.*;
 import scene.Scene;
 import geometries.Intersectable.GeoPoint;
+import geometries.Intersectable.HitRecord;
+import geometries.Intersectable.TransparencyRecord;
 
 import java.util.List;
 
 import static primitives.Util.alignZero;
-import static primitives.Util.isZero;
 /**
  * The {@code SimpleRayTracer} class extends {@code RayTracerBase} to provide a simple ray tracing functionality
  * for rendering 3D scenes. It implements the basic ray tracing algorithm to calculate the color of pixels in a scene
@@ -48,15 +49,92 @@ public class SimpleRayTracer extends RayTracerBase {
 
     private static final int MAX_CALC_COLOR_LEVEL = 10;
 
-    protected static final double MIN_CALC_COLOR_K = 0.001;
+    private static final double MIN_CALC_COLOR_K = 0.001;
     private static final Double3 INITIAL_K = Double3.ONE;
 
+    /**
+     * the recursion level of the color calculation of a ray from the camera - each reflection or refraction takes
+     * three levels, and no global effects are calculated at level 1
+     */
+    private int maxLevel = MAX_CALC_COLOR_LEVEL;
+    /**
+     * the attenuation factor below which a ray (or a shadow ray) doesn't contribute anything
+     */
+    protected double minK = MIN_CALC_COLOR_K;
+    /**
+     * the attenuation factor below which a reflected or refracted ray goes on only by Russian roulette, 0 if there is
+     * no roulette
+     */
+    private double rouletteK = 0;
+
+    /**
+     * the closest intersection record of each rendering thread, reused by all its closest intersection searches
+     */
+    protected final ThreadLocal<HitRecord> hitRecord = ThreadLocal.withInitial(HitRecord::new);
+
+    /**
+     * the shadow rays transparency record of each rendering thread
+     */
+    protected final ThreadLocal<TransparencyRecord> transparencyRecord =
+            ThreadLocal.withInitial(TransparencyRecord::new);
+
+    /**
+     * the shading vectors of each rendering thread, reused by all its shading calculations
+     */
+    private final ThreadLocal<Shading> shading = ThreadLocal.withInitial(Shading::new);
+
     public SimpleRayTracer(Scene scene) {
         super(scene);
     }
 
+    /**
+     * setter for the maximum recursion level of the color calculation
+     *
+     * @param maxLevel the recursion level of a ray from the camera - each reflection or refraction takes three levels,
+     *                 so 1 calculates only the local effects
+     * @return the ray tracer itself (for chaining calls)
+     * @throws IllegalArgumentException if the level is lower than 1
+     */
+    public SimpleRayTracer setMaxLevel(int maxLevel) {
+        if (maxLevel < 1) throw new IllegalArgumentException("The maximum level must be at least 1");
+        this.maxLevel = maxLevel;
+        return this;
+    }
+
+    /**
+     * setter for the attenuation threshold - rays whose attenuation factor is below it on all the color components
+     * are not traced, and light sources are ignored when their shadow rays are attenuated below it
+     *
+     * @param minK the attenuation threshold
+     * @return the ray tracer itself (for chaining calls)
+     * @throws IllegalArgumentException if the threshold isn't between 0 and 1
+     */
+    public SimpleRayTracer setMinK(double minK) {
+        if (minK < 0 || minK >= 1) throw new IllegalArgumentException("The attenuation threshold must be in [0,1)");
+        this.minK = minK;
+        return this;
+    }
+
+    /**
+     * setter for the Russian roulette threshold. A reflected or refracted ray whose attenuation factor is below the
+     * threshold (on all the color components) is traced only with a probability of its attenuation factor divided by
+     * the threshold, and its color is divided by that probability - so the expected color stays the same, while most
+     * of the weak rays (and the rays they would spawn) are never traced.
+     *
+     * @param rouletteK the threshold, 0 to trace all the rays
+     * @return the ray tracer itself (for chaining calls)
+     * @throws IllegalArgumentException if the threshold isn't between 0 and 1
+     */
+    public SimpleRayTracer setRussianRoulette(double rouletteK) {
+        if (rouletteK < 0 || rouletteK > 1) throw new IllegalArgumentException("The roulette threshold must be in [0,1]");
+        this.rouletteK = rouletteK;
+        return this;
+    }
+
     @Override
     public Color traceRay(Ray ray) {
+        RenderStatistics statistics = statistics();
+        if (statistics != null) statistics.countRay(RenderStatistics.RayType.PRIMARY);
         var point = this.findClosestIntersection(ray);
         if (point == null) {
             return scene.background;
@@ -81,7 +159,7 @@ public class SimpleRayTracer extends RayTracerBase {
  *                 in the rendered image, contributing to the overall realism of the scene.
  */
 private Color calcColor(GeoPoint geoPoint, Ray ray) {
-    return scene.ambientLight.getIntensity().add(calcColor(geoPoint, ray, MAX_CALC_COLOR_LEVEL, INITIAL_K));
+    return scene.ambientLight.getIntensity().add(calcColor(geoPoint, ray, maxLevel, INITIAL_K));
 }
 
     /**
@@ -96,15 +174,18 @@ private Color calcColor(GeoPoint geoPoint, Ray ray) {
  * @return      The calculated {@link Color} at the intersection point, taking into account both the local effects (such as the material's own color and how it reflects direct light) and global effects (such as reflections and refractions from other surfaces).
  */
 private Color calcColor(GeoPoint gp, Ray ray, int level, Double3 k) {
-    Vector v = ray.getDirection();
-    Vector n = gp.geometry.getNormal(gp.point);
-    double vn = v.dotProduct(n);
-    if (isZero(vn))
+    RenderStatistics statistics = statistics();
+    if (statistics != null) statistics.recordDepth(maxLevel - level);
+    Shading shading = this.shading.get();
+    double[] v = Vec3.set(shading.v, ray.getDirection());
+    double[] n = Vec3.set(shading.n, gp.geometry.getNormal(gp.point));
+    double vn = alignZero(Vec3.dot(v, n));
+    if (vn == 0)
         return Color.BLACK;
 
-    Color color = calcLocalEffects(gp, ray, k).add(gp.geometry.getEmission());
+    Color color = calcLocalEffects(gp, shading, vn, k).add(gp.geometry.getEmission());
 
-    return 1 == level ? color : color.add(calcGlobalEffects(gp, v, level, k));
+    return level <= 1 ? color : color.add(calcGlobalEffects(gp, v, n, vn, level, k));
 }
 
 
@@ -118,6 +199,8 @@ private Color calcColor(GeoPoint gp, Ray ray, int level, Double3 k) {
  *              for calculating the reflected and refracted rays.
  * @param v     The direction vector of the incoming ray that hit the geometry. This vector is crucial for calculating
  *              the directions of the reflected and refracted rays based on the laws of physics.
+ * @param n     The normal vector at the intersection point.
+ * @param vn    The dot product of the incoming ray direction and the normal.
  * @param level The recursion level for the calculation. This parameter is used to limit the depth of recursive
  *              reflection and refraction calculations to prevent infinite loops. Each time a global effect is
  *              calculated, the level is decremented, and the calculation stops when it reaches 0.
@@ -128,22 +211,21 @@ private Color calcColor(GeoPoint gp, Ray ray, int level, Double3 k) {
  *              and refraction components. This color is then combined with the local lighting effects to determine
  *              the final color of the pixel in the rendered image.
  */
-    private Color calcGlobalEffects(GeoPoint gp, Vector v, int level, Double3 k) {
+    private Color calcGlobalEffects(GeoPoint gp, double[] v, double[] n, double vn, int level, Double3 k) {
         Color color = Color.BLACK;
         Material material = gp.geometry.getMaterial();
         Double3 kr = material.kr;
         Double3 kkr = k.product(kr);
-        Vector n = gp.geometry.getNormal(gp.point);
-        double vn = v.dotProduct(n);
+        //both rays are constructed before the recursion reuses the vectors arrays
         Ray reflectedRay = constructReflectedRay(gp.point, v, n, vn);
         Ray refractedRay = constructRefractedRay(gp.point, v, n);
-        if (!kkr.lowerThan(MIN_CALC_COLOR_K)) {
-            color = color.add(calcGlobalEffect(material,reflectedRay, level - 1, kr, kkr));
+        if (!kkr.lowerThan(minK)) {
+            color = color.add(calcGlobalEffect(material, reflectedRay, RenderStatistics.RayType.REFLECTED, level - 1, kr, kkr));
         }
         Double3 kt = material.kt;
         Double3 kkt = k.product(kt);
-        if (!kkt.lowerThan(MIN_CALC_COLOR_K)) {
-            color = color.add(calcGlobalEffect(material,refractedRay, level - 1, kt, kkt));
+        if (!kkt.lowerThan(minK)) {
+            color = color.add(calcGlobalEffect(material, refractedRay, RenderStatistics.RayType.REFRACTED, level - 1, kt, kkt));
         }
         return color;
     }
@@ -155,6 +237,7 @@ private Color calcColor(GeoPoint gp, Ray ray, int level, Double3 k) {
  *
  * @param ray The ray being traced through the scene. This could be a reflected or refracted ray originating
  *            from previous interactions with objects.
+ * @param type The kind of the ray, for the render statistics.
  * @param level The current recursion depth. The method uses this to limit the recursion and prevent infinite loops.
  *              Each recursive call for global effects decreases this level by one until it reaches zero.
  * @param k The cumulative attenuation factor up to this point. Represents the product of all previous attenuation
@@ -165,56 +248,61 @@ private Color calcColor(GeoPoint gp, Ray ray, int level, Double3 k) {
  *         does not intersect with any object, or if the cumulative attenuation factor is below a certain threshold,
  *         the method returns black, indicating no significant contribution to the scene's color at this point.
  */
-    private Color calcGlobalEffect(Material material,Ray ray, int level, Double3 k, Double3 kx) {
+    private Color calcGlobalEffect(Material material, Ray ray, RenderStatistics.RayType type, int level, Double3 k,
+                                   Double3 kx) {
         Double3 kkx = k.product(kx);
-        if (kkx.lowerThan(MIN_CALC_COLOR_K)) return Color.BLACK;
+        if (kkx.lowerThan(minK)) return Color.BLACK;
+        double survival = survival(kkx);
+        if (survival == 0) return Color.BLACK;
+        RenderStatistics statistics = statistics();
+        if (statistics != null) statistics.countRay(type);
         GeoPoint gp = findClosestIntersection(ray);
-        if (gp == null) return scene.background.scale(kx);
+        if (gp == null) return scene.background.scale(kx).scale(1 / survival);
         var rays = ray.generateBeam( gp.geometry.getNormal(gp.point),
                 material.blurGlassRadius, material.blurGlassDistance, material.numOfRays);
-        return calcAverageColor(rays, level-1, kkx).scale(k);
+        return calcAverageColor(rays, level-1, kkx, material).scale(k).scale(1 / survival);
     }
 
 
+    /**
+     * plays the Russian roulette for a reflected or refracted ray - a ray attenuated below the roulette threshold
+     * survives with a probability of its strongest attenuation component divided by the threshold
+     *
+     * @param k the attenuation factor of the ray
+     * @return the probability that the ray survived with, to divide its color by - 1 if the ray isn't attenuated below
+     * the threshold, or 0 if the ray didn't survive
+     */
+    private double survival(Double3 k) {
+        if (!k.lowerThan(rouletteK)) return 1;
+        double probability = Math.max(k.getD1(), Math.max(k.getD2(), k.getD3())) / rouletteK;
+        return Sampler.current().nextDouble() < probability ? probability : 0;
+    }
+
     /**
  * Calculates the transparency level of a point in the scene with respect to a light source. This method is used to determine
  * the amount of light that reaches a point after passing through transparent objects. It is essential for simulating shadows
  * and light transmission through materials like glass or water.
  *
- * The method operates by casting a ray from the point of interest towards the light source. It then checks for intersections
+ * The shadow ray from the point of interest towards the light source is given. The method checks for intersections
  * with other geometries along this path. For each intersected object, the method multiplies the current transparency level
  * (ktr) by the transparency coefficient (kt) of the material of the intersected object. This process simulates the cumulative
  * effect of light being partially absorbed or scattered by each transparent object it passes through.
  *
- * If the cumulative transparency (ktr) falls below a certain threshold (MIN_CALC_COLOR_K), indicating that very little light
- * reaches the point, the method returns zero transparency, effectively casting a shadow. Otherwise, it returns the calculated
- * transparency level, which is used to scale the intensity of the light reaching the point.
+ * If the cumulative transparency (ktr) falls below a certain threshold (minK), indicating that very little light
+ * reaches the point, the record is blocked, effectively casting a shadow. Otherwise, it holds the calculated
+ * transparency level, which is used to scale the intensity of the light reaching the point. The intersections are not
+ * collected - the search stops at the first geometry that blocks the light.
  *
- * @param gp The intersection point on a geometry in the scene, encapsulated as a {@link GeoPoint}. This point is the target
- *           for which the transparency is being calculated.
- * @param light The light source towards which the transparency is calculated. This parameter is used to determine the direction
- *              and distance of the ray cast towards the light source.
- * @param l The direction vector from the light source to the point. This vector is used to calculate the direction of the ray
- *          cast towards the light source.
- * @param n The normal vector at the intersection point. This is used to slightly offset the starting point of the ray to avoid
- *          self-intersection due to numerical inaccuracies.
- * @return The calculated transparency level as a {@link Double3} value. This value represents the cumulative effect of light
- *         transmission through transparent materials and is used to scale the intensity of light reaching the point.
+ * @param lightRay The ray from the point towards the light source, with its head slightly offset along the normal to avoid
+ *                 self-intersection due to numerical inaccuracies.
+ * @param maxDistance The distance of the light source from the point - geometries beyond it don't cast a shadow.
+ * @return The transparency record of the current thread with the calculated transparency level. It represents the cumulative
+ *         effect of light transmission through transparent materials and is valid until the next transparency calculation.
  */
-    protected Double3 transparency(GeoPoint gp, LightSource light, Vector l, Vector n) {
-
-        Vector lightDirection = l.scale(-1); // from point to light source
-        Ray lightRay = new Ray(gp.point, lightDirection, n);
-        List<GeoPoint> intersections = scene.geometries.findGeoIntersections(lightRay, light.getDistance(gp.point));
-        Double3 ktr=new Double3(1d);
-        if (intersections == null) return ktr;
-
-        for (GeoPoint g : intersections) {
-            ktr = ktr.product(g.geometry.getMaterial().kt);
-            if (ktr.lowerThan(MIN_CALC_COLOR_K)) return Double3.ZERO;
-        }
+    protected TransparencyRecord transparency(Ray lightRay, double maxDistance) {
+        TransparencyRecord ktr = transparencyRecord.get().reset(minK);
+        scene.getIntersectable().findTransparency(lightRay, maxDistance, ktr);
         return ktr;
-
     }
 
     /**
@@ -231,7 +319,7 @@ private Color calcColor(GeoPoint gp, Ray ray, int level, Double3 k) {
  * @param n The normal vector at the point of intersection. It is crucial for calculating the angle of refraction. This vector should also be normalized.
  * @return A new Ray object representing the refracted ray, which starts at the intersection point and proceeds in the calculated direction of refraction.
  */
-private Ray constructRefractedRay(Point pointGeo, Vector v, Vector n) {
+private Ray constructRefractedRay(Point pointGeo, double[] v, double[] n) {
     return new Ray(pointGeo, v, n);
 }
 
@@ -253,9 +341,9 @@ private Ray constructRefractedRay(Point pointGeo, Vector v, Vector n) {
  * @param vn The dot product of the incident ray's direction vector and the normal vector at the point of intersection. This value is pre-calculated to optimize the reflection calculation.
  * @return A new Ray object representing the reflected ray, which starts at the intersection point and proceeds in the calculated direction of reflection.
  */
-private Ray constructReflectedRay(Point pointGeo, Vector v, Vector n, double vn) {
+private Ray constructReflectedRay(Point pointGeo, double[] v, double[] n, double vn) {
     // 𝒓=𝒗 −𝟐∙(𝒗∙𝒏)∙𝒏
-    Vector r = v.subtract(n.scale(2 * vn));
+    double[] r = Vec3.scaleAdd(shading.get().r, v, -2 * vn, n);
     return new Ray(pointGeo, r, n);
 }
 
@@ -282,35 +370,42 @@ private Ray constructReflectedRay(Point pointGeo, Vector v, Vector n, double vn)
  * @param intersection The point on the geometry within the scene that is being illuminated. This parameter encapsulates both
  *                     the location of the point and the geometry it belongs to, allowing for the calculation of normal vectors
  *                     and other surface properties.
- * @param ray The ray from the camera to the intersection point. This is used to calculate specular reflection, as it represents
- *            the viewer's perspective.
+ * @param shading The shading arrays of the current thread, holding the normal at the point and the direction of the ray to it
+ *                (which represents the viewer's perspective for the specular reflection).
+ * @param nv The dot product of the normal and the ray direction, it must not be zero.
+ * @param kx The attenuation factor of the ray, the light sources are skipped if too little of their light would reach
+ *           the viewer.
  * @return The color of the point as affected by the local light sources, taking into account both diffuse and specular reflections,
  *         as well as shadowing effects. This color is a combination of the contributions from all light sources in the scene.
  */
-    private Color calcLocalEffects(GeoPoint intersection, Ray ray, Double3 kx) {
-        int nShininess = intersection.geometry.getMaterial().nShininess;
-        Double3 kd = intersection.geometry.getMaterial().kd;
-        Double3 ks = intersection.geometry.getMaterial().ks;
-        Color color = Color.BLACK;
-        Vector n = intersection.geometry.getNormal(intersection.point);
-        double nv = alignZero(n.dotProduct(ray.getDirection()));
+    private Color calcLocalEffects(GeoPoint intersection, Shading shading, double nv, Double3 kx) {
+        Material material = intersection.geometry.getMaterial();
+        Point point = intersection.point;
+        double[] n = shading.n, v = shading.v;
+        double[] kd = Vec3.set(shading.kd, material.kd);
+        double[] ks = Vec3.set(shading.ks, material.ks);
+        double[] color = Vec3.zero(shading.color);
 
         for (LightSource lightSource : scene.lights) {
-            Vector l = lightSource.getL(intersection.point);
-            double nl = alignZero(n.dotProduct(l));
-            if (nl * nv > 0) {//&&unshaded(intersection, l, n, lightSource, nl))
-                Double3 ktr = transparency(intersection, lightSource, l, n);
-                if (!ktr.product(kx).lowerThan(MIN_CALC_COLOR_K)) {
-                    Color lightIntensity = lightSource.getIntensity(intersection.point).scale(ktr);
-                    color = color.add(calcDiffuse(kd, nl, lightIntensity),
-                            calcSpecular(ks, l, n, nl, ray.getDirection(), nShininess, lightIntensity));
+            double[] l = lightSource.getL(point, shading.l);
+            double nl = alignZero(Vec3.dot(n, l));
+            if (nl * nv > 0) {
+                Ray lightRay = new Ray(point, Vec3.scale(shading.r, l, -1), n); // from point to light source
+                RenderStatistics statistics = statistics();
+                if (statistics != null) statistics.countRay(RenderStatistics.RayType.SHADOW);
+                double[] ktr = transparency(lightRay, lightSource.getDistance(point)).toArray(shading.ktr);
+                if (!(ktr[0] * kx.getD1() < minK && ktr[1] * kx.getD2() < minK && ktr[2] * kx.getD3() < minK)) {
+                    double[] lightIntensity = Vec3.product(shading.light,
+                            Vec3.set(shading.light, lightSource.getIntensity()), ktr);
+                    Vec3.scale(lightIntensity, lightIntensity, lightSource.getAttenuation(point, l));
+                    double diffuse = calcDiffuse(nl);
+                    double specular = calcSpecular(l, n, nl, v, material.nShininess, shading.r);
+                    for (int i = 0; i < 3; ++i)
+                        color[i] += lightIntensity[i] * (kd[i] * diffuse + ks[i] * specular);
                 }
-
-
             }
         }
-        return color;
-
+        return Vec3.toColor(color);
     }
 
     /**
@@ -323,19 +418,14 @@ private Ray constructReflectedRay(Point pointGeo, Vector v, Vector n, double vn)
  * towards the light source receive the maximum illumination, while those angled away receive less, simulating a realistic
  * shading effect.
  *
- * @param kd The diffuse reflection coefficient, representing the ratio of reflected light to incident light. This parameter
- *           is a material property that affects how bright the surface appears under direct illumination.
  * @param nl The dot product between the normal vector at the point of intersection and the light direction vector. This
  *           value is used to calculate the angle of incidence to determine the proportion of light that is diffusely reflected.
- * @param lightIntensity The intensity of the light source at the point of intersection. This value is scaled by the diffuse
- *                       reflection coefficient and the cosine of the angle of incidence to compute the final color contribution
- *                       from diffuse reflection.
- * @return The color contribution from the diffuse reflection component, which is added to the total color calculated for the
- *         point on the surface. This contribution is crucial for achieving a natural appearance of materials under various
- *         lighting conditions.
+ * @return The factor of the diffuse reflection component - the light intensity scaled by it and by the diffuse reflection
+ *         coefficient of the material (the ratio of reflected light to incident light) is added to the total color calculated
+ *         for the point on the surface.
  */
-    private Color calcDiffuse(Double3 kd, double nl, Color lightIntensity) {
-        return lightIntensity.scale(kd.scale(nl<0?-nl:nl));
+    private double calcDiffuse(double nl) {
+        return nl < 0 ? -nl : nl;
     }
 
     /**
@@ -346,24 +436,23 @@ private Ray constructReflectedRay(Point pointGeo, Vector v, Vector n, double vn)
      * The intensity of the specular reflection is determined by the angle between the viewer's line of sight and the
      * direction of the reflected light. It is influenced by the material's shininess coefficient, which controls the size and intensity of the specular highlight.
      *
-     * @param ks The specular reflection coefficient, a material property that determines the intensity of the specular reflection. Higher values result in more pronounced specular highlights.
      * @param l The direction vector from the light source to the point on the surface. This vector is used to calculate the direction of the reflected light.
      * @param n The normal vector at the point on the surface. It is perpendicular to the surface and is used to calculate the reflection direction.
      * @param nl The dot product between the normal vector and the light direction vector. This value is used in the calculation of the reflection direction.
      * @param v The direction vector from the point on the surface to the viewer. This vector is used to determine the angle between the viewer and the reflected light direction.
      * @param nShininess The shininess coefficient of the material. This value controls the fall-off of the specular highlight, with higher values resulting in smaller, more intense highlights.
-     * @param lightIntensity The intensity of the light source at the point of intersection. This value is modulated by the specular reflection calculation to determine the final color contribution of the specular highlight.
-     * @return The color contribution from the specular reflection component. This is calculated as the light intensity
-     * scaled by the specular reflection coefficient and raised to the power of the shininess coefficient, based on the angle between the reflected light direction and the viewer's direction.
+     * @param r An array for the reflected light direction.
+     * @return The factor of the specular reflection component - the cosine of the angle between the reflected light direction and the
+     * viewer's direction raised to the power of the shininess coefficient. The light intensity is scaled by it and by the specular
+     * reflection coefficient of the material.
      */
-    private Color calcSpecular(Double3 ks, Vector l, Vector n, double nl, Vector v, int nShininess,
-                               Color lightIntensity) {
-        Vector r = l.add(n.scale(-2 * nl)); // nl must not be zero!
-        double minusVR = -alignZero(r.dotProduct(v));
+    private double calcSpecular(double[] l, double[] n, double nl, double[] v, int nShininess, double[] r) {
+        Vec3.scaleAdd(r, l, -2 * nl, n); // nl must not be zero!
+        double minusVR = -alignZero(Vec3.dot(r, v));
         if (minusVR <= 0) {
-            return Color.BLACK; // View from direction opposite to r vector
+            return 0; // View from direction opposite to r vector
         }
-        return lightIntensity.scale(ks.scale(Math.pow(minusVR, nShininess)));
+        return Math.pow(minusVR, nShininess);
     }
 
     /**
@@ -388,14 +477,9 @@ private Ray constructReflectedRay(Point pointGeo, Vector v, Vector n, double vn)
     protected boolean unshaded(GeoPoint gp, Vector l, Vector n, LightSource lightSource, double nl) {
         Vector lightDirection = l.scale(-1);//from the point to light score
         Ray lightRay = new Ray(gp.point, lightDirection, n);
-        List<GeoPoint> Intersection = scene.geometries.findGeoIntersections(lightRay, lightSource.getDistance(gp.point));
-        if (Intersection == null) return true;
-
-        for (GeoPoint g : Intersection)
-            if (g.geometry.getMaterial().kt == Double3.ZERO)
-
-                return false;
-        return true;
+        //only a fully opaque geometry blocks the light
+        TransparencyRecord ktr = transparencyRecord.get().reset(Double.MIN_VALUE);
+        return !scene.getIntersectable().findTransparency(lightRay, lightSource.getDistance(gp.point), ktr);
     }
 
     /**
@@ -411,25 +495,105 @@ private Ray constructReflectedRay(Point pointGeo, Vector v, Vector n, double vn)
  * @return The closest {@link GeoPoint} representing the intersection point and the geometry it belongs to. If the ray does not intersect with any geometry in the scene, returns {@code null}.
  */
 protected GeoPoint findClosestIntersection(Ray ray) {
-    return ray.findClosestGeoPoint(scene.geometries.findGeoIntersections(ray));
+    return findClosestIntersection(ray, scene.getIntersectable());
 }
+
     /**
-     * get list of ray
+     * Finds the closest intersection of a ray with the given geometries without building the intersections list -
+     * the search uses the hit record of the current thread.
      *
-     * @param rays
-     * @param level
-     * @param kkx
+     * @param ray           the ray
+     * @param intersectable the geometries to intersect
+     * @return the closest intersection, null if there is none
+     */
+    protected GeoPoint findClosestIntersection(Ray ray, Intersectable intersectable) {
+        HitRecord hit = hitRecord.get().reset(Double.POSITIVE_INFINITY);
+        intersectable.findClosestHit(ray, hit);
+        RenderStatistics statistics = statistics();
+        if (statistics != null) statistics.countIntersectionTests(hit.tests);
+        return hit.toGeoPoint(ray);
+    }
+    /**
+     * get list of ray, traces them in batches and stops once the standard error of the average color is below the
+     * threshold of the material
+     *
+     * @param rays     the rays, which any first part of is spread evenly
+     * @param level    the recursion level
+     * @param kkx      the attenuation factor of the rays
+     * @param material the material with the adaptive blur glass parameters
      * @return average color of the intersection of the rays
      */
-    Color calcAverageColor(List<Ray> rays, int level, Double3 kkx) {
-        Color color = Color.BLACK;
+    Color calcAverageColor(List<Ray> rays, int level, Double3 kkx, Material material) {
+        double[] sum = new double[3];
+        double[] sumSquares = new double[3];
+        int batch = Math.max(1, material.blurGlassBatch);
+        double threshold = material.blurGlassThreshold;
+        int count = 0;
 
         for (Ray ray : rays) {
             GeoPoint intersection = findClosestIntersection(ray);
-            color = color.add(intersection == null ? scene.background : calcColor(intersection, ray, level - 1, kkx));
+            Double3 rgb = (intersection == null ? scene.background : calcColor(intersection, ray, level - 1, kkx))
+                    .getRgb();
+            sum[0] += rgb.getD1();
+            sum[1] += rgb.getD2();
+            sum[2] += rgb.getD3();
+            sumSquares[0] += rgb.getD1() * rgb.getD1();
+            sumSquares[1] += rgb.getD2() * rgb.getD2();
+            sumSquares[2] += rgb.getD3() * rgb.getD3();
+            ++count;
+            if (threshold > 0 && count > 1 && count % batch == 0 && count < rays.size()
+                    && converged(sum, sumSquares, count, threshold))
+                break;
         }
 
-        return color.reduce(rays.size());
+        // the first ray of the beam is the reflected or refracted ray itself
+        RenderStatistics statistics = statistics();
+        if (statistics != null) statistics.countRays(RenderStatistics.RayType.GLOSSY, count - 1);
+        return new Color(sum[0] / count, sum[1] / count, sum[2] / count);
     }
 
-}
\ No newline at end of file
+    /**
+     * checks whether the average of color samples is accurate enough - whether the standard error of each of its
+     * components is below the threshold
+     *
+     * @param sum        the sums of the components of the samples
+     * @param sumSquares the sums of the squared components of the samples
+     * @param count      the number of the samples, at least 2
+     * @param threshold  the maximal standard error
+     * @return true if the average is accurate enough
+     */
+    private static boolean converged(double[] sum, double[] sumSquares, int count, double threshold) {
+        // the squared standard error is the sum of the squared deviations divided by count * (count - 1)
+        double maxDeviations = threshold * threshold * count * (count - 1);
+        for (int i = 0; i < 3; i++)
+            if (sumSquares[i] - sum[i] * sum[i] / count > maxDeviations) return false;
+        return true;
+    }
+
+    /**
+     * Shading class holds the vectors and the colors of a shading calculation as arrays - the normal, the ray
+     * direction, the light direction and so on - so each step writes into them instead of creating immutable
+     * objects. The arrays are valid only until the next shading calculation of the thread, which may be a recursive
+     * one.
+     */
+    private static class Shading {
+        /** the normal at the shaded point */
+        final double[] n = new double[3];
+        /** the direction of the ray to the shaded point */
+        final double[] v = new double[3];
+        /** the direction from the light source to the shaded point */
+        final double[] l = new double[3];
+        /** a reflected direction */
+        final double[] r = new double[3];
+        /** the transparency towards the light source */
+        final double[] ktr = new double[3];
+        /** the light intensity at the shaded point */
+        final double[] light = new double[3];
+        /** the diffuse coefficients of the material */
+        final double[] kd = new double[3];
+        /** the specular coefficients of the material */
+        final double[] ks = new double[3];
+        /** the accumulated color */
+        final double[] color = new double[3];
+    }
+}
@@ -1,14 +1,13 @@
 package scene;
 
+import geometries.AABB;
+import geometries.BVH;
 import geometries.Geometries;
-import geometries.Polygon;
+import geometries.Intersectable;
 import lighting.AmbientLight;
 import lighting.LightSource;
 import primitives.Color;
-import primitives.Double3;
-import primitives.Point;
 
-import java.util.HashMap;
 import java.util.LinkedList;
 import java.util.List;
 
@@ -21,37 +20,93 @@ public class Scene {
     public AmbientLight ambientLight = AmbientLight.NONE;
     public Geometries geometries = new Geometries();
     public List<LightSource> lights = new LinkedList<>();
-    //faces of the regular grid
-    public Polygon[] faces;
+    /**
+     * bounding volume hierarchy over the scene geometries, null if it wasn't built
+     */
+    public transient BVH bvh = null;
+    /**
+     * the cost of the last build of the bounding volume hierarchy, null if it wasn't built
+     */
+    private transient BuildStatistics bvhStatistics = null;
+    /**
+     * the cost of the last build of the voxels grid, null if it wasn't built
+     */
+    private transient BuildStatistics gridStatistics = null;
 
     //scene geometric attributes
     /**
      * the size of the edge of the scene boundary on the X axis
      */
-    private int xEdgeScene;
+    private double xEdgeScene;
     /**
      * the size of the edge of the scene boundary on the Y axis
      */
-    private int yEdgeScene;
+    private double yEdgeScene;
     /**
      * the size of the edge of the scene boundary on the Z axis
      */
-    private int zEdgeScene;
+    private double zEdgeScene;
     /**
-     * the resolution of the voxels that divide the scene
+     * the resolution of the voxels that divide the scene, the same on all the axes - 0 for a resolution calculated
+     * automatically from the number of primitive geometric entities and the scene boundary
      */
-    public double resolution = 10;
+    public double resolution = 0;
     /**
-     * array of resolution to each axis
+     * array of resolution to each axis, if set it overrides {@link #resolution}
      */
-    public double[] resolutions;
+    public int[] resolutions;
+    /**
+     * the average number of voxels per primitive geometric entity of the automatic resolution
+     */
+    private static final double VOXELS_PER_GEOMETRY = 4;
+    /**
+     * the maximum automatic resolution on an axis
+     */
+    private static final int MAX_RESOLUTION = 128;
+    /**
+     * the number of voxels of the grid on each axis, as chosen by {@link #calcVoxels()}
+     */
+    private transient int[] gridResolution = {1, 1, 1};
+    /**
+     * the maximum number of geometric entities in a voxel of the hierarchical grid - a voxel with more entities is
+     * divided to a sub grid. 0 for a single level grid
+     */
+    public int maxVoxelGeometries = 0;
+    /**
+     * the maximum resolution on an axis of a sub grid
+     */
+    public static final int MAX_SUB_RESOLUTION = 16;
+    /**
+     * the sub grid of each voxel of the hierarchical grid, null for a voxel that isn't divided (or for a single level
+     * grid)
+     */
+    public transient SubGrid[] subGrids;
+
+    /**
+     * the boundary of the grid - the bounding box of the bounded geometric entities
+     */
+    private transient AABB gridBoundary;
+    /**
+     * the unbounded geometric entities (planes, tubes), they can't be attached to voxels so every ray is intersected
+     * with them
+     */
+    public transient Intersectable[] unboundedGeometries;
 
     //voxel attributes
     /**
-     * hash map of all voxels in the scene- their index as the key and the list of geometric entities that intersects
-     * with the voxel as the value.
+     * the geometric entities of the voxels grid, the voxels refer to them by their index in this array
+     */
+    public transient Intersectable[] voxelsGeometries;
+    /**
+     * the position in {@link #voxels} of the first geometric entity of each voxel, with an extra last element - so
+     * the entities of voxel v are in the range [voxelsStart[v], voxelsStart[v + 1])
      */
-    public HashMap<Double3, Geometries> voxels = new HashMap<Double3, Geometries>();
+    public transient int[] voxelsStart;
+    /**
+     * the indexes (in {@link #voxelsGeometries}) of the geometric entities that intersect with the voxels, voxel after
+     * voxel
+     */
+    public transient int[] voxels;
     /**
      * the size of the edge of the voxel on the X axis
      */
@@ -136,6 +191,64 @@ public class Scene {
         return zEdgeVoxel;
     }
 
+    /**
+     * the boundary of the grid as set by {@link #calcVoxels()}
+     *
+     * @return the bounding box of the bounded geometric entities
+     */
+    public AABB getGridBoundary() {
+        return gridBoundary;
+    }
+
+    /**
+     * the approximate memory of the grid arrays - 4 bytes per int, 8 bytes per double and per reference
+     *
+     * @return the memory in bytes
+     */
+    public long getGridMemory() {
+        long memory = 4L * (voxelsStart.length + voxels.length)
+                + 8L * (voxelsGeometries.length + unboundedGeometries.length);
+        if (subGrids != null) {
+            memory += 8L * subGrids.length;
+            for (SubGrid subGrid : subGrids)
+                if (subGrid != null)
+                    memory += 4L * (subGrid.voxelsStart.length + subGrid.voxels.length + 3) + 8L * 6;
+        }
+        return memory;
+    }
+
+    /**
+     * the number of voxels in the grid
+     *
+     * @return the number of voxels
+     */
+    public int voxelsCount() {
+        return gridResolution[0] * gridResolution[1] * gridResolution[2];
+    }
+
+    /**
+     * the resolution of the grid as chosen by {@link #calcVoxels()}
+     *
+     * @return the number of voxels on the X, Y and Z axes
+     */
+    public int[] getGridResolution() {
+        return gridResolution;
+    }
+
+    /**
+     * the index of a voxel in the voxels arrays
+     *
+     * @param x the voxel index on the X axis
+     * @param y the voxel index on the Y axis
+     * @param z the voxel index on the Z axis
+     * @return the index of the voxel, -1 if it's outside the grid
+     */
+    public int voxelIndex(int x, int y, int z) {
+        int rx = gridResolution[0], ry = gridResolution[1], rz = gridResolution[2];
+        if (x < 0 || x >= rx || y < 0 || y >= ry || z < 0 || z >= rz) return -1;
+        return x + rx * (y + ry * z);
+    }
+
     /**
      * sets the resolution of the voxel grid from the tests
      *
@@ -147,82 +260,230 @@ public class Scene {
         return this;
     }
 
+    /**
+     * sets a different resolution of the voxel grid to each axis
+     *
+     * @param x the resolution on the X axis
+     * @param y the resolution on the Y axis
+     * @param z the resolution on the Z axis
+     * @return the object itself
+     */
+    public Scene setResolution(int x, int y, int z) {
+        this.resolutions = new int[]{x, y, z};
+        return this;
+    }
+
+    /**
+     * sets the hierarchical grid mode - each voxel with too many geometric entities is divided to a sub grid of its
+     * own, with a resolution calculated from its number of entities
+     *
+     * @param maxVoxelGeometries the maximum number of geometric entities in a voxel, 0 for a single level grid
+     * @return the object itself
+     */
+    public Scene setHierarchicalGrid(int maxVoxelGeometries) {
+        this.maxVoxelGeometries = maxVoxelGeometries;
+        return this;
+    }
+
+    /**
+     * builds a bounding volume hierarchy over the geometries of the scene. From now on the ray tracers would
+     * intersect the rays with the hierarchy instead of the geometries list, therefore it should be called after
+     * all the geometries were added to the scene
+     *
+     * @return the scene
+     */
+    public Scene calcBVH() {
+        long start = System.nanoTime();
+        this.bvh = new BVH(geometries);
+        bvhStatistics = new BuildStatistics(System.nanoTime() - start, bvh.getMemory(), bvh.getNodeCount(),
+                bvh.getDepth());
+        return this;
+    }
+
+    /**
+     * the cost of the last build of the bounding volume hierarchy by {@link #calcBVH()} - its nodes are the nodes of
+     * the hierarchy
+     *
+     * @return the build statistics, null if the hierarchy wasn't built
+     */
+    public BuildStatistics getBvhStatistics() {
+        return bvhStatistics;
+    }
+
+    /**
+     * the cost of the last build of the voxels grid by {@link #calcVoxels()} - its nodes are the voxels of the grid
+     * and of its sub grids, and its depth is 2 if there are sub grids
+     *
+     * @return the build statistics, null if the grid wasn't built
+     */
+    public BuildStatistics getGridStatistics() {
+        return gridStatistics;
+    }
+
+    /**
+     * the entity the rays should be intersected with - the bounding volume hierarchy if it was built, otherwise the
+     * geometries list
+     *
+     * @return the intersectable entity of the scene
+     */
+    public Intersectable getIntersectable() {
+        return bvh == null ? geometries : bvh;
+    }
+
     /**
      * calculates what voxels the scene has and the attributes of the voxels
      */
     public void calcVoxels() {
+        long start = System.nanoTime();
         this.setBoundary();
         this.setSceneEdges();
         this.setResolution();
         this.setVoxelsEdges();
         this.setVoxelsGeometries();
-        this.setFaces();
+        int nodes = voxelsCount();
+        int depth = 1;
+        if (subGrids != null)
+            for (SubGrid subGrid : subGrids)
+                if (subGrid != null) {
+                    nodes += subGrid.voxelsStart.length - 1;
+                    depth = 2;
+                }
+        gridStatistics = new BuildStatistics(System.nanoTime() - start, getGridMemory(), nodes, depth);
     }
 
     /**
-     * sets the boundary of the geometries in the scene
+     * sets the boundary of the grid - the bounding box of the bounded geometries in the scene, or an empty unit box
+     * if there are none
      */
     private void setBoundary() {
-        this.geometries.boundary = this.geometries.calcBoundary();
+        AABB boundary = this.geometries.calcBoundedBoundary();
+        this.gridBoundary = boundary == null ? new AABB(0, 0, 0, 1, 1, 1) : boundary;
     }
 
     /**
      * sets the edges of the scene
      */
     private void setSceneEdges() {
-        this.xEdgeScene = this.geometries.boundary[0][1] - this.geometries.boundary[0][0];
-        this.yEdgeScene = this.geometries.boundary[1][1] - this.geometries.boundary[1][0];
-        this.zEdgeScene = this.geometries.boundary[2][1] - this.geometries.boundary[2][0];
+        this.xEdgeScene = this.gridBoundary.maxX - this.gridBoundary.minX;
+        this.yEdgeScene = this.gridBoundary.maxY - this.gridBoundary.minY;
+        this.zEdgeScene = this.gridBoundary.maxZ - this.gridBoundary.minZ;
     }
 
     /**
-     * sets the resolution of the scene to divide to voxels
+     * sets the resolution of the scene to divide to voxels - the given one, or if there is none, the automatic
+     * resolution. The automatic resolution makes the voxels as close as possible to cubes, and their number about
+     * {@link #VOXELS_PER_GEOMETRY} times the number of primitive geometric entities: each axis gets
+     * edge * cbrt(VOXELS_PER_GEOMETRY * N / volume) voxels. The primitives of a mesh or of a nested collection are
+     * counted one by one, since the rays are intersected with each of them.
      */
     private void setResolution() {
-        resolutions = new double[]{resolution, resolution, resolution};
+        if (resolutions != null) {
+            gridResolution = resolutions.clone();
+            return;
+        }
+        if (resolution > 0) {
+            gridResolution = new int[]{(int) resolution, (int) resolution, (int) resolution};
+            return;
+        }
+        gridResolution = calcResolution(geometries.primitivesCount(), new double[]{xEdgeScene, yEdgeScene, zEdgeScene},
+                MAX_RESOLUTION);
+    }
+
+    /**
+     * calculates the automatic resolution of a grid - edge * cbrt(VOXELS_PER_GEOMETRY * N / volume) voxels on each
+     * axis
+     *
+     * @param count         the number of geometric entities in the grid
+     * @param edges         the size of the grid edges
+     * @param maxResolution the maximum resolution on an axis
+     * @return the number of voxels on each axis
+     */
+    public static int[] calcResolution(int count, double[] edges, int maxResolution) {
+        //a flat grid is divided only on its other axes
+        double volume = 1;
+        int dimensions = 0;
+        for (double edge : edges)
+            if (edge > 0) {
+                volume *= edge;
+                ++dimensions;
+            }
+        int[] resolution = {1, 1, 1};
+        if (dimensions == 0) return resolution;
+        double voxelsPerUnit = Math.pow(VOXELS_PER_GEOMETRY * count / volume, 1d / dimensions);
+        for (int i = 0; i < 3; ++i)
+            if (edges[i] > 0)
+                resolution[i] = (int) Math.max(1, Math.min(maxResolution, Math.round(edges[i] * voxelsPerUnit)));
+        return resolution;
     }
 
     /**
      * sets the attributes of the voxels
      */
     private void setVoxelsEdges() {
-        this.xEdgeVoxel = ((double) this.xEdgeScene) / resolution;
-        this.yEdgeVoxel = ((double) this.yEdgeScene) / resolution;
-        this.zEdgeVoxel = ((double) this.zEdgeScene) / resolution;
+        this.xEdgeVoxel = this.xEdgeScene / gridResolution[0];
+        this.yEdgeVoxel = this.yEdgeScene / gridResolution[1];
+        this.zEdgeVoxel = this.zEdgeScene / gridResolution[2];
     }
 
     /**
      * attaches the voxels to each geometric entity in the scene
      */
     private void setVoxelsGeometries() {
-        this.voxels = this.geometries.attachVoxel(this);
+        this.geometries.attachVoxel(this);
     }
 
     /**
-     * sets the regular grid faces field
+     * SubGrid class is the second level grid of a voxel of the hierarchical grid. Its voxels are stored in the same
+     * compressed layout as the scene voxels, and refer to the same geometric entities array.
      */
-    private void setFaces(){
-        //points of the scene regular grid
-        int[][] gridBoundary = geometries.getBoundary();
-        Point p1 = new Point(gridBoundary[0][0],gridBoundary[1][0], gridBoundary[2][0]);//(0,0,0)
-        Point p2 = new Point(gridBoundary[0][1], gridBoundary[1][0], gridBoundary[2][0]);//(1,0,0)
-        Point p3 = new Point(gridBoundary[0][0], gridBoundary[1][1], gridBoundary[2][0]);//(0,1,0)
-        Point p4 = new Point(gridBoundary[0][0], gridBoundary[1][0], gridBoundary[2][1]);//(0,0,1)
-        Point p5 = new Point(gridBoundary[0][1], gridBoundary[1][1], gridBoundary[2][0]);//(1,1,0)
-        Point p6 = new Point(gridBoundary[0][1], gridBoundary[1][0], gridBoundary[2][1]);//(1,0,1)
-        Point p7 = new Point(gridBoundary[0][0], gridBoundary[1][1], gridBoundary[2][1]);//(0,1,1)
-        Point p8 = new Point(gridBoundary[0][1], gridBoundary[1][1], gridBoundary[2][1]);//(1,1,1)
-
-        //faces of the regular grid
-        Polygon bottom = new Polygon(p1, p2, p5, p3);//bottom
-        Polygon front = new Polygon(p1, p2, p6, p4);//front
-        Polygon left = new Polygon(p1, p3, p7, p4);//left
-        Polygon up = new Polygon(p4, p6, p8, p7);//up
-        Polygon behind = new Polygon(p3, p5, p8, p7);//behind
-        Polygon right = new Polygon(p2, p5, p8, p6);//right
+    public static class SubGrid {
+        /**
+         * the minimum corner of the sub grid
+         */
+        public final double[] origin;
+        /**
+         * the size of the edges of a voxel of the sub grid on each axis
+         */
+        public final double[] edges;
+        /**
+         * the number of voxels on each axis
+         */
+        public final int[] resolution;
+        /**
+         * the position in {@link #voxels} of the first geometric entity of each voxel, with an extra last element
+         */
+        public final int[] voxelsStart;
+        /**
+         * the indexes (in {@link Scene#voxelsGeometries}) of the geometric entities of the voxels, voxel after voxel
+         */
+        public final int[] voxels;
 
-        //Memory wise, we won't use the ray function of findClosestPoint, since we will be in need to create a list of points
-        this.faces = new Polygon[]{bottom, front, left, up, behind, right};
+        /**
+         * SubGrid constructor
+         *
+         * @param origin      the minimum corner of the sub grid
+         * @param edges       the size of the edges of a voxel on each axis
+         * @param resolution  the number of voxels on each axis
+         * @param voxelsStart the position of the first geometric entity of each voxel
+         * @param voxels      the indexes of the geometric entities of the voxels
+         */
+        public SubGrid(double[] origin, double[] edges, int[] resolution, int[] voxelsStart, int[] voxels) {
+            this.origin = origin;
+            this.edges = edges;
+            this.resolution = resolution;
+            this.voxelsStart = voxelsStart;
+            this.voxels = voxels;
+        }
     }
 
-}
\ No newline at end of file
+    /**
+     * BuildStatistics record holds the cost of building an acceleration structure of the scene
+     *
+     * @param buildNanos the build time in nanoseconds
+     * @param memory     the approximate memory of the structure arrays in bytes
+     * @param nodes      the number of nodes of the structure
+     * @param depth      the number of levels of the structure
+     */
+    public record BuildStatistics(long buildNanos, long memory, int nodes, int depth) {
+    }
+}
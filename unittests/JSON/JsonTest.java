@@ -0,0 +1,50 @@
+package JSON;
+
+import geometries.AABB;
+import geometries.Intersectable.GeoPoint;
+import lighting.PointLight;
+import lighting.SpotLight;
+import org.junit.jupiter.api.Test;
+import primitives.Point;
+import primitives.Ray;
+import primitives.Vector;
+import scene.Scene;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Testing Json class
+ */
+class JsonTest {
+    /**
+     * Test method for {@link JSON.Json#read(String)}.
+     */
+    @Test
+    void testRead() {
+        // ============ Equivalence Partitions Tests ==============
+        // TC01: a scene written before the boundaries were boxes and the triangles kept their edges - the derived
+        // attributes are calculated again when the scene is read
+        Scene scene = Json.read("SceneTestsOldFormat.json");
+        assertNotNull(scene, "The scene should be read");
+        assertEquals(new AABB(-100, -100, -150, 100, 100, -50), scene.geometries.getBoundary(),
+                "Wrong boundary of the scene geometries");
+        List<GeoPoint> intersections = scene.geometries.findGeoIntersections(
+                new Ray(new Point(-90, 80, 0), new Vector(0, 0, -1)));
+        assertNotNull(intersections, "The ray should hit the up left triangle");
+        assertEquals(new Point(-90, 80, -100), intersections.getFirst().point, "Wrong intersection point");
+
+        // TC02: a scene with light sources of several types - each light is read with its own type
+        scene = Json.read("Bathroom.json");
+        assertNotNull(scene, "The scene should be read");
+        assertEquals(5, scene.lights.size(), "Wrong number of light sources");
+        assertEquals(PointLight.class, scene.lights.getLast().getClass(), "Wrong type of light source");
+        assertEquals(4, scene.lights.stream().filter(light -> light instanceof SpotLight).count(),
+                "Wrong number of spot lights");
+
+        // =============== Boundary Values Tests ==================
+        // TC03: a missing file
+        assertNull(Json.read("NoSuchScene.json"), "A missing file should give no scene");
+    }
+}
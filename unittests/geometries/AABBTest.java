@@ -0,0 +1,97 @@
+package geometries;
+
+import org.junit.jupiter.api.Test;
+import primitives.Point;
+import primitives.Ray;
+import primitives.Vector;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Testing AABB class
+ */
+class AABBTest {
+    private final AABB box = new AABB(0, 0, 0, 2, 2, 2);
+
+    /**
+     * Test method for {@link geometries.AABB#entryDistance(primitives.Ray, double)}.
+     */
+    @Test
+    void testEntryDistance() {
+        // ============ Equivalence Partitions Tests ==============
+        // TC01: ray enters the box
+        assertEquals(1, box.entryDistance(new Ray(new Point(1, 1, -1), new Vector(0, 0, 1)), 100), 1e-10,
+                "Wrong entry distance");
+
+        // TC02: ray head inside the box
+        assertEquals(0, box.entryDistance(new Ray(new Point(1, 1, 1), new Vector(1, 1, 1)), 100), 1e-10,
+                "Ray head inside the box should enter it at once");
+
+        // TC03: ray misses the box
+        assertEquals(-1, box.entryDistance(new Ray(new Point(3, 3, -1), new Vector(0, 0, 1)), 100),
+                "Ray should miss the box");
+
+        // TC04: ray points away from the box
+        assertEquals(-1, box.entryDistance(new Ray(new Point(1, 1, -1), new Vector(0, 0, -1)), 100),
+                "Ray should miss the box behind it");
+
+        // =============== Boundary Values Tests ==================
+        // TC05: the box is farther than the maximum distance
+        assertFalse(box.intersects(new Ray(new Point(1, 1, -5), new Vector(0, 0, 1)), 4),
+                "The box is beyond the maximum distance");
+        assertTrue(box.intersects(new Ray(new Point(1, 1, -5), new Vector(0, 0, 1)), 6),
+                "The box is within the maximum distance");
+
+        // TC06: ray along a face of the box
+        assertTrue(box.intersects(new Ray(new Point(0, 1, -1), new Vector(0, 0, 1)), 100),
+                "Ray on a face of the box should intersect it");
+
+        // TC07: ray of a flat box
+        AABB flat = new AABB(0, 0, 1, 2, 2, 1);
+        assertEquals(2, flat.entryDistance(new Ray(new Point(1, 1, -1), new Vector(0, 0, 1)), 100), 1e-10,
+                "Wrong entry distance to a flat box");
+    }
+
+    /**
+     * Test method for {@link geometries.AABB#union(geometries.AABB)}.
+     */
+    @Test
+    void testUnion() {
+        // ============ Equivalence Partitions Tests ==============
+        // TC01: two separate boxes
+        assertEquals(new AABB(-1, 0, 0, 2, 3, 2), box.union(new AABB(-1, 1, 1, 0, 3, 1)), "Wrong united box");
+
+        // =============== Boundary Values Tests ==================
+        // TC02: a box inside the other
+        assertEquals(box, box.union(new AABB(1, 1, 1, 1, 1, 1)), "Union with an inner box shouldn't change the box");
+    }
+
+    /**
+     * Test method for the tight boxes of the geometries.
+     */
+    @Test
+    void testCalcBoundary() {
+        // ============ Equivalence Partitions Tests ==============
+        // TC01: a sphere box isn't rounded to whole units
+        assertEquals(new AABB(0.9, 0.9, 0.9, 1.1, 1.1, 1.1), new Sphere(0.1, new Point(1, 1, 1)).boundary,
+                "Wrong sphere box");
+
+        // TC02: a triangle box
+        assertEquals(new AABB(0.5, 0, 0, 1.5, 0.5, 0),
+                new Triangle(new Point(0.5, 0, 0), new Point(1.5, 0, 0), new Point(1, 0.5, 0)).boundary,
+                "Wrong triangle box");
+
+        // TC03: an axis aligned cylinder - the bases extend by the radius only across the axis
+        assertEquals(new AABB(-1, -1, 0, 1, 1, 2),
+                new Cylinder(new Ray(Point.ZERO, new Vector(0, 0, 1)), 1, 2).boundary, "Wrong cylinder box");
+
+        // =============== Boundary Values Tests ==================
+        // TC04: unbounded geometries have no box, and neither does a collection of them
+        assertNull(new Plane(Point.ZERO, new Vector(0, 0, 1)).boundary, "Plane should be unbounded");
+        assertNull(new Tube(1, new Ray(Point.ZERO, new Vector(0, 0, 1))).boundary, "Tube should be unbounded");
+        assertNull(new Geometries(new Sphere(1, Point.ZERO), new Plane(Point.ZERO, new Vector(0, 0, 1))).boundary,
+                "Collection with a plane should be unbounded");
+        assertEquals(new AABB(-1, -1, -1, 1, 1, 1), new Geometries(new Sphere(1, Point.ZERO)).boundary,
+                "Wrong collection box");
+    }
+}
@@ -0,0 +1,119 @@
+package geometries;
+
+import org.junit.jupiter.api.Test;
+import primitives.Material;
+import primitives.Point;
+import primitives.Ray;
+import primitives.Vector;
+
+import java.util.Comparator;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Testing BVH class
+ */
+class BVHTest {
+    /**
+     * sorts the intersection points by their distance from the head of the ray, so two results could be compared
+     *
+     * @param ray    the ray
+     * @param points the intersection points
+     * @return the sorted points, null if there are no points
+     */
+    private static List<Point> sorted(Ray ray, List<Point> points) {
+        return points == null ? null
+                : points.stream().sorted(Comparator.comparingDouble(p -> p.distance(ray.getHead()))).toList();
+    }
+
+    /**
+     * Test method for {@link geometries.BVH#findIntersections(primitives.Ray)}.
+     */
+    @Test
+    void testFindIntersections() {
+        Geometries geometries = new Geometries();
+        for (int i = 0; i < 10; i++)
+            for (int j = 0; j < 10; j++)
+                geometries.add(new Sphere(3, new Point(10 * i, 10 * j, -50)),
+                        new Triangle(new Point(10 * i, 10 * j, -20), new Point(10 * i + 5, 10 * j, -20),
+                                new Point(10 * i, 10 * j + 5, -20)));
+        geometries.add(new Geometries(new Sphere(1, new Point(200, 200, 0))));
+        geometries.add(new Plane(new Point(0, 0, -100), new Vector(0, 0, 1)));
+        BVH bvh = new BVH(geometries);
+
+        // ============ Equivalence Partitions Tests ==============
+        // TC01: rays through the whole grid give the same intersections as the geometries list
+        for (int i = -2; i < 100; i += 3)
+            for (int j = -2; j < 100; j += 3) {
+                Ray ray = new Ray(new Point(i, j, 0), new Vector(0.1, 0.05, -1));
+                assertEquals(sorted(ray, geometries.findIntersections(ray)), sorted(ray, bvh.findIntersections(ray)),
+                        "BVH intersections differ from the geometries intersections");
+            }
+
+        // TC02: ray that misses all the bounded geometries hits only the plane
+        assertEquals(1, bvh.findIntersections(new Ray(new Point(-50, -50, 0), new Vector(0, 0, -1))).size(),
+                "Ray should intersect only the plane");
+
+        // TC03: ray hits a geometry of a nested collection
+        assertEquals(3, bvh.findIntersections(new Ray(new Point(200, 200, 10), new Vector(0, 0, -1))).size(),
+                "Ray should intersect the nested sphere twice and the plane");
+
+        // =============== Boundary Values Tests ==================
+        // TC04: intersections farther than the maximum distance are ignored
+        assertEquals(2, bvh.findGeoIntersections(new Ray(new Point(1, 1, 0), new Vector(0, 0, -1)), 50).size(),
+                "Only the triangle and the near side of the sphere are closer than the maximum distance");
+
+        // TC05: empty hierarchy
+        assertNull(new BVH(new Geometries()).findIntersections(new Ray(Point.ZERO, new Vector(0, 0, 1))),
+                "Empty hierarchy has no intersections");
+    }
+
+    /**
+     * Test method for {@link geometries.BVH#findTransparency(primitives.Ray, double, Intersectable.TransparencyRecord)}.
+     */
+    @Test
+    void testFindTransparency() {
+        Geometries geometries = new Geometries();
+        for (int i = 0; i < 10; i++)
+            geometries.add(new Sphere(3, new Point(10 * i, 0, -10 * i)).setMaterial(new Material().setKt(0.9)));
+        BVH bvh = new BVH(geometries);
+        Intersectable.TransparencyRecord expected = new Intersectable.TransparencyRecord();
+        Intersectable.TransparencyRecord result = new Intersectable.TransparencyRecord();
+
+        // ============ Equivalence Partitions Tests ==============
+        // TC01: the hierarchy accumulates the same transparency as the geometries list
+        for (int i = -20; i < 120; i += 7) {
+            Ray ray = new Ray(new Point(i, 0, 10), new Vector(1, 0, -1));
+            assertEquals(geometries.findTransparency(ray, 1000, expected.reset(0.001)),
+                    bvh.findTransparency(ray, 1000, result.reset(0.001)), "Wrong blocking");
+            assertEquals(expected.toDouble3(), result.toDouble3(), "Wrong transparency");
+        }
+    }
+
+    /**
+     * Test method for {@link geometries.BVH#BVH(geometries.Geometries)} with nodes large enough to be binned in
+     * parallel.
+     */
+    @Test
+    void testParallelBuild() {
+        Geometries geometries = new Geometries();
+        for (int i = 0; i < 100; i++)
+            for (int j = 0; j < 50; j++)
+                geometries.add(new Triangle(new Point(i, j, -i - j), new Point(i + 0.8, j, -i - j),
+                        new Point(i, j + 0.8, -i - j)));
+        BVH bvh = new BVH(geometries);
+        Intersectable.HitRecord expected = new Intersectable.HitRecord();
+        Intersectable.HitRecord result = new Intersectable.HitRecord();
+
+        // ============ Equivalence Partitions Tests ==============
+        // TC01: the hierarchy finds the same closest intersections as the geometries list
+        for (double i = 0.1; i < 100; i += 3.7)
+            for (double j = 0.1; j < 50; j += 2.9) {
+                Ray ray = new Ray(new Point(i, j, 10), new Vector(0, 0, -1));
+                geometries.findClosestHit(ray, expected.reset(Double.POSITIVE_INFINITY));
+                bvh.findClosestHit(ray, result.reset(Double.POSITIVE_INFINITY));
+                assertSame(expected.geometry, result.geometry, "Wrong closest geometry");
+            }
+    }
+}
@@ -52,4 +52,24 @@ class CylinderTest {
     void testFindIntersections(){
         //bonus
     }
-  }
\ No newline at end of file
+
+    /**
+     * Test method for {@link geometries.Cylinder#overlaps(geometries.AABB)}.
+     */
+    @Test
+    void testOverlaps() {
+        // a diagonal cylinder through the box between (0, 0, 0) and (4, 4, 4)
+        Cylinder cylinder = new Cylinder(new Ray(new Point(0, 0, 0), new Vector(1, 1, 1)), 0.5, Math.sqrt(48));
+
+        // ============ Equivalence Partitions Tests ==============
+        // TC01: box on the cylinder axis
+        assertTrue(cylinder.overlaps(new AABB(1, 1, 1, 2, 2, 2)), "The cylinder crosses the box");
+
+        // TC02: box inside the cylinder boundary, far from its axis
+        assertFalse(cylinder.overlaps(new AABB(3, 0, 0, 4, 1, 1)), "The box is far from the cylinder");
+
+        // =============== Boundary Values Tests ==================
+        // TC03: box beyond the cylinder base, within the radius around the axis end - the test is conservative
+        assertTrue(cylinder.overlaps(new AABB(4.2, 4.2, 4.2, 5, 5, 5)), "The box is within the cylinder capsule");
+    }
+}
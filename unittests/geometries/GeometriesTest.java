@@ -1,6 +1,8 @@
 package geometries;
 
 import org.junit.jupiter.api.Test;
+import primitives.Double3;
+import primitives.Material;
 import primitives.Point;
 import primitives.Ray;
 import primitives.Vector;
@@ -43,4 +45,80 @@ class GeometriesTest {
         assertNull(Geomet.findIntersections(new Ray(new Point(10,10,10),new Vector(0,0,1))), "empty list");
 
     }
-}
\ No newline at end of file
+
+    /**
+     * Test method for {@link geometries.Geometries#findClosestHit(primitives.Ray, Intersectable.HitRecord)}.
+     */
+    @Test
+    void testFindClosestHit() {
+        Geometries geometries = new Geometries(
+                new Cylinder(new Ray(new Point(3, 0, -5), new Vector(0, 1, 0.5)), 1, 2),
+                new Sphere(1, new Point(-3, 0, -5)),
+                new Triangle(new Point(-1, -1, -4), new Point(1, -1, -4), new Point(0, 1, -6)),
+                new Polygon(new Point(-4, -4, -9), new Point(4, -4, -9), new Point(4, 4, -9), new Point(-4, 4, -9)),
+                new Tube(0.5, new Ray(new Point(0, 3, -5), new Vector(1, 0, 0))),
+                new Plane(new Point(0, -4, 0), new Vector(0, 1, 0)));
+        Intersectable.HitRecord hit = new Intersectable.HitRecord();
+
+        // ============ Equivalence Partitions Tests ==============
+        // TC01: rays in all directions (not through edges) find the same closest intersection as the intersections list
+        for (double x = -4.95; x <= 5; x += 0.25)
+            for (double y = -4.95; y <= 5; y += 0.25) {
+                Ray ray = new Ray(new Point(0, 0, 1), new Vector(x, y, -6));
+                Intersectable.GeoPoint expected = ray.findClosestGeoPoint(geometries.findGeoIntersections(ray));
+                Intersectable.GeoPoint result = geometries.findClosestHit(ray, hit.reset(Double.POSITIVE_INFINITY))
+                        ? hit.toGeoPoint(ray) : null;
+                if (expected == null)
+                    assertNull(result, "There should be no closest intersection");
+                else {
+                    assertNotNull(result, "The closest intersection was not found");
+                    assertSame(expected.geometry, result.geometry, "Wrong closest geometry");
+                    assertEquals(0, expected.point.distance(result.point), 1e-7, "Wrong closest point");
+                }
+            }
+
+        // TC02: intersection closer than the distance of the record is found
+        assertTrue(geometries.findClosestHit(new Ray(new Point(-3, 0, 0), new Vector(0, 0, -1)), hit.reset(5)),
+                "The sphere is closer than the maximum distance");
+        assertEquals(4, hit.t, 1e-10, "Wrong distance of the closest intersection");
+
+        // =============== Boundary Values Tests ==================
+        // TC03: the record is not changed when the intersections are not closer than its distance
+        assertFalse(geometries.findClosestHit(new Ray(new Point(-3, 0, 0), new Vector(0, 0, -1)), hit.reset(4)),
+                "The sphere is not closer than the maximum distance");
+        assertNull(hit.geometry, "The record should not be changed");
+    }
+
+    /**
+     * Test method for
+     * {@link geometries.Geometries#findTransparency(primitives.Ray, double, Intersectable.TransparencyRecord)}.
+     */
+    @Test
+    void testFindTransparency() {
+        Material glass = new Material().setKt(0.5);
+        Geometries geometries = new Geometries(
+                new Sphere(1, new Point(0, 0, -5)).setMaterial(glass),
+                new Cylinder(new Ray(new Point(0, -1, -10), new Vector(0, 1, 0)), 1, 2).setMaterial(glass),
+                new Triangle(new Point(-2, -2, -3), new Point(2, -2, -3), new Point(0, 2, -3)).setMaterial(glass),
+                new Plane(new Point(0, 0, -20), new Vector(0, 0, 1)));
+        Intersectable.TransparencyRecord transparency = new Intersectable.TransparencyRecord();
+        Ray ray = new Ray(Point.ZERO, new Vector(0, 0, -1));
+
+        // ============ Equivalence Partitions Tests ==============
+        // TC01: light through the triangle, the two sides of the sphere and the two sides of the cylinder
+        assertFalse(geometries.findTransparency(ray, 15, transparency.reset(0.001)), "The light is not blocked");
+        assertEquals(new Double3(1 / 32d), transparency.toDouble3(), "Wrong transparency");
+
+        // TC02: the opaque plane blocks the light
+        assertTrue(geometries.findTransparency(ray, 25, transparency.reset(0.001)), "The plane blocks the light");
+        assertEquals(Double3.ZERO, transparency.toDouble3(), "Blocked light has no transparency");
+
+        // TC03: the light is blocked when the transparency is below the minimum
+        assertTrue(geometries.findTransparency(ray, 15, transparency.reset(0.1)), "The light is too weak");
+
+        // =============== Boundary Values Tests ==================
+        // TC04: only the intersections before the light source count
+        assertFalse(geometries.findTransparency(ray, 5, transparency.reset(0.001)), "The light is not blocked");
+        assertEquals(new Double3(0.25), transparency.toDouble3(), "Only the triangle and the sphere front count");
+    }
+}
@@ -111,4 +111,27 @@ class PlaneTest {
         result = p.findIntersections(new Ray(new Point(2, 1, 0), new Vector(1, 0, 0)));
         assertNull(result, "starts on the normal and the ray not on the plane");
     }
-}
\ No newline at end of file
+
+    /**
+     * Test method for {@link geometries.Intersectable#findGeoIntersections(primitives.Ray, double)} and the closest
+     * hit and count queries at the maximum distance.
+     */
+    @Test
+    void testMaxDistance() {
+        Plane plane = new Plane(new Point(0, 0, 0), new Vector(0, 0, 1));
+        Ray ray = new Ray(new Point(1, 1, 2), new Vector(0, 0, -1));
+        Intersectable.HitRecord hit = new Intersectable.HitRecord();
+
+        // ============ Equivalence Partitions Tests ==============
+        // TC01: intersection closer than the maximum distance is found by all the queries
+        assertEquals(1, plane.findGeoIntersections(ray, 3).size(), "The intersection should be found");
+        assertTrue(plane.findClosestHit(ray, hit.reset(3)), "The closest hit should be found");
+        assertEquals(1, plane.countIntersections(ray, 3), "The intersection should be counted");
+
+        // =============== Boundary Values Tests ==================
+        // TC02: intersection exactly at the maximum distance isn't found by any of the queries
+        assertNull(plane.findGeoIntersections(ray, 2), "The intersection at the maximum distance should be excluded");
+        assertFalse(plane.findClosestHit(ray, hit.reset(2)), "The hit at the maximum distance should be excluded");
+        assertEquals(0, plane.countIntersections(ray, 2), "The intersection at the maximum distance shouldn't count");
+    }
+}
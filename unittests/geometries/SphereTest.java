@@ -121,4 +121,23 @@ class SphereTest {
                 "Ray's line is outside, ray is orthogonal to ray start to sphere's center line");
 
     }
+
+    /**
+     * Test method for {@link geometries.Sphere#overlaps(geometries.AABB)}.
+     */
+    @Test
+    void testOverlaps() {
+        Sphere sphere = new Sphere(1, new Point(0, 0, 0));
+
+        // ============ Equivalence Partitions Tests ==============
+        // TC01: box that the sphere crosses
+        assertTrue(sphere.overlaps(new AABB(0.5, 0.5, 0, 2, 2, 1)), "The sphere crosses the box");
+
+        // TC02: box at the corner of the sphere boundary, out of the sphere
+        assertFalse(sphere.overlaps(new AABB(0.8, 0.8, 0.8, 1, 1, 1)), "The box is out of the sphere");
+
+        // =============== Boundary Values Tests ==================
+        // TC03: box touching the sphere
+        assertTrue(sphere.overlaps(new AABB(1, -1, -1, 2, 1, 1)), "The box touches the sphere");
+    }
 }
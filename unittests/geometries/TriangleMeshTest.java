@@ -0,0 +1,215 @@
+package geometries;
+
+import org.junit.jupiter.api.Test;
+import primitives.Material;
+import primitives.Point;
+import primitives.Ray;
+import primitives.Vector;
+
+import java.util.Comparator;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Testing TriangleMesh class
+ */
+class TriangleMeshTest {
+    /**
+     * the amount of vertices along each edge of the tested surface
+     */
+    private static final int SIZE = 20;
+    /**
+     * the vertices of a wavy surface over a square, in rows
+     */
+    private static final Point[] points = new Point[SIZE * SIZE];
+    /**
+     * two triangles for each square between four adjacent vertices
+     */
+    private static final int[] indices = new int[6 * (SIZE - 1) * (SIZE - 1)];
+
+    static {
+        for (int i = 0; i < SIZE; ++i)
+            for (int j = 0; j < SIZE; ++j)
+                points[i * SIZE + j] = new Point(i, j, Math.sin(i / 3d) * Math.cos(j / 4d) * 3);
+        int k = 0;
+        for (int i = 0; i < SIZE - 1; ++i)
+            for (int j = 0; j < SIZE - 1; ++j) {
+                int corner = i * SIZE + j;
+                indices[k++] = corner;
+                indices[k++] = corner + SIZE;
+                indices[k++] = corner + 1;
+                indices[k++] = corner + SIZE + 1;
+                indices[k++] = corner + 1;
+                indices[k++] = corner + SIZE;
+            }
+    }
+
+    /**
+     * the same surface as separate triangles
+     *
+     * @return the triangles
+     */
+    private static Geometries triangles() {
+        Geometries geometries = new Geometries();
+        for (int k = 0; k < indices.length; k += 3)
+            geometries.add(new Triangle(points[indices[k]], points[indices[k + 1]], points[indices[k + 2]]));
+        return geometries;
+    }
+
+    /**
+     * sorts the intersection points by their distance from the head of the ray, so two results could be compared
+     *
+     * @param ray    the ray
+     * @param points the intersection points
+     * @return the sorted points, null if there are no points
+     */
+    private static List<Point> sorted(Ray ray, List<Point> points) {
+        return points == null ? null
+                : points.stream().sorted(Comparator.comparingDouble(p -> p.distance(ray.getHead()))).toList();
+    }
+
+    /**
+     * Test method for {@link geometries.TriangleMesh#TriangleMesh(double[], int[])}.
+     */
+    @Test
+    void testConstructor() {
+        // ============ Equivalence Partitions Tests ==============
+        // TC01: Correct mesh
+        assertEquals(2 * (SIZE - 1) * (SIZE - 1), new TriangleMesh(points, indices).size(),
+                "Wrong amount of triangles");
+
+        // TC02: Index which isn't of a vertex
+        assertThrows(IllegalArgumentException.class,
+                () -> new TriangleMesh(new double[]{0, 0, 0, 1, 0, 0, 0, 1, 0}, new int[]{0, 1, 3}),
+                "Index out of the vertices should throw an exception");
+
+        // =============== Boundary Values Tests ==================
+        // TC03: Mesh without triangles
+        assertThrows(IllegalArgumentException.class,
+                () -> new TriangleMesh(new double[]{0, 0, 0, 1, 0, 0, 0, 1, 0}, new int[0]),
+                "Mesh without triangles should throw an exception");
+
+        // TC04: Indices which aren't whole triangles
+        assertThrows(IllegalArgumentException.class,
+                () -> new TriangleMesh(new double[]{0, 0, 0, 1, 0, 0, 0, 1, 0}, new int[]{0, 1}),
+                "Partial triangle should throw an exception");
+    }
+
+    /**
+     * Test method for {@link geometries.TriangleMesh#findGeoIntersectionsHelper(primitives.Ray, double)}.
+     */
+    @Test
+    void testFindIntersections() {
+        TriangleMesh mesh = new TriangleMesh(points, indices);
+        Geometries triangles = triangles();
+
+        // ============ Equivalence Partitions Tests ==============
+        // TC01: rays across the surface find the same intersections as the separate triangles
+        for (double i = -2.13; i < SIZE + 2; i += 0.71)
+            for (double j = -2.07; j < SIZE + 2; j += 0.83) {
+                Ray ray = new Ray(new Point(i, j, 10), new Vector(0.3, 0.2, -1));
+                assertEquals(sorted(ray, triangles.findIntersections(ray)), sorted(ray, mesh.findIntersections(ray)),
+                        "Mesh intersections differ from the triangles intersections");
+            }
+
+        // TC02: ray which misses the mesh
+        assertNull(mesh.findIntersections(new Ray(new Point(-5, -5, 10), new Vector(0, 0, 1))),
+                "Ray shouldn't intersect the mesh");
+
+        // =============== Boundary Values Tests ==================
+        // TC03: intersections farther than the maximum distance are ignored
+        assertNull(mesh.findGeoIntersections(new Ray(new Point(5.3, 5.4, 10), new Vector(0, 0, -1)), 5),
+                "The surface is farther than the maximum distance");
+    }
+
+    /**
+     * Test method for {@link geometries.TriangleMesh#findClosestHit(primitives.Ray, Intersectable.HitRecord)}.
+     */
+    @Test
+    void testFindClosestHit() {
+        TriangleMesh mesh = new TriangleMesh(points, indices);
+        mesh.setMaterial(new Material().setKd(0.5));
+        Geometries triangles = triangles();
+        Intersectable.HitRecord expected = new Intersectable.HitRecord();
+        Intersectable.HitRecord result = new Intersectable.HitRecord();
+
+        // ============ Equivalence Partitions Tests ==============
+        // TC01: rays across the surface hit the same triangles at the same distances, with the same normals
+        for (double i = 0.17; i < SIZE - 1; i += 0.53)
+            for (double j = 0.11; j < SIZE - 1; j += 0.67) {
+                Ray ray = new Ray(new Point(i, j, 10), new Vector(-0.1, 0.2, -1));
+                assertEquals(triangles.findClosestHit(ray, expected.reset(Double.POSITIVE_INFINITY)),
+                        mesh.findClosestHit(ray, result.reset(Double.POSITIVE_INFINITY)), "Wrong hit");
+                if (expected.geometry == null) continue;
+                assertEquals(expected.t, result.t, 1e-9, "Wrong closest distance");
+                Point point = result.toGeoPoint(ray).point;
+                assertEquals(expected.geometry.getNormal(point), result.geometry.getNormal(point), "Wrong normal");
+                assertSame(mesh.getMaterial(), result.geometry.getMaterial(), "The triangle has the mesh material");
+            }
+
+        // =============== Boundary Values Tests ==================
+        // TC02: ray through a shared edge of two triangles doesn't pass between them
+        assertTrue(mesh.findClosestHit(new Ray(new Point(0.5, 0.5, 10), new Vector(0, 0, -1)),
+                result.reset(Double.POSITIVE_INFINITY)), "Ray through a shared edge should hit the mesh");
+
+        // TC03: hits of the same triangle share its face
+        Ray ray = new Ray(new Point(3.3, 4.2, 10), new Vector(0, 0, -1));
+        mesh.findClosestHit(ray, expected.reset(Double.POSITIVE_INFINITY));
+        mesh.findClosestHit(ray, result.reset(Double.POSITIVE_INFINITY));
+        assertSame(expected.geometry, result.geometry, "The hits of a triangle should share its face");
+    }
+
+    /**
+     * Test method for {@link geometries.TriangleMesh#getNormal(primitives.Point)}.
+     */
+    @Test
+    void testGetNormal() {
+        TriangleMesh mesh = new TriangleMesh(points, indices);
+        Geometries triangles = triangles();
+        Intersectable.HitRecord hit = new Intersectable.HitRecord();
+
+        // ============ Equivalence Partitions Tests ==============
+        // TC01: points across the surface have the normal of the triangle they are on
+        for (double i = 0.17; i < SIZE - 1; i += 0.53)
+            for (double j = 0.11; j < SIZE - 1; j += 0.67) {
+                Ray ray = new Ray(new Point(i, j, 10), new Vector(-0.1, 0.2, -1));
+                if (!triangles.findClosestHit(ray, hit.reset(Double.POSITIVE_INFINITY))) continue;
+                Point point = hit.getPoint(ray);
+                assertEquals(hit.geometry.getNormal(point), mesh.getNormal(point), "Wrong normal");
+            }
+
+        // TC02: point which isn't on the mesh
+        assertThrows(IllegalArgumentException.class, () -> mesh.getNormal(new Point(-5, -5, 0)),
+                "A point out of the mesh should throw an exception");
+
+        // =============== Boundary Values Tests ==================
+        // TC03: point on a vertex shared by several triangles has the normal of one of them
+        Vector normal = mesh.getNormal(points[5 * SIZE + 5]);
+        assertEquals(1, normal.length(), 1e-9, "The normal should be normalized");
+        assertTrue(normal.getZ() > 0, "The normal should be of a triangle around the vertex");
+    }
+
+    /**
+     * Test method for {@link geometries.TriangleMesh#overlaps(AABB)}.
+     */
+    @Test
+    void testOverlaps() {
+        TriangleMesh mesh = new TriangleMesh(new double[]{0, 0, 0, 2, 0, 0, 0, 2, 0, 2, 2, 2},
+                new int[]{0, 1, 2, 3, 2, 1});
+
+        // ============ Equivalence Partitions Tests ==============
+        // TC01: Box around a vertex of the first triangle
+        assertTrue(mesh.overlaps(new AABB(-0.5, -0.5, -0.5, 0.5, 0.5, 0.5)), "Box should overlap the mesh");
+
+        // TC02: Box in the bounding box of the mesh, but away from both triangles
+        assertFalse(mesh.overlaps(new AABB(0.1, 0.1, 1.5, 0.4, 0.4, 1.9)), "Box shouldn't overlap the mesh");
+
+        // TC03: Box beside the first triangle, in the bounding box of the mesh
+        assertFalse(mesh.overlaps(new AABB(1.5, -1, -0.1, 2.5, -0.1, 0.1)), "Box shouldn't overlap the mesh");
+
+        // =============== Boundary Values Tests ==================
+        // TC04: Box touching the raised vertex of the second triangle
+        assertTrue(mesh.overlaps(new AABB(2, 2, 2, 3, 3, 3)), "Touching box should overlap the mesh");
+    }
+}
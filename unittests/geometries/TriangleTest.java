@@ -80,4 +80,87 @@ class TriangleTest {
 
     }
 
-}
\ No newline at end of file
+    /**
+     * Test method for {@link geometries.Triangle#calcDistance(primitives.Ray, double[])}.
+     */
+    @Test
+    void testCalcDistance() {
+        Triangle triangle = new Triangle(new Point(0, 0, 0), new Point(4, 0, 0), new Point(0, 4, 0));
+        double[] barycentric = new double[2];
+
+        // ============ Equivalence Partitions Tests ==============
+        // TC01: Ray intersects the triangle, the barycentric coordinates are the weights of the second and the third
+        // vertices
+        assertEquals(2, triangle.calcDistance(new Ray(new Point(1, 2, 2), new Vector(0, 0, -1)), barycentric),
+                1e-10, "Wrong distance to the triangle");
+        assertArrayEquals(new double[]{0.25, 0.5}, barycentric, 1e-10, "Wrong barycentric coordinates");
+
+        // TC02: Ray misses the triangle beside its long edge
+        assertTrue(Double.isNaN(triangle.calcDistance(new Ray(new Point(3, 3, 2), new Vector(0, 0, -1)), null)),
+                "Ray beside the triangle shouldn't intersect it");
+
+        // TC03: Triangle behind the ray head
+        assertTrue(Double.isNaN(triangle.calcDistance(new Ray(new Point(1, 1, 2), new Vector(0, 0, 1)), null)),
+                "Triangle behind the ray shouldn't be intersected");
+
+        // =============== Boundary Values Tests ==================
+        // TC04: Ray parallel to the triangle plane
+        assertTrue(Double.isNaN(triangle.calcDistance(new Ray(new Point(-1, 1, 0), new Vector(1, 0, 0)), null)),
+                "Ray in the triangle plane shouldn't intersect it");
+
+        // TC05: Ray through the long edge
+        assertTrue(Double.isNaN(triangle.calcDistance(new Ray(new Point(2, 2, 2), new Vector(0, 0, -1)), null)),
+                "Ray through an edge shouldn't intersect the triangle");
+
+        // TC06: Ray starts at the triangle
+        assertTrue(Double.isNaN(triangle.calcDistance(new Ray(new Point(1, 1, 0), new Vector(0, 0, 1)), null)),
+                "Ray starting at the triangle shouldn't intersect it");
+    }
+
+    /**
+     * Test method for {@link geometries.Polygon#overlaps(geometries.AABB)}.
+     */
+    @Test
+    void testOverlaps() {
+        // a diagonal triangle through the unit cube
+        Triangle triangle = new Triangle(new Point(1, 0, 0), new Point(0, 1, 0), new Point(0, 0, 1));
+
+        // ============ Equivalence Partitions Tests ==============
+        // TC01: box that the triangle crosses
+        assertTrue(triangle.overlaps(new AABB(0, 0, 0, 0.5, 0.5, 0.5)), "The triangle crosses the box");
+
+        // TC02: box inside the triangle boundary, below the triangle plane
+        assertFalse(triangle.overlaps(new AABB(0, 0, 0, 0.3, 0.3, 0.3)), "The box is below the triangle");
+
+        // TC03: box inside the triangle boundary, crossing the triangle plane beside an edge
+        Triangle flat = new Triangle(new Point(0, 0, 0), new Point(2, 0, 0), new Point(0, 2, 0));
+        assertFalse(flat.overlaps(new AABB(1.5, 1.5, -0.1, 2, 2, 0.1)), "The box is beside the triangle edge");
+
+        // =============== Boundary Values Tests ==================
+        // TC04: box touching the triangle at a vertex
+        assertTrue(triangle.overlaps(new AABB(1, 0, 0, 2, 1, 1)), "The box touches the triangle vertex");
+    }
+
+    /**
+     * Test method for {@link geometries.Intersectable#findGeoIntersections(primitives.Ray, double)} and the closest
+     * hit and count queries at the maximum distance.
+     */
+    @Test
+    void testMaxDistance() {
+        Triangle triangle = new Triangle(new Point(0, 0, 0), new Point(4, 0, 0), new Point(0, 4, 0));
+        Ray ray = new Ray(new Point(1, 1, 2), new Vector(0, 0, -1));
+        Intersectable.HitRecord hit = new Intersectable.HitRecord();
+
+        // ============ Equivalence Partitions Tests ==============
+        // TC01: intersection closer than the maximum distance is found by all the queries
+        assertEquals(1, triangle.findGeoIntersections(ray, 3).size(), "The intersection should be found");
+        assertTrue(triangle.findClosestHit(ray, hit.reset(3)), "The closest hit should be found");
+        assertEquals(1, triangle.countIntersections(ray, 3), "The intersection should be counted");
+
+        // =============== Boundary Values Tests ==================
+        // TC02: intersection exactly at the maximum distance isn't found by any of the queries
+        assertNull(triangle.findGeoIntersections(ray, 2), "The intersection at the maximum distance should be excluded");
+        assertFalse(triangle.findClosestHit(ray, hit.reset(2)), "The hit at the maximum distance should be excluded");
+        assertEquals(0, triangle.countIntersections(ray, 2), "The intersection at the maximum distance shouldn't count");
+    }
+}
@@ -54,4 +54,36 @@ class RayTest {
 
     }
 
-}
\ No newline at end of file
+    @Test
+    void testGenerateBeam(){
+        Ray ray = new Ray(Point.ZERO, new Vector(0, 0, 1));
+        Vector n = new Vector(0, 0, -1);
+
+        // ============ Equivalence Partitions Tests ==============
+
+        //TC01: the beam has the main ray first and all its rays pass through the circle
+        List<Ray> beam = ray.generateBeam(n, 2, 10, 50);
+        assertEquals(50, beam.size(), "wrong amount of rays");
+        assertSame(ray, beam.get(0), "the main ray should be first");
+        for (Ray r : beam) {
+            Point p = r.getPoint(10 / r.getDirection().getZ());
+            assertTrue(p.distance(new Point(0, 0, 10)) <= 2 + 1e-9, "ray outside the circle");
+        }
+
+        //TC02: the first quarter of the beam is spread over all the quarters of the circle
+        boolean[] quarters = new boolean[4];
+        for (Ray r : beam.subList(1, 13))
+            quarters[(r.getDirection().getX() > 0 ? 1 : 0) + (r.getDirection().getY() > 0 ? 2 : 0)] = true;
+        for (boolean quarter : quarters)
+            assertTrue(quarter, "the first rays should cover all the quarters of the circle");
+
+        // =============== Boundary Values Tests ==================
+
+        //TC03: a single ray
+        assertEquals(List.of(ray), ray.generateBeam(n, 2, 10, 1), "single ray beam is the main ray");
+
+        //TC04: zero radius
+        assertEquals(List.of(ray), ray.generateBeam(n, 0, 10, 50), "zero radius beam is the main ray");
+    }
+
+}
@@ -0,0 +1,84 @@
+package primitives;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Testing Sampler class
+ */
+class SamplerTest {
+
+    /**
+     * Test method for {@link primitives.Sampler#setPixel(int, int)}.
+     */
+    @Test
+    void testSetPixel() {
+        Sampler sampler = Sampler.current();
+
+        // ============ Equivalence Partitions Tests ==============
+        // TC01: the same pixel gets the same numbers again
+        sampler.setPixel(17, 42);
+        double first = sampler.nextDouble(), second = sampler.nextDouble();
+        sampler.setPixel(3, 5).nextDouble();
+        sampler.setPixel(17, 42);
+        assertEquals(first, sampler.nextDouble(), "The pixel should get the same first number");
+        assertEquals(second, sampler.nextDouble(), "The pixel should get the same second number");
+
+        // TC02: neighbor pixels get different numbers
+        assertNotEquals(first, sampler.setPixel(18, 42).nextDouble(), "Neighbor pixels got the same number");
+
+        // TC03: the sample index restarts for each pixel
+        sampler.nextSample();
+        assertEquals(0, sampler.setPixel(17, 42).nextSample(), "The sample index should restart");
+
+        // =============== Boundary Values Tests ==================
+        // TC04: the numbers are in [0,1)
+        sampler.setPixel(0, 0);
+        for (int i = 0; i < 1000; i++) {
+            double u = sampler.nextDouble();
+            assertTrue(u >= 0 && u < 1, "Random number out of range");
+        }
+    }
+
+    /**
+     * Test method for {@link primitives.Sampler#halton(int, int)}.
+     */
+    @Test
+    void testHalton() {
+        // ============ Equivalence Partitions Tests ==============
+        // TC01: base 2
+        assertEquals(0.75, Sampler.halton(2, 3), 1e-12, "Wrong base 2 element");
+
+        // TC02: base 3
+        assertEquals(7 / 9d, Sampler.halton(3, 5), 1e-12, "Wrong base 3 element");
+
+        // =============== Boundary Values Tests ==================
+        // TC03: index 0
+        assertEquals(0, Sampler.halton(3, 0), "The first element should be 0");
+    }
+
+    /**
+     * Test method for {@link primitives.Sampler#sobol(int, int)}.
+     */
+    @Test
+    void testSobol() {
+        // ============ Equivalence Partitions Tests ==============
+        // TC01: known elements of the first and second dimensions
+        assertEquals(0.25, Sampler.sobol(0, 2), 1e-12, "Wrong first dimension element");
+        assertEquals(0.75, Sampler.sobol(1, 2), 1e-12, "Wrong second dimension element");
+        assertEquals(0.75, Sampler.sobol(0, 3), 1e-12, "Wrong first dimension element");
+        assertEquals(0.25, Sampler.sobol(1, 3), 1e-12, "Wrong second dimension element");
+
+        // TC02: each 16 elements have one point in each cell of a 4x4 grid
+        boolean[] cells = new boolean[16];
+        for (int i = 16; i < 32; i++)
+            cells[(int) (Sampler.sobol(0, i) * 4) * 4 + (int) (Sampler.sobol(1, i) * 4)] = true;
+        for (boolean cell : cells)
+            assertTrue(cell, "A cell of the grid has no point");
+
+        // =============== Boundary Values Tests ==================
+        // TC03: index 0
+        assertEquals(0, Sampler.sobol(1, 0), "The first element should be 0");
+    }
+}
@@ -1,11 +1,20 @@
 package renderer;
 
-import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.*;
 
 import org.junit.jupiter.api.Test;
 
+import geometries.Sphere;
+import geometries.Triangle;
+import lighting.PointLight;
 import primitives.*;
 import scene.Scene;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
 //import Scene.Scene;
 
 
@@ -22,6 +31,53 @@ class CameraTest {
             .setDirection(new Vector(0, 0, -1), new Vector(0, -1, 0))
             .setVpDistance(10);
 
+    /**
+     * Creates a camera builder looking at a sphere and a triangle lit by a point light, rendering in tiles of 8
+     * pixels
+     *
+     * @return the camera builder, without an image writer
+     */
+    private static Camera.Builder renderBuilder() {
+        Scene scene = new Scene("Render scene");
+        scene.geometries.add(new Sphere(30, new Point(0, 0, -100)).setEmission(new Color(100, 20, 20))
+                        .setMaterial(new Material().setKd(0.5).setKs(0.5).setShininess(30)),
+                new Triangle(new Point(-70, -40, -150), new Point(70, -40, -150), new Point(0, 40, -200))
+                        .setEmission(new Color(20, 60, 20)).setMaterial(new Material().setKd(0.4).setKr(0.3)));
+        scene.lights.add(new PointLight(new Color(500, 500, 500), new Point(50, 100, 0)));
+        return Camera.getBuilder()
+                .setLocation(new Point(0, 0, 100))
+                .setDirection(new Vector(0, 0, -1), new Vector(0, 1, 0))
+                .setVpDistance(100).setVpSize(150, 90)
+                .setRayTracer(new SimpleRayTracer(scene))
+                .setTileSize(8);
+    }
+
+    /**
+     * Renders an image of 37x23 pixels - not a multiple of the tile size - by a camera builder
+     *
+     * @param builder the camera builder, with the rendering mode to test
+     * @return the image writer of the rendered image
+     */
+    private static ImageWriter render(Camera.Builder builder) {
+        ImageWriter imageWriter = new ImageWriter("Test", 37, 23);
+        builder.setImageWriter(imageWriter).build().renderImage();
+        return imageWriter;
+    }
+
+    /**
+     * Asserts that two images have the same pixels
+     *
+     * @param expected the expected image
+     * @param actual   the actual image
+     * @param message  the failure message
+     */
+    private static void assertSameImage(ImageWriter expected, ImageWriter actual, String message) {
+        for (int row = 0; row < expected.getNy(); row++)
+            for (int column = 0; column < expected.getNx(); column++)
+                assertEquals(expected.getPixel(column, row).getRgb(), actual.getPixel(column, row).getRgb(),
+                        message + " at pixel (" + column + ", " + row + ")");
+    }
+
     /**
      * Test method for
      * {@link renderer.Camera#constructRay(int, int, int, int)}.
@@ -61,8 +117,270 @@ class CameraTest {
         // BV06: 3X3 Corner (0,0)
         assertEquals(new Ray(Point.ZERO, new Vector(2, -2, -10)),
                 camera2.constructRay(3, 3, 0, 0), badRay);
+    }
 
+    /**
+     * Test method for {@link renderer.Camera.Builder#setAdaptiveSuperSampling(int, double)}.
+     */
+    @Test
+    void testSetAdaptiveSuperSampling() {
+        // ============ Equivalence Partitions Tests ==============
+        // EP01: Negative depth
+        assertThrows(IllegalArgumentException.class, () -> cameraBuilder.setAdaptiveSuperSampling(-1, 10),
+                "Negative depth should throw an exception");
+
+        // EP02: Negative threshold
+        assertThrows(IllegalArgumentException.class, () -> cameraBuilder.setAdaptiveSuperSampling(2, -1),
+                "Negative threshold should throw an exception");
+
+        // =============== Boundary Values Tests ==================
+        // BV01: Depth 0 turns the super sampling off
+        assertDoesNotThrow(() -> cameraBuilder.setAdaptiveSuperSampling(0, 0), "Depth 0 should be allowed");
     }
 
-}
+    /**
+     * Test method for {@link renderer.Camera.Builder#setAdaptiveSuperSampling(int, double)} - the amount of rays the
+     * adaptive super sampling casts.
+     */
+    @Test
+    void testAdaptiveSuperSamplingRays() {
+        // ============ Equivalence Partitions Tests ==============
+        // EP01: A flat area - the empty scene - costs 4 rays per pixel
+        RenderStatistics statistics = new RenderStatistics();
+        cameraBuilder.setVpSize(8, 8).setImageWriter(new ImageWriter("Test", 4, 4))
+                .setAdaptiveSuperSampling(3, 10).setStatistics(statistics).build().renderImage();
+        assertEquals(4 * 16, statistics.getPrimaryRays(), "A flat pixel should cost 4 rays");
+
+        // EP02: The edges of the geometries get more rays
+        statistics.reset();
+        render(renderBuilder().setAdaptiveSuperSampling(3, 10).setStatistics(statistics));
+        assertTrue(statistics.getPrimaryRays() > 4 * 37 * 23, "The edges should get more rays");
+
+        // EP03: A subdivided quarter keeps its sample - when every ray has another color, each level of
+        // subdivision casts 3 new rays in each quarter
+        AtomicInteger rays = new AtomicInteger();
+        RayTracerBase tracer = new RayTracerBase(new Scene("Noise")) {
+            @Override
+            public Color traceRay(Ray ray) {
+                return new Color(100 * rays.incrementAndGet(), 0, 0);
+            }
+        };
+        Camera.Builder noise = cameraBuilder.setImageWriter(new ImageWriter("Test", 2, 2)).setRayTracer(tracer)
+                .setStatistics(null);
+        noise.setAdaptiveSuperSampling(3, 10).build().renderImage();
+        assertEquals(4 * (4 + 4 * 3 + 16 * 3), rays.get(), "Wrong amount of rays of 3 levels of subdivision");
+
+        // =============== Boundary Values Tests ==================
+        // BV01: A single level isn't subdivided
+        rays.set(0);
+        noise.setAdaptiveSuperSampling(1, 10).build().renderImage();
+        assertEquals(4 * 4, rays.get(), "A single level should cost 4 rays per pixel");
+    }
+
+    /**
+     * Test method for {@link renderer.Camera#renderProgressive(int, Camera.ProgressListener)}.
+     */
+    @Test
+    void testRenderProgressive() {
+        Camera camera = cameraBuilder.setVpSize(8, 8).setImageWriter(new ImageWriter("Test", 4, 4)).build();
+        List<Integer> passes = new ArrayList<>();
+
+        // ============ Equivalence Partitions Tests ==============
+        // EP01: The listener gets each pass with the samples per pixel so far
+        camera.renderProgressive(3, (c, samples) -> passes.add(samples));
+        assertEquals(List.of(1, 2, 3), passes, "The listener should get each pass");
+
+        // EP02: Cancelling in the listener stops the render at that quality
+        passes.clear();
+        camera.renderProgressive(5, (c, samples) -> {
+            passes.add(samples);
+            if (samples == 2) c.cancelRendering();
+        });
+        assertEquals(List.of(1, 2), passes, "The render should stop after the cancelling pass");
 
+        // =============== Boundary Values Tests ==================
+        // BV01: No passes
+        assertThrows(IllegalArgumentException.class, () -> camera.renderProgressive(0, null),
+                "Zero passes should throw an exception");
+
+        // BV02: A single pass without a listener
+        assertDoesNotThrow(() -> camera.renderProgressive(1, null), "A single pass should render");
+    }
+
+    /**
+     * Test method for {@link renderer.Camera#renderUntil(Instant, int, Camera.ProgressListener)}.
+     */
+    @Test
+    void testRenderUntil() {
+        ImageWriter imageWriter = new ImageWriter("Test", 4, 4);
+        Camera camera = cameraBuilder.setVpSize(8, 8).setImageWriter(imageWriter).build();
+        List<Integer> passes = new ArrayList<>();
+
+        // ============ Equivalence Partitions Tests ==============
+        // EP01: A far deadline - the render completes all the passes
+        Camera.RenderResult result = camera.renderUntil(Instant.now().plusSeconds(60), 3,
+                (c, samples) -> passes.add(samples));
+        assertEquals(3, result.samplesPerPixel(), "All the passes should be completed before the deadline");
+        assertEquals(List.of(1, 2, 3), passes, "The listener should get each pass");
+        assertSame(imageWriter, result.image(), "The result should hold the image of the camera");
+
+        // EP02: The deadline passes during the render - it stops without being cancelled
+        passes.clear();
+        result = camera.renderUntil(Instant.now().plusMillis(50), Integer.MAX_VALUE, (c, samples) -> {
+            passes.add(samples);
+            try {
+                Thread.sleep(10);
+            } catch (InterruptedException ignore) {
+            }
+        });
+        assertTrue(result.samplesPerPixel() > 1, "The render should refine the image until the deadline");
+        assertEquals(passes.getLast(), result.samplesPerPixel(), "Wrong amount of samples per pixel");
+        assertFalse(camera.isCancelled(), "The deadline shouldn't cancel the render");
+
+        // EP03: A plain render after a render stopped at the deadline renders the whole image
+        AtomicInteger rays = new AtomicInteger();
+        Camera counting = cameraBuilder.setImageWriter(new ImageWriter("Test", 64, 64))
+                .setRayTracer(new RayTracerBase(new Scene("Counting")) {
+                    @Override
+                    public Color traceRay(Ray ray) {
+                        rays.incrementAndGet();
+                        return Color.BLACK;
+                    }
+                }).build();
+        counting.renderUntil(Instant.now().minusSeconds(1), 5, null);
+        rays.set(0);
+        counting.renderImage();
+        assertEquals(64 * 64, rays.get(), "Every pixel should be traced after a render stopped at the deadline");
+
+        // =============== Boundary Values Tests ==================
+        // BV01: A passed deadline - the first pass is still completed
+        assertEquals(1, camera.renderUntil(Instant.now().minusSeconds(1), 5, null).samplesPerPixel(),
+                "The first pass should be completed");
+
+        // BV02: No passes
+        assertThrows(IllegalArgumentException.class, () -> camera.renderUntil(Instant.now(), 0, null),
+                "Zero passes should throw an exception");
+    }
+
+    /**
+     * Test method for {@link renderer.Camera.Builder#setMultithreading(int)}.
+     */
+    @Test
+    void testSetMultithreading() {
+        ImageWriter sequential = render(renderBuilder());
+
+        // ============ Equivalence Partitions Tests ==============
+        // EP01: Several threads render the same image as the calling thread
+        assertSameImage(sequential, render(renderBuilder().setMultithreading(3)), "Wrong multithreaded render");
+
+        // EP02: Threads taking small tiles which don't divide the image evenly
+        assertSameImage(sequential, render(renderBuilder().setMultithreading(2).setTileSize(5)),
+                "Wrong multithreaded render with small tiles");
+
+        // =============== Boundary Values Tests ==================
+        // BV01: A single thread
+        assertSameImage(sequential, render(renderBuilder().setMultithreading(1)), "Wrong single thread render");
+
+        // BV02: -1 renders the tiles by a parallel stream
+        assertSameImage(sequential, render(renderBuilder().setMultithreading(-1)), "Wrong parallel stream render");
+
+        // BV03: A tile bigger than the image
+        assertSameImage(sequential, render(renderBuilder().setMultithreading(2).setTileSize(64)),
+                "Wrong multithreaded render with a single tile");
+    }
+
+    /**
+     * Test method for {@link renderer.Camera.Builder#setVirtualThreads(int)}.
+     */
+    @Test
+    void testSetVirtualThreads() {
+        ImageWriter sequential = render(renderBuilder());
+
+        // ============ Equivalence Partitions Tests ==============
+        // EP01: Virtual threads render the same image as the calling thread
+        assertSameImage(sequential, render(renderBuilder().setVirtualThreads(4)), "Wrong virtual threads render");
+
+        // EP02: No more tiles than the parallelism are rendered at once
+        AtomicInteger running = new AtomicInteger();
+        AtomicInteger maxRunning = new AtomicInteger();
+        RayTracerBase tracer = new RayTracerBase(new Scene("Parallelism")) {
+            @Override
+            public Color traceRay(Ray ray) {
+                maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+                try {
+                    Thread.sleep(1); // let the other virtual threads run
+                } catch (InterruptedException ignore) {
+                }
+                running.decrementAndGet();
+                return Color.BLACK;
+            }
+        };
+        cameraBuilder.setVpSize(8, 8).setImageWriter(new ImageWriter("Test", 8, 8)).setRayTracer(tracer)
+                .setTileSize(2).setVirtualThreads(3).build().renderImage();
+        assertTrue(maxRunning.get() > 1, "The tiles should be rendered in parallel");
+        assertTrue(maxRunning.get() <= 3, "More tiles than the parallelism were rendered at once");
+
+        // EP03: Negative parallelism
+        assertThrows(IllegalArgumentException.class, () -> renderBuilder().setVirtualThreads(-1),
+                "Negative parallelism should throw an exception");
+
+        // =============== Boundary Values Tests ==================
+        // BV01: A single tile at once
+        assertSameImage(sequential, render(renderBuilder().setVirtualThreads(1)),
+                "Wrong virtual threads render of a single tile at once");
+    }
+
+    /**
+     * Test method for {@link renderer.Camera#cancelRendering()}.
+     */
+    @Test
+    void testCancelRendering() {
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch cancelled = new CountDownLatch(1);
+        // the first ray waits until the render is cancelled, all the rays are white
+        RayTracerBase tracer = new RayTracerBase(new Scene("Cancel")) {
+            @Override
+            public Color traceRay(Ray ray) {
+                if (started.getCount() > 0) {
+                    started.countDown();
+                    assertDoesNotThrow(() -> cancelled.await());
+                }
+                return new Color(255, 255, 255);
+            }
+        };
+        ImageWriter imageWriter = new ImageWriter("Test", 16, 16);
+        Camera camera = cameraBuilder.setVpSize(8, 8).setImageWriter(imageWriter).setRayTracer(tracer)
+                .setTileSize(4).build();
+
+        // ============ Equivalence Partitions Tests ==============
+        // EP01: Cancelling from another thread - the running tile is finished and the rest are skipped
+        Thread canceller = new Thread(() -> {
+            assertDoesNotThrow(() -> started.await());
+            camera.cancelRendering();
+            cancelled.countDown();
+        });
+        canceller.start();
+        camera.renderImage();
+        assertDoesNotThrow(() -> canceller.join());
+        assertTrue(camera.isCancelled(), "The render should be cancelled");
+        assertEquals(new Color(255, 255, 255).getRgb(), imageWriter.getPixel(3, 3).getRgb(),
+                "The running tile should be finished");
+        assertEquals(Color.BLACK.getRgb(), imageWriter.getPixel(4, 0).getRgb(), "The next tile should be skipped");
+        assertEquals(Color.BLACK.getRgb(), imageWriter.getPixel(15, 15).getRgb(), "The last tile should be skipped");
+
+        // EP02: The render after a cancelled one isn't cancelled
+        camera.renderImage();
+        assertFalse(camera.isCancelled(), "The next render shouldn't be cancelled");
+        assertEquals(new Color(255, 255, 255).getRgb(), imageWriter.getPixel(15, 15).getRgb(),
+                "The next render should render the whole image");
+
+        // =============== Boundary Values Tests ==================
+        // BV01: Cancelling just before the render starts isn't lost
+        ImageWriter empty = new ImageWriter("Test", 16, 16);
+        Camera early = cameraBuilder.setImageWriter(empty).build();
+        early.cancelRendering();
+        early.renderImage();
+        assertTrue(early.isCancelled(), "The render should be cancelled");
+        assertEquals(Color.BLACK.getRgb(), empty.getPixel(0, 0).getRgb(), "No tile should be rendered");
+    }
+}
@@ -2,6 +2,9 @@ package renderer;
 
 import org.junit.jupiter.api.Test;
 import primitives.Color;
+import primitives.Double3;
+
+import static org.junit.jupiter.api.Assertions.*;
 
 /**
  * Testing ImageWriter Class
@@ -30,4 +33,79 @@ public class ImageWriterTest {
         // Write the image to a file
         image.writeToImage();
     }
+
+    /**
+     * Test method for {@link renderer.ImageWriter#writePixel(int, int, Color)}.
+     */
+    @Test
+    void testWritePixel() {
+        ImageWriter image = new ImageWriter("Test", 2, 1);
+
+        // ============ Equivalence Partitions Tests ==============
+        // TC01: the pixel keeps the color brighter than the printable range
+        image.writePixel(1, 0, new Color(1000, 127.5, 0));
+        assertEquals(new Color(1000, 127.5, 0).getRgb(), image.getPixel(1, 0).getRgb(), "Wrong pixel color");
+
+        // =============== Boundary Values Tests ==================
+        // TC02: an unwritten pixel is black
+        assertEquals(Color.BLACK.getRgb(), image.getPixel(0, 0).getRgb(), "An unwritten pixel should be black");
+    }
+
+    /**
+     * Test method for {@link renderer.ImageWriter#addSample(int, int, Color, int)}.
+     */
+    @Test
+    void testAddSample() {
+        ImageWriter image = new ImageWriter("Test", 1, 1);
+
+        // ============ Equivalence Partitions Tests ==============
+        // TC01: the pixel is the average of its samples
+        image.writePixel(0, 0, new Color(1000, 1000, 1000));
+        image.addSample(0, 0, new Color(100, 0, 40), 1);
+        image.addSample(0, 0, new Color(200, 30, 0), 2);
+        image.addSample(0, 0, new Color(0, 60, 20), 3);
+        Double3 rgb = image.getPixel(0, 0).getRgb();
+        assertEquals(100, rgb.getD1(), 1e-4, "Wrong average red");
+        assertEquals(30, rgb.getD2(), 1e-4, "Wrong average green");
+        assertEquals(20, rgb.getD3(), 1e-4, "Wrong average blue");
+
+        // =============== Boundary Values Tests ==================
+        // TC02: the first sample overwrites the pixel
+        image.addSample(0, 0, new Color(5, 0, 40), 1);
+        assertEquals(new Color(5, 0, 40).getRgb(), image.getPixel(0, 0).getRgb(), "Wrong first sample");
+    }
+
+    /**
+     * Test method for {@link renderer.ImageWriter#setToneMapping(ImageWriter.ToneMapping)}.
+     */
+    @Test
+    void testToneMapping() {
+        ImageWriter image = new ImageWriter("Test", 1, 1);
+        image.writePixel(0, 0, new Color(1000, 255, 51));
+
+        // ============ Equivalence Partitions Tests ==============
+        // TC01: clamping cuts the bright components
+        assertEquals(0xffff33, image.toneMap().getRGB(0, 0) & 0xffffff, "Wrong clamped color");
+
+        // TC02: Reinhard compresses the components - 255 goes to the half
+        int rgb = image.setToneMapping(ImageWriter.ToneMapping.REINHARD).toneMap().getRGB(0, 0);
+        assertEquals(203, rgb >> 16 & 0xff, "Wrong Reinhard red");
+        assertEquals(127, rgb >> 8 & 0xff, "Wrong Reinhard green");
+        assertEquals(42, rgb & 0xff, "Wrong Reinhard blue");
+
+        // TC03: ACES compresses the bright components and lifts the mid tones
+        rgb = image.setToneMapping(ImageWriter.ToneMapping.ACES).toneMap().getRGB(0, 0);
+        assertEquals(247, rgb >> 16 & 0xff, "Wrong ACES red");
+        assertEquals(204, rgb >> 8 & 0xff, "Wrong ACES green");
+        assertEquals(76, rgb & 0xff, "Wrong ACES blue");
+
+        // TC04: each stop of exposure doubles the color
+        rgb = image.setToneMapping(ImageWriter.ToneMapping.CLAMP).setExposure(-1).toneMap().getRGB(0, 0);
+        assertEquals(0xff7f19, rgb & 0xffffff, "Wrong exposed color");
+
+        // =============== Boundary Values Tests ==================
+        // TC05: no tone mapping operator
+        assertThrows(IllegalArgumentException.class, () -> image.setToneMapping(null),
+                "Missing tone mapping operator should throw an exception");
+    }
 }
@@ -0,0 +1,101 @@
+package renderer;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Testing PixelManager class
+ */
+class PixelManagerTest {
+    /**
+     * Takes all the tiles of a pixel manager, finishing each of them, and checks that they cover every pixel of the
+     * image exactly once
+     *
+     * @param nX       the number of columns of the image
+     * @param nY       the number of rows of the image
+     * @param tileSize the size of a tile edge
+     * @param threads  the number of threads taking the tiles
+     */
+    private static void assertCovered(int nX, int nY, int tileSize, int threads) {
+        PixelManager pixelManager = new PixelManager(nY, nX, tileSize, 0);
+        List<PixelManager.Tile> tiles = Collections.synchronizedList(new ArrayList<>());
+        List<Thread> workers = new ArrayList<>();
+        for (int t = 0; t < threads; t++)
+            workers.add(new Thread(() -> {
+                PixelManager.Tile tile;
+                while ((tile = pixelManager.nextTile()) != null) {
+                    tiles.add(tile);
+                    pixelManager.tileDone(tile);
+                }
+            }));
+        for (Thread worker : workers) worker.start();
+        for (Thread worker : workers) assertDoesNotThrow(() -> worker.join());
+
+        int[] covered = new int[nX * nY];
+        for (PixelManager.Tile tile : tiles) {
+            assertTrue(tile.width() > 0 && tile.width() <= tileSize, "Wrong tile width");
+            assertTrue(tile.height() > 0 && tile.height() <= tileSize, "Wrong tile height");
+            for (int row = tile.row(); row < tile.row() + tile.height(); row++)
+                for (int column = tile.col(); column < tile.col() + tile.width(); column++)
+                    covered[row * nX + column]++;
+        }
+        String image = nX + "x" + nY + " with tiles of " + tileSize;
+        for (int pixel = 0; pixel < covered.length; pixel++)
+            assertEquals(1, covered[pixel], "Pixel " + pixel + " of " + image + " should be covered once");
+        assertNull(pixelManager.nextTile(), "No tile should be left in " + image);
+        assertEquals(100, pixelManager.progress(), 1e-9, "The progress of " + image + " should reach 100%");
+    }
+
+    /**
+     * Test method for {@link renderer.PixelManager#nextTile()}.
+     */
+    @Test
+    void testNextTile() {
+        // ============ Equivalence Partitions Tests ==============
+        // TC01: image sizes that are multiples of the tile size
+        assertCovered(64, 48, 16, 1);
+
+        // TC02: odd image sizes - the edge tiles are smaller
+        for (int tileSize : new int[]{3, 7, 16})
+            assertCovered(37, 23, tileSize, 1);
+
+        // TC03: several threads take the tiles at once
+        for (int tileSize : new int[]{1, 5, 16})
+            assertCovered(101, 67, tileSize, 4);
+
+        // =============== Boundary Values Tests ==================
+        // TC04: a single pixel tile
+        assertCovered(5, 3, 1, 1);
+
+        // TC05: a tile bigger than the image
+        assertCovered(5, 3, 16, 2);
+
+        // TC06: a single pixel image
+        assertCovered(1, 1, 4, 1);
+    }
+
+    /**
+     * Test method for {@link renderer.PixelManager#getTile(int)}.
+     */
+    @Test
+    void testGetTile() {
+        PixelManager pixelManager = new PixelManager(23, 37, 16, 0);
+
+        // ============ Equivalence Partitions Tests ==============
+        // TC01: a tile inside the image
+        assertEquals(new PixelManager.Tile(0, 0, 16, 16), pixelManager.getTile(0), "Wrong inner tile");
+
+        // =============== Boundary Values Tests ==================
+        // TC02: the last tile of a row is cut by the image edge
+        assertEquals(new PixelManager.Tile(32, 0, 5, 16), pixelManager.getTile(2), "Wrong edge tile");
+
+        // TC03: the last tile of the image is cut on both axes
+        assertEquals(6, pixelManager.tilesCount(), "Wrong amount of tiles");
+        assertEquals(new PixelManager.Tile(32, 16, 5, 7), pixelManager.getTile(5), "Wrong corner tile");
+    }
+}
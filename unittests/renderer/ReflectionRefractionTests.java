@@ -15,6 +15,8 @@ import lighting.SpotLight;
 import primitives.*;
 import scene.Scene;
 
+import java.time.Instant;
+
 /**
  * Tests for reflection and transparency functionality, test for partial
  * shadows
@@ -85,6 +87,102 @@ public class ReflectionRefractionTests {
                 .writeToImage();
     }
 
+    /**
+     * Produce the picture of the spheres on the mirrors with a shallower recursion and Russian roulette for the weak
+     * reflections
+     */
+    @Test
+    public void twoSpheresOnMirrorsRoulette() {
+        scene.geometries.add(
+                new Sphere(400d, new Point(-950, -900, -1000)).setEmission(new Color(0, 50, 100))
+                        .setMaterial(new Material().setKd(0.25).setKs(0.25).setShininess(20)
+                                .setKt(new Double3(0.5, 0, 0))),
+                new Sphere(200d, new Point(-950, -900, -1000)).setEmission(new Color(100, 50, 20))
+                        .setMaterial(new Material().setKd(0.25).setKs(0.25).setShininess(20)),
+                new Triangle(new Point(1500, -1500, -1500), new Point(-1500, 1500, -1500),
+                        new Point(670, 670, 3000))
+                        .setEmission(new Color(20, 20, 20))
+                        .setMaterial(new Material().setKr(1.0)),
+                new Triangle(new Point(1500, -1500, -1500), new Point(-1500, 1500, -1500),
+                        new Point(-1500, -1500, -2000))
+                        .setEmission(new Color(20, 20, 20))
+                        .setMaterial(new Material().setKr(new Double3(0.5, 0, 0.4))));
+        scene.setAmbientLight(new AmbientLight(new Color(255, 255, 255), 0.1));
+        scene.lights.add(new SpotLight(new Color(1020, 400, 400), new Point(-750, -750, -150), new Vector(-1, -1, -4))
+                .setKl(0.00001).setKq(0.000005));
+
+        cameraBuilder.setLocation(new Point(0, 0, 10000)).setVpDistance(10000)
+                .setVpSize(2500, 2500)
+                .setRayTracer(new SimpleRayTracer(scene).setMaxLevel(7).setMinK(0.01).setRussianRoulette(0.3))
+                .setImageWriter(new ImageWriter("reflectionTwoSpheresMirroredRoulette", 500, 500))
+                .build()
+                .renderImage()
+                .writeToImage();
+    }
+
+    /**
+     * Produce the picture of the spheres on the mirrors progressively - in 4 passes of a sample per pixel, writing the
+     * image after each pass
+     */
+    @Test
+    public void twoSpheresOnMirrorsProgressive() {
+        scene.geometries.add(
+                new Sphere(400d, new Point(-950, -900, -1000)).setEmission(new Color(0, 50, 100))
+                        .setMaterial(new Material().setKd(0.25).setKs(0.25).setShininess(20)
+                                .setKt(new Double3(0.5, 0, 0))),
+                new Sphere(200d, new Point(-950, -900, -1000)).setEmission(new Color(100, 50, 20))
+                        .setMaterial(new Material().setKd(0.25).setKs(0.25).setShininess(20)),
+                new Triangle(new Point(1500, -1500, -1500), new Point(-1500, 1500, -1500),
+                        new Point(670, 670, 3000))
+                        .setEmission(new Color(20, 20, 20))
+                        .setMaterial(new Material().setKr(1.0)),
+                new Triangle(new Point(1500, -1500, -1500), new Point(-1500, 1500, -1500),
+                        new Point(-1500, -1500, -2000))
+                        .setEmission(new Color(20, 20, 20))
+                        .setMaterial(new Material().setKr(new Double3(0.5, 0, 0.4))));
+        scene.setAmbientLight(new AmbientLight(new Color(255, 255, 255), 0.1));
+        scene.lights.add(new SpotLight(new Color(1020, 400, 400), new Point(-750, -750, -150), new Vector(-1, -1, -4))
+                .setKl(0.00001).setKq(0.000005));
+
+        cameraBuilder.setLocation(new Point(0, 0, 10000)).setVpDistance(10000)
+                .setVpSize(2500, 2500)
+                .setImageWriter(new ImageWriter("reflectionTwoSpheresMirroredProgressive", 500, 500))
+                .build()
+                .renderProgressive(4, (camera, samples) -> camera.writeToImage());
+    }
+
+    /**
+     * Produce the picture of the spheres on the mirrors refined progressively within a time budget of 3 seconds
+     */
+    @Test
+    public void twoSpheresOnMirrorsBudgeted() {
+        scene.geometries.add(
+                new Sphere(400d, new Point(-950, -900, -1000)).setEmission(new Color(0, 50, 100))
+                        .setMaterial(new Material().setKd(0.25).setKs(0.25).setShininess(20)
+                                .setKt(new Double3(0.5, 0, 0))),
+                new Sphere(200d, new Point(-950, -900, -1000)).setEmission(new Color(100, 50, 20))
+                        .setMaterial(new Material().setKd(0.25).setKs(0.25).setShininess(20)),
+                new Triangle(new Point(1500, -1500, -1500), new Point(-1500, 1500, -1500),
+                        new Point(670, 670, 3000))
+                        .setEmission(new Color(20, 20, 20))
+                        .setMaterial(new Material().setKr(1.0)),
+                new Triangle(new Point(1500, -1500, -1500), new Point(-1500, 1500, -1500),
+                        new Point(-1500, -1500, -2000))
+                        .setEmission(new Color(20, 20, 20))
+                        .setMaterial(new Material().setKr(new Double3(0.5, 0, 0.4))));
+        scene.setAmbientLight(new AmbientLight(new Color(255, 255, 255), 0.1));
+        scene.lights.add(new SpotLight(new Color(1020, 400, 400), new Point(-750, -750, -150), new Vector(-1, -1, -4))
+                .setKl(0.00001).setKq(0.000005));
+
+        cameraBuilder.setLocation(new Point(0, 0, 10000)).setVpDistance(10000)
+                .setVpSize(2500, 2500)
+                .setImageWriter(new ImageWriter("reflectionTwoSpheresMirroredBudgeted", 500, 500))
+                .build()
+                .renderUntil(Instant.now().plusSeconds(3), 64, null)
+                .image()
+                .writeToImage();
+    }
+
     /**
      * Produce a picture of a two triangles lighted by a spot light with a
      * partially
@@ -307,6 +405,55 @@ public class ReflectionRefractionTests {
                 .writeToImage();
 
     }
+
+    /**
+     * Produce the picture of the blurry glasses, tracing their beams until the average color converges
+     */
+    @Test
+    public void testBlurryGlassAdaptive() {
+        Vector vTo = new Vector(0, 1, 0);
+        Camera.Builder camera = Camera.getBuilder().setLocation(new Point(0, -230, 0).add(vTo.scale(-13)))
+                .setDirection(vTo, new Vector(0, 0, 1))
+                .setVpSize(200d, 200).setVpDistance(1000);
+
+        scene.setAmbientLight(new AmbientLight(new Color(gray).reduce(2), new Double3(0.15)));
+
+        for (int i = -4; i < 6; i += 2) {
+            scene.geometries.add(
+                    new Sphere(3, new Point(5 * i, -1.50, -3)).setEmission(new Color(red).reduce(4).reduce(2))
+                            .setMaterial(new Material().setKd(0.2).setKs(1).setShininess(80).setKt(0d)),
+
+                    new Sphere(3, new Point(5 * i, 5, 3)).setEmission(new Color(green).reduce(2))
+                            .setMaterial(new Material().setKd(0.2).setKs(1).setShininess(80).setKt(0d)),
+                    new Sphere(3, new Point(5 * i, -8, -8)).setEmission(new Color(yellow).reduce(2))
+                            .setMaterial(new Material().setKd(0.2).setKs(1).setShininess(80).setKt(0d)),
+
+                    new Polygon(new Point(5 * i - 4, -5, -11), new Point(5 * i - 4, -5, 5), new Point(5 * i + 4, -5, 5),
+                            new Point(5 * i + 4, -5, -11)).setEmission(new Color(250, 235, 215).reduce(2))
+                            .setMaterial(new Material().setKd(0.001).setKs(0.002).setShininess(1).setKt(0.95)
+                                    .setBlurGlass(i == 4 ? 1 : 100, 0.3 * (i + 5), 3)
+                                    .setAdaptiveBlurGlass(8, 5))
+
+            );
+        }
+
+        scene.geometries.add(new Plane(new Point(1, 10, 1), new Point(2, 10, 1), new Point(5, 10, 0))
+                .setEmission(new Color(white).reduce(3))
+                .setMaterial(new Material().setKd(0.2).setKs(0).setShininess(0).setKt(0d))
+
+        );
+
+        scene.lights.add(new DirectionalLight(new Color(white).reduce(1), new Vector(-0.4, 1, 0)));
+        scene.lights.add(new SpotLight(new Color(white).reduce(2), new Point(20.43303, -7.37104, 13.77329),
+                new Vector(-20.43, 7.37, -13.77)).setKl(0.6));
+
+        ImageWriter imageWriter = new ImageWriter("blurryGlassAdaptive", 500, 500);
+        camera.setImageWriter(imageWriter) //
+                .setRayTracer(new SimpleRayTracer(scene)) //
+                .build() //
+                .renderImage()
+                .writeToImage();
+    }
     @Test
             public void testBlurry(){
     Vector vTo = new Vector(0, 1, 0);
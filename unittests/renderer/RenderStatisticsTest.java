@@ -0,0 +1,132 @@
+package renderer;
+
+import geometries.Plane;
+import geometries.Sphere;
+import lighting.PointLight;
+import org.junit.jupiter.api.Test;
+import primitives.*;
+import scene.Scene;
+
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Testing RenderStatistics class
+ */
+class RenderStatisticsTest {
+    /**
+     * Creates a scene of a sphere on a mirror floor, lit by a point light
+     *
+     * @return the scene
+     */
+    private static Scene scene() {
+        Scene scene = new Scene("Statistics scene");
+        scene.geometries.add(new Sphere(30, new Point(0, 0, -100)).setEmission(new Color(100, 20, 20))
+                        .setMaterial(new Material().setKd(0.5).setKs(0.5).setShininess(30)),
+                new Plane(new Point(0, -30, 0), new Vector(0, 1, 0))
+                        .setMaterial(new Material().setKd(0.2).setKr(0.5)));
+        scene.lights.add(new PointLight(new Color(500, 500, 500), new Point(50, 100, 0)));
+        return scene;
+    }
+
+    /**
+     * Creates a camera of 40x40 pixels looking at the scene
+     *
+     * @param tracer     the ray tracer
+     * @param statistics the statistics collector
+     * @return the camera
+     */
+    private static Camera camera(RayTracerBase tracer, RenderStatistics statistics) {
+        return Camera.getBuilder()
+                .setLocation(new Point(0, 0, 100))
+                .setDirection(new Vector(0, 0, -1), new Vector(0, 1, 0))
+                .setVpDistance(100).setVpSize(150, 150)
+                .setImageWriter(new ImageWriter("statistics", 40, 40))
+                .setRayTracer(tracer)
+                .setTileSize(10)
+                .setStatistics(statistics)
+                .build();
+    }
+
+    /**
+     * Test method for {@link renderer.Camera.Builder#setStatistics(RenderStatistics)}.
+     */
+    @Test
+    void testRenderStatistics() {
+        RenderStatistics statistics = new RenderStatistics();
+        AtomicInteger tiles = new AtomicInteger();
+        AtomicInteger finished = new AtomicInteger();
+        statistics.addListener(new RenderStatistics.Listener() {
+            @Override
+            public void tileRendered(RenderStatistics s, int col, int row, int width, int height, long nanos) {
+                tiles.incrementAndGet();
+            }
+
+            @Override
+            public void renderFinished(RenderStatistics s) {
+                finished.incrementAndGet();
+            }
+        });
+
+        // ============ Equivalence Partitions Tests ==============
+        // TC01: render with the geometries list
+        camera(new SimpleRayTracer(scene()), statistics).renderImage();
+        assertEquals(1600, statistics.getPrimaryRays(), "Wrong amount of primary rays");
+        assertTrue(statistics.getShadowRays() > 0, "The lit points should cast shadow rays");
+        assertTrue(statistics.getReflectedRays() > 0, "The mirror should reflect rays");
+        assertEquals(0, statistics.getRefractedRays(), "Nothing is transparent");
+        assertEquals(3, statistics.getMaxDepth(), "The reflections should be one bounce deep");
+        assertTrue(statistics.getIntersectionTestsPerRay() > 1 && statistics.getIntersectionTestsPerRay() < 2,
+                "Each ray should test the plane, and the sphere only through its bounding box");
+        assertEquals(16, statistics.getTiles(), "Wrong amount of tiles");
+        assertEquals(16, tiles.get(), "The listener should get each tile");
+        assertEquals(1, finished.get(), "The listener should get the end of the render");
+
+        // TC02: render with the voxel grid walks through its voxels
+        statistics.reset();
+        Scene scene = scene();
+        scene.setResolution(4);
+        camera(new RayTracerRegular(scene), statistics).renderImage();
+        assertEquals(1600, statistics.getPrimaryRays(), "Wrong amount of primary rays after reset");
+        assertTrue(statistics.getVoxelsPerRay() > 0, "The rays should walk through voxels");
+
+        // TC03: the statistics are readable through JMX
+        statistics.registerMBean("RenderStatisticsTest");
+        assertEquals(1600L, assertDoesNotThrow(() -> ManagementFactory.getPlatformMBeanServer().getAttribute(
+                        new ObjectName("renderer:type=RenderStatistics,name=\"RenderStatisticsTest\""), "PrimaryRays")),
+                "Wrong amount of primary rays through JMX");
+
+        // =============== Boundary Values Tests ==================
+        // TC04: render without statistics doesn't count
+        statistics.reset();
+        camera(new SimpleRayTracer(scene()), null).renderImage();
+        assertEquals(0, statistics.getPrimaryRays(), "Render without statistics shouldn't count");
+    }
+
+    /**
+     * Test method for {@link renderer.Camera.Builder#setStatistics(RenderStatistics)} with cameras that share a ray
+     * tracer.
+     */
+    @Test
+    void testSharedRayTracer() throws InterruptedException {
+        RayTracerBase tracer = new SimpleRayTracer(scene());
+        RenderStatistics first = new RenderStatistics();
+        RenderStatistics second = new RenderStatistics();
+        Camera[] cameras = { camera(tracer, first), camera(tracer, second), camera(tracer, null) };
+
+        // ============ Equivalence Partitions Tests ==============
+        // TC01: cameras rendering at the same time through the same tracer count only their own rays
+        Thread[] threads = new Thread[cameras.length];
+        for (int i = 0; i < cameras.length; i++) {
+            threads[i] = new Thread(cameras[i]::renderImage);
+            threads[i].start();
+        }
+        for (Thread thread : threads) thread.join();
+        assertEquals(1600, first.getPrimaryRays(), "The first camera should count only its own rays");
+        assertEquals(1600, second.getPrimaryRays(), "The second camera should count only its own rays");
+        assertEquals(first.getShadowRays(), second.getShadowRays(), "The same image should cast the same rays");
+    }
+}
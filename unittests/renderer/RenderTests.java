@@ -43,6 +43,26 @@ public class RenderTests {
               .printGrid(100, new Color(YELLOW))
               .writeToImage();
    }
+   /**
+    * Render the basic 3D model with adaptive super sampling, so the edges of the sphere and the triangles are smooth.
+    */
+   @Test
+   public void renderAntiAliasingTest() {
+      scene.geometries.add(new Sphere(50d, new Point(0, 0, -100)),
+              new Triangle(new Point(-100, 0, -100), new Point(0, 100, -100), new Point(-100, 100, -100)), // up left
+              new Triangle(new Point(-100, 0, -100), new Point(0, -100, -100), new Point(-100, -100, -100)), // down left
+              new Triangle(new Point(100, 0, -100), new Point(0, -100, -100), new Point(100, -100, -100))); // down right
+      scene.setAmbientLight(new AmbientLight(new Color(255, 191, 191), Double3.ONE))
+              .setBackground(new Color(75, 127, 90));
+
+      camera
+              .setImageWriter(new ImageWriter("anti aliasing render test", 250, 250))
+              .setAdaptiveSuperSampling(3, 10)
+              .build()
+              .renderImage()
+              .writeToImage();
+   }
+
    /**
     * Produce a scene with basic 3D model - including individual lights of the
     * bodies and render it into a png image with a grid
@@ -0,0 +1,233 @@
+package scene;
+
+import geometries.Geometries;
+import geometries.Intersectable;
+import geometries.Plane;
+import geometries.Sphere;
+import geometries.TriangleMesh;
+import org.junit.jupiter.api.Test;
+import primitives.Point;
+import primitives.Vector;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Testing Scene class
+ */
+class SceneTest {
+    /**
+     * the geometric entities attached to a voxel of the scene grid
+     *
+     * @param scene the scene
+     * @param x     the voxel index on the X axis
+     * @param y     the voxel index on the Y axis
+     * @param z     the voxel index on the Z axis
+     * @return the entities of the voxel
+     */
+    private static List<Intersectable> voxel(Scene scene, int x, int y, int z) {
+        int voxel = scene.voxelIndex(x, y, z);
+        List<Intersectable> entities = new ArrayList<>();
+        for (int i = scene.voxelsStart[voxel]; i < scene.voxelsStart[voxel + 1]; i++)
+            entities.add(scene.voxelsGeometries[scene.voxels[i]]);
+        return entities;
+    }
+
+    /**
+     * Test method for {@link scene.Scene#calcVoxels()}.
+     */
+    @Test
+    void testCalcVoxels() {
+        Scene scene = new Scene("Test scene");
+        Sphere corner = new Sphere(1, new Point(5, 5, 5));
+        Sphere farCorner = new Sphere(1, new Point(95, 95, 95));
+        Sphere middle = new Sphere(1, new Point(50, 5, 5));
+        Plane plane = new Plane(new Point(0, 0, -10), new Vector(0, 0, 1));
+        scene.geometries.add(corner, farCorner, middle, plane);
+        scene.setResolution(10).calcVoxels();
+
+        // ============ Equivalence Partitions Tests ==============
+        // TC01: a geometry inside a single voxel is attached only to it
+        assertEquals(List.of(corner), voxel(scene, 0, 0, 0), "Wrong geometries of the first voxel");
+        assertEquals(List.of(farCorner), voxel(scene, 9, 9, 9), "Wrong geometries of the last voxel");
+
+        // TC02: a geometry on the border of two voxels is attached to both of them
+        assertEquals(List.of(middle), voxel(scene, 4, 0, 0), "Wrong geometries of the voxel before the border");
+        assertEquals(List.of(middle), voxel(scene, 5, 0, 0), "Wrong geometries of the voxel after the border");
+
+        // TC03: a voxel far from the geometries is empty
+        assertTrue(voxel(scene, 5, 5, 5).isEmpty(), "The voxel should be empty");
+
+        // =============== Boundary Values Tests ==================
+        // TC04: the unbounded plane isn't attached to any voxel
+        assertEquals(4, scene.voxels.length, "Only the spheres should be attached to voxels");
+        assertArrayEquals(new Intersectable[]{plane}, scene.unboundedGeometries, "The plane should be kept aside");
+
+        // TC05: voxels outside the grid
+        assertEquals(-1, scene.voxelIndex(10, 0, 0), "The voxel is outside the grid");
+        assertEquals(-1, scene.voxelIndex(0, -1, 0), "The voxel is outside the grid");
+    }
+
+    /**
+     * Test method for {@link scene.Scene#calcVoxels()} resolution choice.
+     */
+    @Test
+    void testGridResolution() {
+        // ============ Equivalence Partitions Tests ==============
+        // TC01: a cube of 1000 spheres - a scene boundary of 20 x 20 x 20 is divided to about 4 voxels per sphere
+        Scene cube = new Scene("Test scene");
+        for (int i = 0; i < 10; i++)
+            for (int j = 0; j < 10; j++)
+                for (int k = 0; k < 10; k++)
+                    cube.geometries.add(new Sphere(1, new Point(2 * i + 1, 2 * j + 1, 2 * k + 1)));
+        cube.calcVoxels();
+        assertArrayEquals(new int[]{16, 16, 16}, cube.getGridResolution(), "Wrong automatic resolution");
+
+        // TC02: a row of 100 spheres - a scene boundary of 200 x 2 x 2 gets cube voxels, up to the maximum resolution
+        Scene row = new Scene("Test scene");
+        for (int i = 0; i < 100; i++)
+            row.geometries.add(new Sphere(1, new Point(2 * i + 1, 1, 1)));
+        row.calcVoxels();
+        assertArrayEquals(new int[]{128, 2, 2}, row.getGridResolution(), "Wrong automatic resolution");
+
+        // TC03: the spheres of a nested collection are counted one by one, like the spheres of the scene
+        Scene nested = new Scene("Test scene");
+        Geometries spheres = new Geometries();
+        for (int i = 0; i < 10; i++)
+            for (int j = 0; j < 10; j++)
+                for (int k = 0; k < 10; k++)
+                    spheres.add(new Sphere(1, new Point(2 * i + 1, 2 * j + 1, 2 * k + 1)));
+        nested.geometries.add(spheres);
+        nested.calcVoxels();
+        assertArrayEquals(new int[]{16, 16, 16}, nested.getGridResolution(), "Wrong nested collection resolution");
+
+        // TC04: the triangles of a mesh are counted one by one - 800 triangles of a flat 20 x 20 sheet, which is
+        // divided only on its two axes
+        double[] vertices = new double[3 * 21 * 21];
+        for (int i = 0; i <= 20; i++)
+            for (int j = 0; j <= 20; j++) {
+                vertices[3 * (21 * i + j)] = i;
+                vertices[3 * (21 * i + j) + 1] = j;
+            }
+        int[] indices = new int[6 * 20 * 20];
+        for (int i = 0, t = 0; i < 20; i++)
+            for (int j = 0; j < 20; j++, t += 6) {
+                int v = 21 * i + j;
+                System.arraycopy(new int[]{v, v + 21, v + 1, v + 1, v + 21, v + 22}, 0, indices, t, 6);
+            }
+        Scene mesh = new Scene("Test scene");
+        mesh.geometries.add(new TriangleMesh(vertices, indices));
+        mesh.calcVoxels();
+        assertArrayEquals(new int[]{57, 57, 1}, mesh.getGridResolution(), "Wrong mesh resolution");
+
+        // TC05: the uniform resolution overrides the automatic one
+        row.setResolution(10).calcVoxels();
+        assertArrayEquals(new int[]{10, 10, 10}, row.getGridResolution(), "Wrong uniform resolution");
+
+        // TC06: the resolution of each axis overrides the uniform one
+        row.setResolution(20, 2, 1).calcVoxels();
+        assertArrayEquals(new int[]{20, 2, 1}, row.getGridResolution(), "Wrong axes resolution");
+        assertEquals(20 * 2, row.voxelsStart.length - 1, "Wrong number of voxels");
+    }
+
+    /**
+     * Test method for {@link scene.Scene#setHierarchicalGrid(int)}.
+     */
+    @Test
+    void testHierarchicalGrid() {
+        // a dense cluster of 64 small spheres in the first voxel, and a single sphere in the last one
+        Scene scene = new Scene("Test scene");
+        for (int i = 0; i < 4; i++)
+            for (int j = 0; j < 4; j++)
+                for (int k = 0; k < 4; k++)
+                    scene.geometries.add(new Sphere(0.1, new Point(i + 0.5, j + 0.5, k + 0.5)));
+        Sphere far = new Sphere(1, new Point(99, 99, 99));
+        scene.geometries.add(far);
+        scene.setResolution(10).setHierarchicalGrid(8).calcVoxels();
+
+        // ============ Equivalence Partitions Tests ==============
+        // TC01: a dense voxel gets a sub grid with its geometries spread over the sub voxels
+        Scene.SubGrid subGrid = scene.subGrids[scene.voxelIndex(0, 0, 0)];
+        assertNotNull(subGrid, "The dense voxel should have a sub grid");
+        for (int i = 0; i < 3; i++)
+            assertTrue(subGrid.resolution[i] > 1, "The sub grid should divide the voxel");
+        for (int i = 0; i < subGrid.voxelsStart.length - 1; i++)
+            assertTrue(subGrid.voxelsStart[i + 1] - subGrid.voxelsStart[i] < 64,
+                    "A sub voxel should hold only a part of the dense voxel geometries");
+
+        // TC02: a sparse voxel stays a single level voxel
+        assertNull(scene.subGrids[scene.voxelIndex(9, 9, 9)], "The sparse voxel shouldn't have a sub grid");
+        assertEquals(List.of(far), voxel(scene, 9, 9, 9), "Wrong geometries of the sparse voxel");
+
+        // =============== Boundary Values Tests ==================
+        // TC03: a single level grid has no sub grids
+        scene.setHierarchicalGrid(0).calcVoxels();
+        assertNull(scene.subGrids, "Single level grid shouldn't have sub grids");
+    }
+
+    /**
+     * Test method for {@link scene.Scene#getGridStatistics()} and {@link scene.Scene#getBvhStatistics()}.
+     */
+    @Test
+    void testBuildStatistics() {
+        // a dense cluster of 64 small spheres in the first voxel, and a single sphere in the last one
+        Scene scene = new Scene("Test scene");
+        for (int i = 0; i < 4; i++)
+            for (int j = 0; j < 4; j++)
+                for (int k = 0; k < 4; k++)
+                    scene.geometries.add(new Sphere(0.1, new Point(i + 0.5, j + 0.5, k + 0.5)));
+        scene.geometries.add(new Sphere(1, new Point(99, 99, 99)));
+
+        // ============ Equivalence Partitions Tests ==============
+        // TC01: a single level grid
+        scene.setResolution(10).calcVoxels();
+        Scene.BuildStatistics grid = scene.getGridStatistics();
+        assertEquals(1000, grid.nodes(), "Wrong number of voxels");
+        assertEquals(1, grid.depth(), "A single level grid should have a single level");
+        assertEquals(scene.getGridMemory(), grid.memory(), "Wrong grid memory");
+        assertTrue(grid.buildNanos() > 0, "The build time should be measured");
+
+        // TC02: a hierarchical grid counts the voxels of its sub grids
+        scene.setHierarchicalGrid(8).calcVoxels();
+        grid = scene.getGridStatistics();
+        Scene.SubGrid subGrid = scene.subGrids[scene.voxelIndex(0, 0, 0)];
+        assertEquals(1000 + subGrid.voxelsStart.length - 1, grid.nodes(), "Wrong number of voxels");
+        assertEquals(2, grid.depth(), "A hierarchical grid should have two levels");
+
+        // TC03: the bounding volume hierarchy
+        scene.calcBVH();
+        Scene.BuildStatistics bvh = scene.getBvhStatistics();
+        assertEquals(scene.bvh.getNodeCount(), bvh.nodes(), "Wrong number of nodes");
+        assertEquals(scene.bvh.getDepth(), bvh.depth(), "Wrong depth");
+        assertEquals(scene.bvh.getMemory(), bvh.memory(), "Wrong memory");
+        assertTrue(bvh.buildNanos() > 0, "The build time should be measured");
+
+        // =============== Boundary Values Tests ==================
+        // TC04: nothing was built
+        Scene empty = new Scene("Test scene");
+        assertNull(empty.getGridStatistics(), "The grid wasn't built");
+        assertNull(empty.getBvhStatistics(), "The hierarchy wasn't built");
+    }
+
+    /**
+     * Test method for {@link scene.Scene#calcVoxels()} with enough geometries to find their voxels in parallel.
+     */
+    @Test
+    void testParallelCalcVoxels() {
+        Scene scene = new Scene("Test scene");
+        for (int i = 0; i < 40; i++)
+            for (int j = 0; j < 40; j++)
+                scene.geometries.add(new Sphere(0.4, new Point(i + 0.5, j + 0.5, (i + j) % 7 + 0.5)));
+        scene.setResolution(40, 40, 7).calcVoxels();
+
+        // ============ Equivalence Partitions Tests ==============
+        // TC01: each sphere is attached exactly to the voxel of its center, in the order of the geometries
+        assertEquals(1600, scene.voxels.length, "Each sphere should be attached to a single voxel");
+        for (int i = 0; i < 40; i++)
+            for (int j = 0; j < 40; j++)
+                assertEquals(List.of(scene.voxelsGeometries[40 * i + j]), voxel(scene, i, j, (i + j) % 7),
+                        "Wrong geometries of the voxel");
+    }
+}